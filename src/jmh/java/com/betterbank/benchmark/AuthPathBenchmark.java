@@ -0,0 +1,169 @@
+package com.betterbank.benchmark;
+
+import com.betterbank.cache.NoRemoteCache;
+import com.betterbank.cache.TieredCacheFactory;
+import com.betterbank.config.AuthProviderConfig;
+import com.betterbank.config.KeycloakAdminTransportConfig;
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginResponse;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.providers.AsyncKeycloakTasksService;
+import com.betterbank.providers.HttpKeycloakTokenClient;
+import com.betterbank.providers.KeycloakAdminCredentials;
+import com.betterbank.providers.KeycloakAuthProvider;
+import com.betterbank.providers.KeycloakConcurrencyLimiter;
+import com.betterbank.providers.KeycloakKnownUsersFilter;
+import com.betterbank.providers.KeycloakLoginMode;
+import com.betterbank.providers.KeycloakTokenRejectedException;
+import com.betterbank.providers.KeycloakUserStatusResolver;
+import com.betterbank.providers.RegistrationWorkQueue;
+import com.betterbank.providers.VerificationEmailDispatcher;
+import com.betterbank.service.AuthServiceImpl;
+import com.betterbank.service.RegistrationDeduplicator;
+import com.betterbank.support.KeycloakStubServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.ws.rs.client.Client;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.keycloak.admin.client.Keycloak;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Login and register through AuthServiceImpl and KeycloakAuthProvider, wired like the application does
+ * (pooled admin transport, JDK token client, bulkheads, user status cache, registration queue) but talking
+ * to {@link KeycloakStubServer}. Runs with several threads so pool and bulkhead contention shows up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class AuthPathBenchmark {
+    private static final String REALM = "benchmark";
+    private static final LoginRequest VERIFIED_LOGIN = new LoginRequest("verified@betterbank.test", "correct-password");
+    private static final LoginRequest WRONG_PASSWORD_LOGIN = new LoginRequest("verified@betterbank.test", KeycloakStubServer.WRONG_PASSWORD);
+    private static final LoginRequest PENDING_LOGIN = new LoginRequest("pending-user@betterbank.test", "correct-password");
+
+    @Param({"0", "5"})
+    public int keycloakLatencyMillis;
+
+    @Param({"STANDARD", "OPTIMISTIC"})
+    public KeycloakLoginMode loginMode;
+
+    private final AtomicLong registrationSequence = new AtomicLong();
+
+    private KeycloakStubServer keycloak;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private Client keycloakAdminHttpClient;
+    private KeycloakAdminCredentials keycloakAdminCredentials;
+    private RegistrationWorkQueue registrationWorkQueue;
+    private VerificationEmailDispatcher verificationEmailDispatcher;
+    private AuthServiceImpl authService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        keycloak = KeycloakStubServer.start(Duration.ofMillis(keycloakLatencyMillis));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        KeycloakAdminTransportConfig transportConfig = new KeycloakAdminTransportConfig();
+        connectionManager = transportConfig.keycloakAdminConnectionManager(64, 64, Duration.ofMinutes(5), Duration.ofSeconds(2));
+        keycloakAdminHttpClient = transportConfig.keycloakAdminHttpClient(connectionManager, Duration.ofSeconds(2), Duration.ofSeconds(10), Duration.ofSeconds(2), Duration.ofSeconds(30));
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(2)).build();
+        HttpKeycloakTokenClient keycloakTokenClient = new HttpKeycloakTokenClient(httpClient, objectMapper, keycloak.url(), Duration.ofSeconds(5));
+
+        keycloakAdminCredentials = new KeycloakAdminCredentials(keycloakTokenClient, REALM, "admin-cli", "admin-secret", "admin", "admin", Duration.ofSeconds(30), Duration.ofSeconds(5), true, meterRegistry);
+        keycloakAdminCredentials.start();
+        Keycloak keycloakAdminClient = new AuthProviderConfig().keycloakAdminClient(keycloak.url(), REALM, keycloakAdminCredentials, keycloakAdminHttpClient);
+
+        KeycloakConcurrencyLimiter adminApiLimiter = new KeycloakConcurrencyLimiter("admin-api", 32, Duration.ofSeconds(2), null, meterRegistry);
+        KeycloakConcurrencyLimiter tokenEndpointLimiter = new KeycloakConcurrencyLimiter("token-endpoint", 64, Duration.ofSeconds(2), null, meterRegistry);
+        KeycloakConcurrencyLimiter verificationEmailLimiter = new KeycloakConcurrencyLimiter("verification-email", 4, Duration.ofSeconds(2), null, meterRegistry);
+        KeycloakKnownUsersFilter knownUsersFilter = new KeycloakKnownUsersFilter(keycloakAdminClient, adminApiLimiter, REALM, false, 1, 0.01, 500, Duration.ofMinutes(15));
+        TieredCacheFactory tieredCacheFactory = new TieredCacheFactory(new NoRemoteCache(), objectMapper, Duration.ofSeconds(30));
+        KeycloakUserStatusResolver keycloakUserStatusResolver = new KeycloakUserStatusResolver(keycloakAdminClient, adminApiLimiter, REALM, 10000, Duration.ofMinutes(5), 10000, Duration.ofSeconds(30), knownUsersFilter, tieredCacheFactory);
+        verificationEmailDispatcher = new VerificationEmailDispatcher(keycloakAdminClient, adminApiLimiter, verificationEmailLimiter, REALM, 100_000, 4, 1000, Duration.ofSeconds(1), 5, Duration.ofSeconds(2), Duration.ofMinutes(2),
+                3, Duration.ofMinutes(15), 100_000, meterRegistry);
+        verificationEmailDispatcher.start();
+        AsyncKeycloakTasksService asyncKeycloakTasksService = new AsyncKeycloakTasksService(keycloakAdminClient, adminApiLimiter, REALM, keycloakUserStatusResolver, verificationEmailDispatcher);
+        // no encryption key, so the journal path is never touched
+        registrationWorkQueue = new RegistrationWorkQueue(asyncKeycloakTasksService, objectMapper, 100_000, 4, Duration.ofSeconds(10), 5, Duration.ofMillis(500), Duration.ofSeconds(30),
+                Path.of("target/jmh-registration-journal.log"), "", false, 0, 100_000, Duration.ofMinutes(5));
+        registrationWorkQueue.start();
+
+        KeycloakAuthProvider keycloakAuthProvider = new KeycloakAuthProvider(keycloakAdminClient, registrationWorkQueue, keycloakTokenClient, keycloakUserStatusResolver, tokenEndpointLimiter, null, verificationEmailDispatcher);
+        ReflectionTestUtils.setField(keycloakAuthProvider, "keycloakUrl", keycloak.url());
+        ReflectionTestUtils.setField(keycloakAuthProvider, "keycloakRealm", REALM);
+        ReflectionTestUtils.setField(keycloakAuthProvider, "keycloakClientId", "auth-service");
+        ReflectionTestUtils.setField(keycloakAuthProvider, "keycloakClientSecret", "auth-service-secret");
+        ReflectionTestUtils.setField(keycloakAuthProvider, "loginMode", loginMode);
+
+        RegistrationDeduplicator registrationDeduplicator = new RegistrationDeduplicator(keycloakAuthProvider, tieredCacheFactory, meterRegistry, 100_000, Duration.ofMinutes(10), Duration.ofHours(24));
+        authService = new AuthServiceImpl(keycloakAuthProvider, null, Validation.buildDefaultValidatorFactory().getValidator(), 500, meterRegistry, registrationDeduplicator);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        registrationWorkQueue.stop();
+        verificationEmailDispatcher.stop();
+        keycloakAdminCredentials.stop();
+        keycloakAdminHttpClient.close();
+        connectionManager.close();
+        keycloak.close();
+    }
+
+    @Benchmark
+    public LoginResponse login() {
+        return authService.login(VERIFIED_LOGIN);
+    }
+
+    @Benchmark
+    public Object loginWithWrongPassword() {
+        try {
+            return authService.login(WRONG_PASSWORD_LOGIN);
+        } catch (KeycloakTokenRejectedException e) {
+            // standard mode leaves the rejection to GlobalExceptionHandler
+            return e;
+        }
+    }
+
+    @Benchmark
+    public LoginResponse loginWithPendingVerification() {
+        return authService.login(PENDING_LOGIN);
+    }
+
+    @Benchmark
+    public RegistrationResult register() {
+        // a fresh address every time, otherwise the user status cache answers instead of Keycloak
+        String email = "new-" + registrationSequence.incrementAndGet() + "@betterbank.test";
+        return authService.register(new RegisterRequest("Bench", "User", email, "correct-password"), Optional.empty());
+    }
+}
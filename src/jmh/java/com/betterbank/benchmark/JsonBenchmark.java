@@ -0,0 +1,72 @@
+package com.betterbank.benchmark;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginResponse;
+import com.betterbank.dto.response.LoginState;
+import com.betterbank.providers.KeycloakTokenResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (De)serialization of the auth payloads with an ObjectMapper configured like Spring Boot's, tokens sized
+ * like real Keycloak ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private ObjectMapper objectMapper;
+    private LoginResponse loginResponse;
+    private String loginRequestJson;
+    private String registerRequestJson;
+    private String tokenResponseJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String accessToken = "eyJhbGciOiJSUzI1NiJ9." + "a".repeat(1200) + "." + "s".repeat(342);
+        String refreshToken = "eyJhbGciOiJIUzUxMiJ9." + "r".repeat(600) + "." + "s".repeat(86);
+        loginResponse = new LoginResponse(true, LoginState.LOGGED_IN, "Login successful", Optional.of("verified@betterbank.test"), Optional.of(accessToken), Optional.of(refreshToken));
+        loginRequestJson = objectMapper.writeValueAsString(new LoginRequest("verified@betterbank.test", "correct-password"));
+        registerRequestJson = objectMapper.writeValueAsString(new RegisterRequest("Bench", "User", "new-user@betterbank.test", "correct-password"));
+        tokenResponseJson = objectMapper.writeValueAsString(new KeycloakTokenResponse(accessToken, refreshToken, 300L, 1800L, "Bearer"));
+    }
+
+    @Benchmark
+    public String serializeLoginResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(loginResponse);
+    }
+
+    @Benchmark
+    public LoginRequest deserializeLoginRequest() throws JsonProcessingException {
+        return objectMapper.readValue(loginRequestJson, LoginRequest.class);
+    }
+
+    @Benchmark
+    public RegisterRequest deserializeRegisterRequest() throws JsonProcessingException {
+        return objectMapper.readValue(registerRequestJson, RegisterRequest.class);
+    }
+
+    @Benchmark
+    public KeycloakTokenResponse deserializeTokenResponse() throws JsonProcessingException {
+        return objectMapper.readValue(tokenResponseJson, KeycloakTokenResponse.class);
+    }
+}
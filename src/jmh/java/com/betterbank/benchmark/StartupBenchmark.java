@@ -0,0 +1,159 @@
+package com.betterbank.benchmark;
+
+import com.betterbank.support.KeycloakStubServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching the service's JVM until /actuator/health/readiness answers UP, for the plain JVM
+ * and the AOT and AOT + AppCDS launches. Needs the extracted application of the cds profile:
+ * {@code ./mvnw -Pcds package -DskipTests}, then {@code ./mvnw -Pjmh test-compile exec:exec -Djmh.args="Startup"}.
+ * <p>
+ * Keycloak is the in-process stub, Eureka neither registers nor fetches. The warm-up is off by default
+ * since it spends seconds on synthetic logins whatever the launch mode; {@code -p warmUp=true} measures
+ * the full path a new replica takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    public enum LaunchMode {
+        BASELINE, AOT, AOT_CDS
+    }
+
+    @Param({"BASELINE", "AOT", "AOT_CDS"})
+    public LaunchMode launchMode;
+
+    @Param({"target/cds"})
+    public String applicationDirectory;
+
+    @Param({"false"})
+    public boolean warmUp;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private KeycloakStubServer keycloak;
+    private Path applicationJar;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path directory = Path.of(applicationDirectory);
+        try (Stream<Path> files = Files.list(directory)) {
+            applicationJar = files.filter(file -> file.toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No extracted application in " + directory.toAbsolutePath() + ", build it with -Pcds"));
+        }
+        if (launchMode == LaunchMode.AOT_CDS && !Files.exists(directory.resolve("application.jsa"))) {
+            throw new IllegalStateException("No CDS archive in " + directory.toAbsolutePath() + ", build it with -Pcds");
+        }
+        keycloak = KeycloakStubServer.start(Duration.ZERO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keycloak.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopApplication() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            process = null;
+        }
+    }
+
+    @Benchmark
+    public int timeToReady() throws IOException, InterruptedException {
+        int port = freePort();
+        process = new ProcessBuilder(command(port))
+                .redirectErrorStream(true)
+                .redirectOutput(Path.of("target", "startup-benchmark-" + launchMode.name().toLowerCase() + ".log").toFile())
+                .start();
+
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() - deadline < 0) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue() + " before it was ready");
+            }
+            try {
+                HttpResponse<Void> response = httpClient.send(readiness, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return port;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Application not ready after " + STARTUP_TIMEOUT);
+    }
+
+    private List<String> command(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (launchMode == LaunchMode.AOT_CDS) {
+            command.add("-XX:SharedArchiveFile=" + Path.of(applicationDirectory, "application.jsa"));
+        }
+        if (launchMode != LaunchMode.BASELINE) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.add("-jar");
+        command.add(applicationJar.toString());
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--app.config.keycloak.url=" + keycloak.url(),
+                "--app.config.keycloak.realm=benchmark",
+                "--app.config.keycloak.client_id=auth-service",
+                "--app.config.keycloak.client-secret=auth-service-secret",
+                "--app.config.keycloak.admin.client-id=admin-cli",
+                "--app.config.keycloak.admin.client-secret=admin-secret",
+                "--app.config.keycloak.admin.username=admin",
+                "--app.config.keycloak.admin.password=admin",
+                "--eureka.client.register-with-eureka=false",
+                "--eureka.client.fetch-registry=false",
+                "--app.config.warm-up.enabled=" + warmUp));
+        return command;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
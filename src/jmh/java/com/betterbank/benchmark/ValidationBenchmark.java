@@ -0,0 +1,58 @@
+package com.betterbank.benchmark;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation of the request bodies, valid ones and ones that fail every constraint (the invalid
+ * path interpolates messages, which is the expensive part).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final LoginRequest VALID_LOGIN = new LoginRequest("verified@betterbank.test", "correct-password");
+    private static final LoginRequest INVALID_LOGIN = new LoginRequest("not-an-email", "");
+    private static final RegisterRequest VALID_REGISTER = new RegisterRequest("Bench", "User", "new-user@betterbank.test", "correct-password");
+    private static final RegisterRequest INVALID_REGISTER = new RegisterRequest("", "", "not-an-email", "short");
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Benchmark
+    public Set<ConstraintViolation<LoginRequest>> validLoginRequest() {
+        return validator.validate(VALID_LOGIN);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<LoginRequest>> invalidLoginRequest() {
+        return validator.validate(INVALID_LOGIN);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<RegisterRequest>> validRegisterRequest() {
+        return validator.validate(VALID_REGISTER);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<RegisterRequest>> invalidRegisterRequest() {
+        return validator.validate(INVALID_REGISTER);
+    }
+}
@@ -0,0 +1,174 @@
+package com.betterbank.loadtest;
+
+import com.betterbank.BetterBankAuthServiceApplication;
+import com.betterbank.support.KeycloakStubServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots the service against {@link KeycloakStubServer} and drives POST /api/auth/login at a fixed rate,
+ * then prints throughput and latency percentiles per LoginState.
+ * <p>
+ * The load is open loop: every request is sent at its scheduled time whether or not the earlier ones have
+ * finished, and latency is measured from that scheduled time, so a stalled service shows up as latency
+ * instead of as a lower request rate. Settings are the {@code loadtest.*} system properties read in
+ * {@link #main}; {@code app.*} and {@code spring.*} system properties reach the service as usual, e.g.
+ * {@code -Dapp.config.keycloak.login.mode=optimistic}.
+ */
+public class LoginStormLoadTest {
+    private static final String REALM = "loadtest";
+
+    private final HttpClient httpClient;
+    private final URI loginUri;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int users;
+    private final double wrongPasswordRatio;
+    private final double pendingVerificationRatio;
+    private final int maxInFlight;
+
+    LoginStormLoadTest(HttpClient httpClient, URI loginUri, int users, double wrongPasswordRatio, double pendingVerificationRatio, int maxInFlight) {
+        this.httpClient = httpClient;
+        this.loginUri = loginUri;
+        this.users = users;
+        this.wrongPasswordRatio = wrongPasswordRatio;
+        this.pendingVerificationRatio = pendingVerificationRatio;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int requestsPerSecond = Integer.getInteger("loadtest.rps", 200);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+        int users = Integer.getInteger("loadtest.users", 1000);
+        double wrongPasswordRatio = Double.parseDouble(System.getProperty("loadtest.wrong-password-ratio", "0.05"));
+        double pendingVerificationRatio = Double.parseDouble(System.getProperty("loadtest.pending-verification-ratio", "0.05"));
+        int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 5000);
+        Duration keycloakLatency = Duration.parse(System.getProperty("loadtest.keycloak.latency", "PT0.02S"));
+        double keycloakErrorRate = Double.parseDouble(System.getProperty("loadtest.keycloak.error-rate", "0"));
+
+        try (KeycloakStubServer keycloak = KeycloakStubServer.start(keycloakLatency)) {
+            keycloak.setErrorRate(keycloakErrorRate);
+            // default properties only, anything given on the command line wins
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(BetterBankAuthServiceApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "app.config.keycloak.url=" + keycloak.url(),
+                            "app.config.keycloak.realm=" + REALM,
+                            "app.config.keycloak.client_id=auth-service",
+                            "app.config.keycloak.client-secret=loadtest-secret",
+                            "app.config.keycloak.admin.client-id=admin-cli",
+                            "app.config.keycloak.admin.client-secret=loadtest-secret",
+                            "app.config.keycloak.admin.username=admin",
+                            "app.config.keycloak.admin.password=admin",
+                            "eureka.client.enabled=false",
+                            // every simulated user comes from 127.0.0.1, the storm would only measure the 429 path
+                            "app.config.auth.rate-limit.enabled=false",
+                            "logging.level.com.betterbank=WARN")
+                    .run(args);
+            try {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                HttpClient httpClient = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofSeconds(5))
+                        .build();
+                LoginStormLoadTest loadTest = new LoginStormLoadTest(httpClient, URI.create("http://127.0.0.1:" + port + "/api/auth/login"),
+                        users, wrongPasswordRatio, pendingVerificationRatio, maxInFlight);
+
+                System.out.printf("Warming up for %s at %d req/s%n", warmup, requestsPerSecond);
+                loadTest.run(requestsPerSecond, warmup, new OutcomeRecorder());
+
+                System.out.printf("Measuring for %s at %d req/s (Keycloak latency %s, error rate %.2f)%n", duration, requestsPerSecond, keycloakLatency, keycloakErrorRate);
+                OutcomeRecorder recorder = new OutcomeRecorder();
+                long started = System.nanoTime();
+                loadTest.run(requestsPerSecond, duration, recorder);
+                recorder.print(System.out, Duration.ofNanos(System.nanoTime() - started));
+            } finally {
+                context.close();
+            }
+        }
+        // the JDK HttpClient's selector thread would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    void run(int requestsPerSecond, Duration duration, OutcomeRecorder recorder) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        for (long scheduled = start; scheduled < end; scheduled += intervalNanos) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                // the service is so far behind that the driver would run out of memory waiting for it
+                recorder.recordDropped();
+                continue;
+            }
+            long intendedStart = scheduled;
+            httpClient.sendAsync(nextRequest(), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        inFlight.release();
+                        recorder.record(outcome(response, error), System.nanoTime() - intendedStart);
+                    });
+        }
+
+        // wait for the stragglers
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+
+    private HttpRequest nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(users);
+        double roll = random.nextDouble();
+        String email;
+        String password = "correct-password";
+        if (roll < wrongPasswordRatio) {
+            email = "user-" + user + "@loadtest.betterbank";
+            password = KeycloakStubServer.WRONG_PASSWORD;
+        } else if (roll < wrongPasswordRatio + pendingVerificationRatio) {
+            email = "pending-" + user + "@loadtest.betterbank";
+        } else {
+            email = "user-" + user + "@loadtest.betterbank";
+        }
+        String body = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+        return HttpRequest.newBuilder(loginUri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private String outcome(HttpResponse<String> response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return "CLIENT_" + cause.getClass().getSimpleName();
+        }
+        // LoginResponse bodies carry the LoginState, GlobalExceptionHandler's LoginError bodies don't
+        try {
+            JsonNode loginState = objectMapper.readTree(response.body()).get("loginState");
+            if (loginState != null && loginState.isTextual()) {
+                return loginState.asText();
+            }
+        } catch (IOException e) {
+            // not JSON, fall back to the status code
+        }
+        return "HTTP_" + response.statusCode();
+    }
+}
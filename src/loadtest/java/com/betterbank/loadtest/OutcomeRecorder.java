@@ -0,0 +1,71 @@
+package com.betterbank.loadtest;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of completed requests, kept per outcome. Every sample is stored, which is fine for the few
+ * million requests a local run produces and gives exact percentiles.
+ */
+class OutcomeRecorder {
+    private final Map<String, Samples> samplesByOutcome = new ConcurrentSkipListMap<>();
+    private final Samples allSamples = new Samples();
+    private final LongAdder dropped = new LongAdder();
+
+    void record(String outcome, long latencyNanos) {
+        allSamples.add(latencyNanos);
+        samplesByOutcome.computeIfAbsent(outcome, key -> new Samples()).add(latencyNanos);
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    void print(PrintStream out, Duration elapsed) {
+        long[] all = allSamples.sorted();
+        out.printf("%nCompleted %d requests in %.1fs: %.1f req/s, %d dropped by the in-flight cap%n",
+                all.length, elapsed.toMillis() / 1000.0, all.length * 1000.0 / Math.max(1, elapsed.toMillis()), dropped.sum());
+        out.printf("%-32s %10s %8s %10s %10s %10s%n", "outcome", "count", "share", "p50 ms", "p99 ms", "max ms");
+        printRow(out, "all", all, all.length);
+        samplesByOutcome.forEach((outcome, samples) -> printRow(out, outcome, samples.sorted(), all.length));
+    }
+
+    private static void printRow(PrintStream out, String outcome, long[] sorted, int total) {
+        if (sorted.length == 0) {
+            return;
+        }
+        out.printf("%-32s %10d %7.1f%% %10.1f %10.1f %10.1f%n", outcome, sorted.length, sorted.length * 100.0 / total,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)), millis(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.betterbank.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Embedded stand-in for the shared tier, for tests and local runs. Several {@link TieredCache}s on one
+ * instance behave like replicas sharing one remote cache. Expired entries are dropped when read.
+ */
+public class InMemoryRemoteCache implements RemoteCache {
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongSupplier nanoClock;
+
+    public InMemoryRemoteCache() {
+        this(System::nanoTime);
+    }
+
+    InMemoryRemoteCache(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (nanoClock.getAsLong() - entry.expiresAtNanos() >= 0) {
+            entries.remove(key, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.value());
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        entries.put(key, new Entry(value, nanoClock.getAsLong() + ttl.toNanos()));
+    }
+
+    @Override
+    public void delete(String key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void publishInvalidation(String message) {
+        listeners.forEach(listener -> listener.invalidated(message));
+    }
+
+    @Override
+    public void addInvalidationListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private record Entry(String value, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.betterbank.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * For a single replica: every lookup misses and invalidations only reach the local near-caches.
+ */
+public class NoRemoteCache implements RemoteCache {
+    private final InMemoryRemoteCache localBroadcast = new InMemoryRemoteCache();
+
+    @Override
+    public Optional<String> get(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+    }
+
+    @Override
+    public void delete(String key) {
+    }
+
+    @Override
+    public void publishInvalidation(String message) {
+        localBroadcast.publishInvalidation(message);
+    }
+
+    @Override
+    public void addInvalidationListener(InvalidationListener listener) {
+        localBroadcast.addInvalidationListener(listener);
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+}
@@ -0,0 +1,195 @@
+package com.betterbank.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link RemoteCache} on Redis. Commands go over a small fixed set of connections, invalidations over
+ * Redis pub/sub on a dedicated connection that reconnects and resubscribes on its own.
+ * <p>
+ * A connection that failed is not retried before {@code retryInterval} has passed, so an unreachable
+ * Redis costs callers a fast {@link RemoteCacheException} instead of a connect timeout per lookup.
+ */
+public class RedisRemoteCache implements RemoteCache, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisRemoteCache.class);
+
+    private final String host;
+    private final int port;
+    private final String password;
+    private final int database;
+    private final Duration timeout;
+    private final Duration retryInterval;
+    private final String keyPrefix;
+    private final String channel;
+    private final Slot[] slots;
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread subscriber;
+
+    private volatile boolean running = true;
+    private volatile RespConnection subscriberConnection;
+
+    public RedisRemoteCache(String host, int port, String password, int database, int poolSize, Duration timeout, Duration retryInterval, String keyPrefix) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.database = database;
+        this.timeout = timeout;
+        this.retryInterval = retryInterval;
+        this.keyPrefix = keyPrefix;
+        this.channel = keyPrefix + "invalidations";
+        this.slots = new Slot[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            slots[i] = new Slot();
+        }
+        this.subscriber = new Thread(this::runSubscriber, "Auth-Service-Cache-Invalidations");
+        this.subscriber.setDaemon(true);
+        this.subscriber.start();
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        return Optional.ofNullable((String) call("GET", keyPrefix + key));
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        call("SET", keyPrefix + key, value, "PX", Long.toString(ttl.toMillis()));
+    }
+
+    @Override
+    public void delete(String key) {
+        call("DEL", keyPrefix + key);
+    }
+
+    @Override
+    public void publishInvalidation(String message) {
+        call("PUBLISH", channel, message);
+    }
+
+    @Override
+    public void addInvalidationListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        subscriber.interrupt();
+        closeQuietly(subscriberConnection);
+        for (Slot slot : slots) {
+            slot.lock.lock();
+            try {
+                closeQuietly(slot.connection);
+                slot.connection = null;
+            } finally {
+                slot.lock.unlock();
+            }
+        }
+    }
+
+    private Object call(String... command) {
+        Slot slot = slots[ThreadLocalRandom.current().nextInt(slots.length)];
+        // a lock instead of synchronized, virtual threads must not be pinned while waiting on Redis
+        slot.lock.lock();
+        try {
+            if (slot.connection == null) {
+                if (System.nanoTime() - slot.retryAtNanos < 0) {
+                    throw new RemoteCacheException("Redis at " + host + ":" + port + " is unavailable");
+                }
+                slot.connection = connect(timeout);
+            }
+            return slot.connection.call(command);
+        } catch (IOException e) {
+            closeQuietly(slot.connection);
+            slot.connection = null;
+            slot.retryAtNanos = System.nanoTime() + retryInterval.toNanos();
+            LOGGER.warn("Redis at {}:{} failed, retrying in {}: {}", host, port, retryInterval, e.getMessage());
+            throw new RemoteCacheException("Redis at " + host + ":" + port + " failed", e);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    private RespConnection connect(Duration readTimeout) throws IOException {
+        RespConnection connection = new RespConnection(host, port, timeout, readTimeout);
+        try {
+            if (!password.isEmpty()) {
+                connection.call("AUTH", password);
+            }
+            if (database != 0) {
+                connection.call("SELECT", Integer.toString(database));
+            }
+            return connection;
+        } catch (RemoteCacheException e) {
+            closeQuietly(connection);
+            // e.g. a wrong password, which retrying right away won't fix either
+            throw new IOException("Redis rejected the connection: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+    }
+
+    private void runSubscriber() {
+        while (running) {
+            try (RespConnection connection = connect(Duration.ZERO)) {
+                subscriberConnection = connection;
+                connection.send("SUBSCRIBE", channel);
+                connection.read(); // subscribe confirmation
+                LOGGER.info("Subscribed to cache invalidations on {}", channel);
+                // whatever was cached before this point may have missed an invalidation
+                listeners.forEach(InvalidationListener::invalidationsMissed);
+                while (running) {
+                    if (connection.read() instanceof List<?> push && push.size() == 3 && "message".equals(push.get(0))) {
+                        dispatch((String) push.get(2));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("Cache invalidation subscription to Redis at {}:{} lost, retrying in {}: {}", host, port, retryInterval, e.getMessage());
+                try {
+                    Thread.sleep(retryInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String message) {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.invalidated(message);
+            } catch (RuntimeException e) {
+                LOGGER.error("Cache invalidation listener failed for {}: {}", message, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void closeQuietly(RespConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // nothing left to clean up
+        }
+    }
+
+    private static final class Slot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private RespConnection connection;
+        private long retryAtNanos;
+    }
+}
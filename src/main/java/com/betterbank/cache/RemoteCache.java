@@ -0,0 +1,42 @@
+package com.betterbank.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Cache tier shared by all replicas, plus a broadcast channel for invalidations so that replicas can drop
+ * their near-cache copies. Implementations fail with {@link RemoteCacheException}; callers are expected to
+ * treat a failure as a miss, the remote tier is an optimization and never the source of truth.
+ */
+public interface RemoteCache {
+
+    Optional<String> get(String key);
+
+    void put(String key, String value, Duration ttl);
+
+    void delete(String key);
+
+    /**
+     * Sends {@code message} to the invalidation listeners of every replica, this one included.
+     */
+    void publishInvalidation(String message);
+
+    void addInvalidationListener(InvalidationListener listener);
+
+    /**
+     * Whether other replicas see this tier. When none do, every invalidation reaches every near-cache and
+     * near entries don't need to expire early.
+     */
+    default boolean isShared() {
+        return true;
+    }
+
+    interface InvalidationListener {
+        void invalidated(String message);
+
+        /**
+         * Invalidations may have been lost, e.g. while the connection to the remote tier was down.
+         */
+        void invalidationsMissed();
+    }
+}
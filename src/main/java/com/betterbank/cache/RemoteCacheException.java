@@ -0,0 +1,11 @@
+package com.betterbank.cache;
+
+public class RemoteCacheException extends RuntimeException {
+    public RemoteCacheException(String message) {
+        super(message);
+    }
+
+    public RemoteCacheException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
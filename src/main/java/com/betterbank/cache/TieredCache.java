@@ -0,0 +1,134 @@
+package com.betterbank.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * An {@link ExpiringCache} per replica in front of the shared {@link RemoteCache}. Reads go near, then
+ * remote; writes go to both. Invalidations delete the remote entry and are broadcast so every replica
+ * drops its near copy. A broadcast can be lost, so near entries also expire on their own, after
+ * {@code nearTtl}, which bounds how stale a replica can get. Without a shared tier there is no other replica
+ * to go stale against, so near entries live for the full {@code ttl}.
+ * <p>
+ * A failing remote tier is treated as a miss: lookups fall through to the caller's source of truth.
+ */
+public class TieredCache<V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TieredCache.class);
+
+    private final String name;
+    private final ExpiringCache<String, V> nearCache;
+    private final RemoteCache remoteCache;
+    private final Duration ttl;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader objectReader;
+    private final List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    public TieredCache(String name, int nearMaxSize, Duration nearTtl, Duration ttl, RemoteCache remoteCache, ObjectMapper objectMapper, Class<V> valueType) {
+        this(name, nearMaxSize, nearTtl, ttl, remoteCache, objectMapper, valueType, System::nanoTime);
+    }
+
+    TieredCache(String name, int nearMaxSize, Duration nearTtl, Duration ttl, RemoteCache remoteCache, ObjectMapper objectMapper, Class<V> valueType,
+                LongSupplier nanoClock) {
+        this.name = name;
+        this.nearCache = new ExpiringCache<>(nearMaxSize, remoteCache.isShared() && nearTtl.compareTo(ttl) < 0 ? nearTtl : ttl, nanoClock);
+        this.remoteCache = remoteCache;
+        this.ttl = ttl;
+        this.objectMapper = objectMapper;
+        // replicas of different versions share the remote tier during a rollout
+        this.objectReader = objectMapper.readerFor(valueType).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        remoteCache.addInvalidationListener(new RemoteCache.InvalidationListener() {
+            @Override
+            public void invalidated(String message) {
+                handleInvalidation(message);
+            }
+
+            @Override
+            public void invalidationsMissed() {
+                nearCache.clear();
+            }
+        });
+    }
+
+    public Optional<V> get(String key) {
+        Optional<V> near = nearCache.get(key);
+        if (near.isPresent()) {
+            return near;
+        }
+        try {
+            Optional<V> remote = remoteCache.get(remoteKey(key)).map(this::decode);
+            remote.ifPresent(value -> nearCache.put(key, value));
+            return remote;
+        } catch (RuntimeException e) {
+            LOGGER.debug("Remote lookup in cache {} failed for {}: {}", name, key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, V value) {
+        nearCache.put(key, value);
+        try {
+            remoteCache.put(remoteKey(key), encode(value), ttl);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Remote write to cache {} failed for {}: {}", name, key, e.getMessage());
+        }
+    }
+
+    public void invalidate(String key) {
+        nearCache.invalidate(key);
+        try {
+            remoteCache.delete(remoteKey(key));
+            remoteCache.publishInvalidation(remoteKey(key));
+        } catch (RuntimeException e) {
+            // the other replicas keep their copy until it expires
+            LOGGER.warn("Remote invalidation in cache {} failed for {}: {}", name, key, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs {@code listener} with the key of every invalidation of this cache, whichever replica sent it.
+     */
+    public void onInvalidation(Consumer<String> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    private void handleInvalidation(String message) {
+        if (!message.startsWith(name + ":")) {
+            return;
+        }
+        String key = message.substring(name.length() + 1);
+        nearCache.invalidate(key);
+        invalidationListeners.forEach(listener -> listener.accept(key));
+    }
+
+    private String remoteKey(String key) {
+        return name + ":" + key;
+    }
+
+    private String encode(V value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize value of cache " + name, e);
+        }
+    }
+
+    private V decode(String value) {
+        try {
+            return objectReader.readValue(value);
+        } catch (JsonProcessingException e) {
+            // written by an incompatible version of this service, treat it as a miss
+            throw new RemoteCacheException("Cannot read value of cache " + name, e);
+        }
+    }
+}
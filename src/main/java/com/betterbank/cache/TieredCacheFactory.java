@@ -0,0 +1,27 @@
+package com.betterbank.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Duration;
+
+/**
+ * Creates {@link TieredCache}s on the configured {@link RemoteCache}, with the same near-cache ttl for all.
+ */
+public class TieredCacheFactory {
+    private final RemoteCache remoteCache;
+    private final ObjectMapper objectMapper;
+    private final Duration nearTtl;
+
+    public TieredCacheFactory(RemoteCache remoteCache, ObjectMapper objectMapper, Duration nearTtl) {
+        this.remoteCache = remoteCache;
+        this.objectMapper = objectMapper;
+        this.nearTtl = nearTtl;
+    }
+
+    /**
+     * @param name unique per cache, it namespaces the remote keys and invalidations
+     */
+    public <V> TieredCache<V> create(String name, int nearMaxSize, Duration ttl, Class<V> valueType) {
+        return new TieredCache<>(name, nearMaxSize, nearTtl, ttl, remoteCache, objectMapper, valueType);
+    }
+}
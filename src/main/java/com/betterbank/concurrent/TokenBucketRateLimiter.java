@@ -0,0 +1,88 @@
+package com.betterbank.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, {@code capacity} tokens each, refilled completely over {@code refillPeriod}.
+ * <p>
+ * A bucket is a single {@link AtomicLong}: the time at which it will be full again (the GCRA form of a
+ * token bucket), so taking a token is one CAS and no lock is involved. A bucket whose full-again time has
+ * passed holds no information, which is what keeps memory bounded: once {@code maxKeys} buckets exist,
+ * full ones are swept out. If every bucket is still in use after a sweep, keys without a bucket share one
+ * overflow bucket of the same size. Letting them through instead would let anyone who floods the table with
+ * fresh keys switch limiting off for every key not tracked yet; with the overflow bucket that flood only
+ * competes with itself and with the other untracked keys. Sweeps run at most once per token interval, so a
+ * flood of new keys can't turn every request into a full scan.
+ */
+public class TokenBucketRateLimiter {
+    private final long tokenIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweepAt;
+    private final AtomicLong overflow;
+
+    public TokenBucketRateLimiter(int capacity, Duration refillPeriod, int maxKeys) {
+        this(capacity, refillPeriod, maxKeys, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(int capacity, Duration refillPeriod, int maxKeys, LongSupplier nanoClock) {
+        this.tokenIntervalNanos = refillPeriod.toNanos() / capacity;
+        this.burstNanos = tokenIntervalNanos * capacity;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+        this.lastSweepAt = new AtomicLong(nanoClock.getAsLong() - tokenIntervalNanos);
+        this.overflow = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * @return zero when a token was taken, otherwise the nanoseconds until the bucket has one again
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = fullAt.get(key);
+        if (bucket == null) {
+            if (fullAt.size() >= maxKeys && !sweep(now)) {
+                return take(overflow, now);
+            }
+            bucket = fullAt.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        return take(bucket, now);
+    }
+
+    public int size() {
+        return fullAt.size();
+    }
+
+    private long take(AtomicLong bucket, long now) {
+        while (true) {
+            long current = bucket.get();
+            long next = Math.max(current, now) + tokenIntervalNanos;
+            if (next - now > burstNanos) {
+                return next - now - burstNanos;
+            }
+            if (bucket.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return whether there is room for another bucket afterwards
+     */
+    private boolean sweep(long now) {
+        // one sweeper per token interval, everyone else decides on the current size. No bucket sheds more than
+        // a token in between. A token taken from a bucket while it is being removed is forgotten, which errs
+        // on the side of the caller
+        long last = lastSweepAt.get();
+        if (now - last >= tokenIntervalNanos && lastSweepAt.compareAndSet(last, now)) {
+            fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+        return fullAt.size() < maxKeys;
+    }
+}
@@ -1,24 +1,52 @@
 package com.betterbank.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.config.async.core-pool-size:5}") int corePoolSize,
+                                 @Value("${app.config.async.max-pool-size:10}") int maxPoolSize,
+                                 @Value("${app.config.async.queue-capacity:50}") int queueCapacity) {
+        // spring.threads.virtual.enabled=true on Java 21+ also switches Tomcat's request threads
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Auth-Service-Async-Keycloak-Tasks-");
+            executor.setVirtualThreads(true); // one virtual thread per task, Keycloak load is capped by KeycloakConcurrencyLimiter
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);    // minimum number of threads to keep alive
-        executor.setMaxPoolSize(10);    // maximum number of threads that can be created
-        executor.setQueueCapacity(50);  // queue capacity for tasks
+        executor.setCorePoolSize(corePoolSize);    // minimum number of threads to keep alive
+        executor.setMaxPoolSize(maxPoolSize);    // maximum number of threads that can be created
+        executor.setQueueCapacity(queueCapacity);  // queue capacity for tasks
         executor.setThreadNamePrefix("Auth-Service-Async-Keycloak-Tasks");
+        // count rejections before ThreadPoolTaskExecutor turns them into TaskRejectedException
+        Counter rejected = Counter.builder("auth.async.rejected").description("Tasks rejected by the async executor").register(meterRegistry);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, pool);
+        });
         executor.initialize();
 
+        Gauge.builder("auth.async.queue.size", executor, ThreadPoolTaskExecutor::getQueueSize).description("Tasks waiting for an async executor thread").register(meterRegistry);
+        Gauge.builder("auth.async.active", executor, ThreadPoolTaskExecutor::getActiveCount).description("Async executor threads running a task").register(meterRegistry);
+
         return executor;
     }
 }
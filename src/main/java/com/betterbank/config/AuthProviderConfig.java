@@ -1,17 +1,49 @@
 package com.betterbank.config;
 
-import com.betterbank.providers.AsyncKeycloakTasksService;
 import com.betterbank.providers.AuthProvider;
+import com.betterbank.providers.FeignKeycloakTokenClient;
+import com.betterbank.providers.HttpKeycloakTokenClient;
+import com.betterbank.providers.KeycloakAdminBearerFilter;
+import com.betterbank.providers.KeycloakAdminCredentials;
 import com.betterbank.providers.KeycloakAuthProvider;
+import com.betterbank.providers.KeycloakBulkImporter;
+import com.betterbank.providers.KeycloakConcurrencyLimiter;
+import com.betterbank.providers.KeycloakLoginMode;
+import com.betterbank.providers.KeycloakTokenClient;
 import com.betterbank.providers.KeycloakTokenFeignClient;
+import com.betterbank.providers.KeycloakUserStatusResolver;
+import com.betterbank.providers.LocalAuthProvider;
+import com.betterbank.providers.LocalTokenIssuer;
+import com.betterbank.providers.LocalUserStore;
+import com.betterbank.providers.ReactiveAuthProvider;
+import com.betterbank.providers.ReactiveKeycloakAuthProvider;
+import com.betterbank.providers.RegistrationWorkQueue;
+import com.betterbank.providers.VerificationEmailDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.client.Client;
 import org.keycloak.admin.client.Keycloak;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
+@ImportRuntimeHints(KeycloakRuntimeHints.class)
 public class AuthProviderConfig {
+    private static final String MANAGED_ADMIN_TOKEN = "managed-by-keycloak-admin-credentials";
 
     public AuthProviderConfig() {
 
@@ -19,15 +51,79 @@ public class AuthProviderConfig {
 
     // Your existing KeycloakAdminClient bean (assuming it exists or you make it one)
     @Bean
-    public Keycloak keycloakAdminClient(@Value("${app.config.keycloak.url}") String keycloakUrl, @Value("${app.config.keycloak.realm}") String keycloakRealm, @Value("${app.config.keycloak.admin.client-id}") String keycloakAdminClientId, @Value("${app.config.keycloak.admin.client-secret}") String keycloakAdminClientSecret, @Value("${app.config.keycloak.admin.username}") String keycloakAdminUsername, @Value("${app.config.keycloak.admin.password}") String keycloakAdminPassword) {
+    @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+    public Keycloak keycloakAdminClient(@Value("${app.config.keycloak.url}") String keycloakUrl, @Value("${app.config.keycloak.realm}") String keycloakRealm, KeycloakAdminCredentials keycloakAdminCredentials, Client keycloakAdminHttpClient) {
+
+        // a fixed authorization keeps the builder from creating its own TokenManager, which would fetch tokens on
+        // the calling thread; the filter registered after its bearer filter replaces it with the managed token
+        keycloakAdminHttpClient.register(new KeycloakAdminBearerFilter(keycloakAdminCredentials), Priorities.USER + 100);
+        // the pooled transport from KeycloakAdminTransportConfig replaces the builder's default RESTEasy client
+        return org.keycloak.admin.client.KeycloakBuilder.builder().resteasyClient(keycloakAdminHttpClient).serverUrl(keycloakUrl).realm(keycloakRealm).authorization(MANAGED_ADMIN_TOKEN).build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+    @ConditionalOnProperty(name = "app.config.keycloak.token-client.type", havingValue = "feign", matchIfMissing = true)
+    public KeycloakTokenClient feignKeycloakTokenClient(KeycloakTokenFeignClient keycloakTokenFeignClient) {
+        return new FeignKeycloakTokenClient(keycloakTokenFeignClient);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+    @ConditionalOnProperty(name = "app.config.keycloak.token-client.type", havingValue = "http")
+    public KeycloakTokenClient httpKeycloakTokenClient(ObjectMapper objectMapper,
+                                                       @Value("${app.config.keycloak.url}") String keycloakUrl,
+                                                       @Value("${app.config.keycloak.token-client.connect-timeout:PT2S}") Duration connectTimeout,
+                                                       @Value("${app.config.keycloak.token-client.request-timeout:PT5S}") Duration requestTimeout,
+                                                       @Value("${app.config.keycloak.token-client.http-version:HTTP_2}") HttpClient.Version httpVersion) {
+        // keep-alive and pool size are JVM-wide settings of the JDK client, see application.properties
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(connectTimeout)
+                .build();
+        return new HttpKeycloakTokenClient(httpClient, objectMapper, keycloakUrl, requestTimeout);
+    }
 
-        return org.keycloak.admin.client.KeycloakBuilder.builder().serverUrl(keycloakUrl).realm(keycloakRealm).clientId(keycloakAdminClientId).clientSecret(keycloakAdminClientSecret).username(keycloakAdminUsername).password(keycloakAdminPassword).build();
+    @Bean
+    @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+    public AuthProvider keycloakAuthProvider(Keycloak keycloakAdminClient, RegistrationWorkQueue registrationWorkQueue, KeycloakTokenClient keycloakTokenClient, KeycloakUserStatusResolver keycloakUserStatusResolver, @Qualifier("keycloakTokenEndpointLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter, KeycloakBulkImporter keycloakBulkImporter, VerificationEmailDispatcher verificationEmailDispatcher) {
+        return new KeycloakAuthProvider(keycloakAdminClient, registrationWorkQueue, keycloakTokenClient, keycloakUserStatusResolver, keycloakConcurrencyLimiter, keycloakBulkImporter, verificationEmailDispatcher);
     }
 
     @Bean
     @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
-    public AuthProvider keycloakAuthProvider(Keycloak keycloakAdminClient, AsyncKeycloakTasksService asyncKeycloakTasksService, KeycloakTokenFeignClient keycloakTokenFeignClient) {
-        return new KeycloakAuthProvider(keycloakAdminClient, asyncKeycloakTasksService, keycloakTokenFeignClient);
+    @ConditionalOnProperty(name = "app.config.auth.reactive.enabled", havingValue = "true")
+    public ReactiveAuthProvider reactiveKeycloakAuthProvider(KeycloakTokenClient keycloakTokenClient, KeycloakUserStatusResolver keycloakUserStatusResolver, @Qualifier("keycloakTokenEndpointLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter, RegistrationWorkQueue registrationWorkQueue,
+                                                             @Value("${app.config.keycloak.realm}") String keycloakRealm, @Value("${app.config.keycloak.client_id}") String keycloakClientId, @Value("${app.config.keycloak.client-secret}") String keycloakClientSecret,
+                                                             @Value("${app.config.keycloak.login.mode:standard}") KeycloakLoginMode loginMode,
+                                                             @Value("${app.config.logging.sample.login-success:100}") int loginSuccessLogOneIn,
+                                                             @Value("${app.config.logging.sample.registration-queued:10}") int registrationQueuedLogOneIn) {
+        return new ReactiveKeycloakAuthProvider(keycloakTokenClient, keycloakUserStatusResolver, keycloakConcurrencyLimiter, registrationWorkQueue, keycloakRealm, keycloakClientId, keycloakClientSecret, loginMode,
+                loginSuccessLogOneIn, registrationQueuedLogOneIn);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "local")
+    public PasswordEncoder localPasswordEncoder(@Value("${app.config.auth.local.password.kdf:pbkdf2}") String kdf,
+                                                @Value("${app.config.auth.local.password.pbkdf2.iterations:310000}") int pbkdf2Iterations,
+                                                @Value("${app.config.auth.local.password.bcrypt.strength:10}") int bcryptStrength,
+                                                @Value("${app.config.auth.local.password.argon2.memory-kib:19456}") int argon2MemoryKib,
+                                                @Value("${app.config.auth.local.password.argon2.iterations:2}") int argon2Iterations) {
+        // hashes carry the id of their KDF, so switching kdf keeps existing users working, they are rehashed on their next login
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "pbkdf2", new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256),
+                "bcrypt", new BCryptPasswordEncoder(bcryptStrength),
+                "argon2", new Argon2PasswordEncoder(16, 32, 1, argon2MemoryKib, argon2Iterations),
+                "scrypt", SCryptPasswordEncoder.defaultsForSpringSecurity_v5_8());
+        return new DelegatingPasswordEncoder(kdf, encoders);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "local")
+    public LocalAuthProvider localAuthProvider(LocalUserStore localUserStore, LocalTokenIssuer localTokenIssuer, PasswordEncoder localPasswordEncoder,
+                                          @Value("${app.config.auth.local.email-verification.required:false}") boolean emailVerificationRequired,
+                                          @Value("${app.config.logging.sample.login-success:100}") int loginSuccessLogOneIn) {
+        return new LocalAuthProvider(localUserStore, localTokenIssuer, localPasswordEncoder, emailVerificationRequired, loginSuccessLogOneIn);
     }
 
     // Create a new bean if provider changes to lets say AWS Cognito
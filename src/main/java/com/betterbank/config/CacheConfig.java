@@ -0,0 +1,53 @@
+package com.betterbank.config;
+
+import com.betterbank.cache.InMemoryRemoteCache;
+import com.betterbank.cache.NoRemoteCache;
+import com.betterbank.cache.RedisRemoteCache;
+import com.betterbank.cache.RemoteCache;
+import com.betterbank.cache.TieredCacheFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Shared cache tier for Keycloak lookups. Without one every replica caches on its own and only learns
+ * about users registered through another replica once its entries expire.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.config.cache.remote.type", havingValue = "none", matchIfMissing = true)
+    public RemoteCache noRemoteCache() {
+        return new NoRemoteCache();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.config.cache.remote.type", havingValue = "in-memory")
+    public RemoteCache inMemoryRemoteCache() {
+        return new InMemoryRemoteCache();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.config.cache.remote.type", havingValue = "redis")
+    public RemoteCache redisRemoteCache(@Value("${app.config.cache.remote.redis.host:localhost}") String host,
+                                        @Value("${app.config.cache.remote.redis.port:6379}") int port,
+                                        @Value("${app.config.cache.remote.redis.password:}") String password,
+                                        @Value("${app.config.cache.remote.redis.database:0}") int database,
+                                        @Value("${app.config.cache.remote.redis.pool-size:8}") int poolSize,
+                                        @Value("${app.config.cache.remote.redis.timeout:PT0.2S}") Duration timeout,
+                                        @Value("${app.config.cache.remote.redis.retry-interval:PT1S}") Duration retryInterval,
+                                        @Value("${app.config.cache.remote.key-prefix:auth-service:}") String keyPrefix) {
+        return new RedisRemoteCache(host, port, password, database, poolSize, timeout, retryInterval, keyPrefix);
+    }
+
+    @Bean
+    public TieredCacheFactory tieredCacheFactory(RemoteCache remoteCache, ObjectMapper objectMapper,
+                                                 @Value("${app.config.cache.near-ttl:PT30S}") Duration nearTtl) {
+        return new TieredCacheFactory(remoteCache, objectMapper, nearTtl);
+    }
+}
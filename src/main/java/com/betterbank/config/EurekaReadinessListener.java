@@ -0,0 +1,39 @@
+package com.betterbank.config;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the Eureka status in line with the readiness state. The instance registers as
+ * {@code eureka.instance.initial-status} (OUT_OF_SERVICE) and only goes UP once Spring Boot reports it
+ * ready, i.e. after {@link com.betterbank.service.StartupWarmUp}, so clients don't route to a cold instance.
+ */
+@Component
+public class EurekaReadinessListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EurekaReadinessListener.class);
+
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+    public EurekaReadinessListener(ObjectProvider<ApplicationInfoManager> applicationInfoManager) {
+        this.applicationInfoManager = applicationInfoManager;
+    }
+
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        InstanceInfo.InstanceStatus status = event.getState() == ReadinessState.ACCEPTING_TRAFFIC
+                ? InstanceInfo.InstanceStatus.UP
+                : InstanceInfo.InstanceStatus.OUT_OF_SERVICE;
+        // absent when the Eureka client is disabled
+        applicationInfoManager.ifAvailable(manager -> {
+            LOGGER.info("Readiness is {}, setting Eureka status to {}", event.getState(), status);
+            manager.setInstanceStatus(status);
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.betterbank.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.ws.rs.client.Client;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClientEngine;
+import org.keycloak.admin.client.JacksonProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP transport of the Keycloak admin client. KeycloakBuilder's default RESTEasy client allows only two
+ * connections per route and has no timeouts, so concurrent admin calls queue behind each other.
+ */
+@Configuration
+public class KeycloakAdminTransportConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager keycloakAdminConnectionManager(@Value("${app.config.keycloak.admin.http.max-connections:64}") int maxConnections,
+                                                                             @Value("${app.config.keycloak.admin.http.max-connections-per-route:64}") int maxConnectionsPerRoute,
+                                                                             @Value("${app.config.keycloak.admin.http.connection-ttl:PT5M}") Duration connectionTtl,
+                                                                             @Value("${app.config.keycloak.admin.http.validate-after-inactivity:PT2S}") Duration validateAfterInactivity) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(connectionTtl.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        // every admin call goes to the same Keycloak host, so the per-route limit is the one that matters
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity((int) validateAfterInactivity.toMillis());
+        return connectionManager;
+    }
+
+    // RESTEasy 6.2 marks all of its Apache HttpClient engines for removal, yet they are the only bundled engines
+    // with a configurable connection pool; the URLConnection engine would bring back unpooled calls
+    @SuppressWarnings("removal")
+    @Bean(destroyMethod = "close")
+    public Client keycloakAdminHttpClient(PoolingHttpClientConnectionManager keycloakAdminConnectionManager,
+                                          @Value("${app.config.keycloak.admin.http.connect-timeout:PT2S}") Duration connectTimeout,
+                                          @Value("${app.config.keycloak.admin.http.read-timeout:PT10S}") Duration readTimeout,
+                                          @Value("${app.config.keycloak.admin.http.pool-acquire-timeout:PT2S}") Duration poolAcquireTimeout,
+                                          @Value("${app.config.keycloak.admin.http.idle-timeout:PT30S}") Duration idleTimeout) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .setConnectionRequestTimeout((int) poolAcquireTimeout.toMillis())
+                .build();
+
+        // keep-alive: the default strategy honours the server's Keep-Alive header, idle connections are
+        // closed by the eviction thread before Keycloak or a proxy in between drops them
+        CloseableHttpClient httpClient = HttpClientBuilder.create()
+                .setConnectionManager(keycloakAdminConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        // same provider registration as KeycloakBuilder's default client, only the engine differs
+        return ((ResteasyClientBuilder) ResteasyClientBuilder.newBuilder())
+                .httpEngine(ApacheHttpClientEngine.create(httpClient, true))
+                .register(JacksonProvider.class, 100)
+                .build();
+    }
+
+    @Bean
+    public MeterBinder keycloakAdminConnectionPoolMetrics(PoolingHttpClientConnectionManager keycloakAdminConnectionManager) {
+        // the httpcomponents.httpclient.pool.* gauges of Micrometer's binder, whose HttpClient 4 variant is deprecated
+        // while RESTEasy still runs on HttpClient 4
+        return registry -> {
+            Gauge.builder("httpcomponents.httpclient.pool.total.max", keycloakAdminConnectionManager, manager -> manager.getTotalStats().getMax())
+                    .description("The configured maximum number of allowed persistent connections for all routes.")
+                    .tag("httpclient", "keycloak-admin").register(registry);
+            Gauge.builder("httpcomponents.httpclient.pool.total.connections", keycloakAdminConnectionManager, manager -> manager.getTotalStats().getAvailable())
+                    .description("The number of persistent and available connections for all routes.")
+                    .tags("httpclient", "keycloak-admin", "state", "available").register(registry);
+            Gauge.builder("httpcomponents.httpclient.pool.total.connections", keycloakAdminConnectionManager, manager -> manager.getTotalStats().getLeased())
+                    .description("The number of persistent and leased connections for all routes.")
+                    .tags("httpclient", "keycloak-admin", "state", "leased").register(registry);
+            Gauge.builder("httpcomponents.httpclient.pool.total.pending", keycloakAdminConnectionManager, manager -> manager.getTotalStats().getPending())
+                    .description("The number of connection requests being blocked awaiting a free connection for all routes.")
+                    .tag("httpclient", "keycloak-admin").register(registry);
+            Gauge.builder("httpcomponents.httpclient.pool.route.max.default", keycloakAdminConnectionManager, PoolingHttpClientConnectionManager::getDefaultMaxPerRoute)
+                    .description("The configured default maximum number of allowed persistent connections per route.")
+                    .tag("httpclient", "keycloak-admin").register(registry);
+        };
+    }
+}
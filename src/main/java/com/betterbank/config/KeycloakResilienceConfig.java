@@ -0,0 +1,64 @@
+package com.betterbank.config;
+
+import com.betterbank.concurrent.CircuitBreaker;
+import com.betterbank.providers.KeycloakConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * One bulkhead + circuit breaker per Keycloak endpoint, so a slow admin API doesn't take logins down
+ * with it and vice versa.
+ */
+@Configuration
+public class KeycloakResilienceConfig {
+    private final int failureRateThreshold;
+    private final int slidingWindowSize;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+
+    public KeycloakResilienceConfig(@Value("${app.config.keycloak.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                                    @Value("${app.config.keycloak.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+                                    @Value("${app.config.keycloak.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                    @Value("${app.config.keycloak.circuit-breaker.open-duration:PT10S}") Duration openDuration,
+                                    @Value("${app.config.keycloak.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    @Bean
+    public KeycloakConcurrencyLimiter keycloakAdminApiLimiter(MeterRegistry meterRegistry,
+                                                              @Value("${app.config.keycloak.admin-api.max-concurrent-calls:32}") int maxConcurrentCalls,
+                                                              @Value("${app.config.keycloak.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        return new KeycloakConcurrencyLimiter("admin-api", maxConcurrentCalls, acquireTimeout, circuitBreaker("admin-api"), meterRegistry);
+    }
+
+    @Bean
+    public KeycloakConcurrencyLimiter keycloakTokenEndpointLimiter(MeterRegistry meterRegistry,
+                                                                   @Value("${app.config.keycloak.token-endpoint.max-concurrent-calls:64}") int maxConcurrentCalls,
+                                                                   @Value("${app.config.keycloak.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        return new KeycloakConcurrencyLimiter("token-endpoint", maxConcurrentCalls, acquireTimeout, circuitBreaker("token-endpoint"), meterRegistry);
+    }
+
+    /**
+     * sendVerifyEmail goes to the admin API but fails with the mail server, so it gets a breaker of its own: an SMTP
+     * outage must not open the admin-api circuit that logins, status lookups and registrations depend on.
+     */
+    @Bean
+    public KeycloakConcurrencyLimiter keycloakVerificationEmailLimiter(MeterRegistry meterRegistry,
+                                                                       @Value("${app.config.keycloak.verification-email.max-concurrent-calls:4}") int maxConcurrentCalls,
+                                                                       @Value("${app.config.keycloak.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        return new KeycloakConcurrencyLimiter("verification-email", maxConcurrentCalls, acquireTimeout, circuitBreaker("verification-email"), meterRegistry);
+    }
+
+    private CircuitBreaker circuitBreaker(String name) {
+        return new CircuitBreaker(name, failureRateThreshold, slidingWindowSize, minimumCalls, openDuration, halfOpenCalls);
+    }
+}
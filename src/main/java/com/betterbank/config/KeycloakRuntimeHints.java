@@ -0,0 +1,27 @@
+package com.betterbank.config;
+
+import com.betterbank.providers.KeycloakTokenResponse;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Types Jackson binds behind the Keycloak admin client and the Feign token client, where Spring's AOT processing
+ * can't see them. Only needed once reflection is restricted (native images); on the JVM the AOT-processed
+ * application reflects as usual.
+ */
+public class KeycloakRuntimeHints implements RuntimeHintsRegistrar {
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                UserRepresentation.class,
+                CredentialRepresentation.class,
+                PartialImportRepresentation.class,
+                KeycloakTokenResponse.class);
+    }
+}
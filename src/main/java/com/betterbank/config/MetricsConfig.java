@@ -0,0 +1,47 @@
+package com.betterbank.config;
+
+import com.betterbank.providers.KeycloakConcurrencyLimiter;
+import com.betterbank.providers.RegistrationWorkQueue;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder keycloakLimiterMetrics(List<KeycloakConcurrencyLimiter> keycloakConcurrencyLimiters) {
+        return meterRegistry -> keycloakConcurrencyLimiters.forEach(limiter -> {
+            Gauge.builder("keycloak.bulkhead.in-flight", limiter, KeycloakConcurrencyLimiter::inFlightCalls)
+                    .tag("endpoint", limiter.name()).register(meterRegistry);
+            Gauge.builder("keycloak.bulkhead.waiting", limiter, KeycloakConcurrencyLimiter::waitingCalls)
+                    .tag("endpoint", limiter.name()).register(meterRegistry);
+            Gauge.builder("keycloak.circuit.state", limiter, MetricsConfig::circuitStateValue)
+                    .description("0 = closed, 1 = half open, 2 = open")
+                    .tag("endpoint", limiter.name()).register(meterRegistry);
+        });
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+    public MeterBinder registrationQueueMetrics(RegistrationWorkQueue registrationWorkQueue) {
+        return meterRegistry -> {
+            Gauge.builder("auth.registration.queue.size", registrationWorkQueue, RegistrationWorkQueue::size)
+                    .description("Registrations waiting for a worker").register(meterRegistry);
+            Gauge.builder("auth.registration.queue.remaining", registrationWorkQueue, RegistrationWorkQueue::remainingCapacity)
+                    .description("Free slots before register starts answering 503").register(meterRegistry);
+        };
+    }
+
+    private static double circuitStateValue(KeycloakConcurrencyLimiter limiter) {
+        return switch (limiter.circuitState()) {
+            case CLOSED -> 0;
+            case HALF_OPEN -> 1;
+            case OPEN -> 2;
+        };
+    }
+}
@@ -1,20 +1,33 @@
 package com.betterbank.controller;
 
+import com.betterbank.dto.request.IntrospectRequest;
 import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RefreshRequest;
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.request.ResendVerificationRequest;
 import com.betterbank.dto.response.GenericResponse;
+import com.betterbank.dto.response.IntrospectionResponse;
 import com.betterbank.dto.response.LoginResponse;
 import com.betterbank.dto.response.LoginState;
 import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatusResponse;
+import com.betterbank.exception.RateLimitExceededException;
+import com.betterbank.security.LoginRateLimiter;
+import com.betterbank.security.ResendVerificationRateLimiter;
 import com.betterbank.service.AuthService;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
+
 @Tag(name = "BetterBank Auth Service", description = "Documentation for auth-service APIs")
 @RestController
 @RequestMapping("/api/auth")
@@ -22,32 +35,92 @@ public class AuthController {
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthController.class);
 
     private final AuthService authService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final ResendVerificationRateLimiter resendVerificationRateLimiter;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, LoginRateLimiter loginRateLimiter, ResendVerificationRateLimiter resendVerificationRateLimiter) {
         this.authService = authService;
+        this.loginRateLimiter = loginRateLimiter;
+        this.resendVerificationRateLimiter = resendVerificationRateLimiter;
     }
 
 
     @PostMapping("/register")
-    public ResponseEntity<GenericResponse> register(@Valid @RequestBody RegisterRequest registerRequest) {
-        LOGGER.info("Handling request for /api/auth/register");
-        RegistrationOutcome registrationOutcome = authService.register(registerRequest);
+    public ResponseEntity<GenericResponse> register(@Valid @RequestBody RegisterRequest registerRequest,
+                                                    @RequestHeader(value = "Idempotency-Key", required = false) Optional<String> idempotencyKey) {
+        LOGGER.debug("Handling request for /api/auth/register");
+        RegistrationResult registrationResult = authService.register(registerRequest, idempotencyKey);
+        return toResponseEntity(registrationResult);
+    }
+
+    static ResponseEntity<GenericResponse> toResponseEntity(RegistrationResult registrationResult) {
+        RegistrationOutcome registrationOutcome = registrationResult.outcome();
 
         if (registrationOutcome == RegistrationOutcome.INITIATED_ASYNC_PROCESS) {
-            return ResponseEntity.status(HttpStatus.CREATED).body(new GenericResponse(true, "Account creation request received. Check your email for next steps."));
+            return ResponseEntity.status(HttpStatus.CREATED).body(new GenericResponse(true, "Account creation request received. Check your email for next steps.", registrationResult.registrationId()));
         } else if (registrationOutcome == RegistrationOutcome.USER_EXISTS) {
             return ResponseEntity.status(HttpStatus.OK).body(new GenericResponse(false, "Can't create an account. Please use another email address."));
+        } else if (registrationOutcome == RegistrationOutcome.REGISTRATION_QUEUE_FULL) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(new GenericResponse(false, "We are receiving too many registrations right now. Please try again shortly."));
         } else {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new GenericResponse(false, "Server Error/Authentication Error."));
         }
     }
 
+    @GetMapping("/register/{registrationId}/status")
+    public ResponseEntity<RegistrationStatusResponse> registrationStatus(@PathVariable("registrationId") String registrationId) {
+        LOGGER.debug("Handling request for /api/auth/register/{}/status", registrationId);
+
+        // served from the in-memory status index, unknown or expired ids are a 404
+        return authService.registrationStatus(registrationId)
+                .map(registrationStatusResponse -> ResponseEntity.status(HttpStatus.OK).body(registrationStatusResponse))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @PostMapping("/register/resend-verification")
+    public ResponseEntity<GenericResponse> resendVerification(@Valid @RequestBody ResendVerificationRequest resendVerificationRequest, HttpServletRequest request) {
+        LOGGER.debug("Handling request for /api/auth/register/resend-verification");
+        try {
+            resendVerificationRateLimiter.checkResend(request.getRemoteAddr());
+            authService.resendVerificationEmail(resendVerificationRequest.email());
+        } catch (RateLimitExceededException e) {
+            // answered here rather than by the exception handler, whose 429 body is the login one
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, String.valueOf(e.retryAfterSeconds()))
+                    .body(new GenericResponse(false, e.getMessage()));
+        }
+
+        // the same answer whether or not the account exists
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(new GenericResponse(true, "If the account is waiting for verification, a new verification email is on its way."));
+    }
+
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest loginRequest) {
-        LOGGER.info("Handling request for /api/auth/login");
+    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        LOGGER.debug("Handling request for /api/auth/login");
+
+        // behind a proxy the remote address is only the client's with server.forward-headers-strategy set
+        loginRateLimiter.checkLogin(loginRequest.email(), request.getRemoteAddr());
 
         LoginResponse loginResponse = authService.login(loginRequest);
+        return toResponseEntity(loginResponse);
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refresh(@Valid @RequestBody RefreshRequest refreshRequest) {
+        LOGGER.debug("Handling request for /api/auth/refresh");
+
+        LoginResponse loginResponse = authService.refresh(refreshRequest);
+        return toResponseEntity(loginResponse);
+    }
+
+    @PostMapping("/introspect")
+    public ResponseEntity<IntrospectionResponse> introspect(@Valid @RequestBody IntrospectRequest introspectRequest) {
+        LOGGER.debug("Handling request for /api/auth/introspect");
+
+        // inactive tokens are a normal answer, not an error (RFC 7662)
+        return ResponseEntity.status(HttpStatus.OK).body(authService.introspect(introspectRequest.token()));
+    }
 
+    static ResponseEntity<LoginResponse> toResponseEntity(LoginResponse loginResponse) {
         if (loginResponse.loginState() == LoginState.INVALID_CREDENTIALS) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(loginResponse);
         } else if (loginResponse.loginState() == LoginState.EMAIL_NOT_VERIFIED) {
@@ -0,0 +1,122 @@
+package com.betterbank.controller;
+
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.BulkRegistrationStatus;
+import com.betterbank.dto.response.GenericResponse;
+import com.betterbank.service.AuthService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bulk import for operators and internal jobs. It skips the rate limiter and the registration deduplicator
+ * and mails every created user, so it is off unless {@code app.config.registration.bulk.enabled} is set and
+ * only answers callers that present the configured {@value #API_KEY_HEADER}.
+ */
+@Tag(name = "BetterBank Auth Service", description = "Documentation for auth-service APIs")
+@RestController
+@RequestMapping("/api/auth")
+@ConditionalOnProperty(name = "app.config.registration.bulk.enabled", havingValue = "true")
+public class BulkRegistrationController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkRegistrationController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+    static final String API_KEY_HEADER = "X-Bulk-Import-Key";
+
+    private final AuthService authService;
+    private final ObjectMapper objectMapper;
+    private final byte[] apiKey;
+    private final int maxLines;
+
+    public BulkRegistrationController(AuthService authService, ObjectMapper objectMapper,
+                                      @Value("${app.config.registration.bulk.api-key:}") String apiKey,
+                                      @Value("${app.config.registration.bulk.max-lines:10000}") int maxLines) {
+        if (apiKey.isBlank()) {
+            throw new IllegalStateException("app.config.registration.bulk.api-key must be set when bulk registration is enabled");
+        }
+        this.authService = authService;
+        this.objectMapper = objectMapper;
+        this.apiKey = apiKey.getBytes(StandardCharsets.UTF_8);
+        this.maxLines = maxLines;
+    }
+
+    // Both directions are newline-delimited JSON so neither side has to hold the whole import in memory.
+    // Results are flushed chunk by chunk while the rest of the request is still being read.
+    @PostMapping(value = "/register/bulk", consumes = NDJSON, produces = NDJSON)
+    public void registerBulk(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        LOGGER.info("Handling request for /api/auth/register/bulk");
+        String presentedKey = request.getHeader(API_KEY_HEADER);
+        if (presentedKey == null || !MessageDigest.isEqual(apiKey, presentedKey.getBytes(StandardCharsets.UTF_8))) {
+            LOGGER.warn("Rejecting bulk registration without a valid {}", API_KEY_HEADER);
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), new GenericResponse(false, "Unauthorized"));
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        OutputStream outputStream = response.getOutputStream();
+
+        try (MappingIterator<RegisterRequest> registerRequests = objectMapper.readerFor(RegisterRequest.class).readValues(request.getInputStream())) {
+            authService.registerBulk(limit(registerRequests), results -> write(outputStream, results));
+            if (registerRequests.hasNext()) {
+                LOGGER.warn("Bulk registration request exceeds {} lines, the rest is ignored", maxLines);
+                write(outputStream, List.of(new BulkRegistrationResult(null, BulkRegistrationStatus.TOO_MANY_LINES)));
+            }
+        } catch (RuntimeJsonMappingException e) {
+            // the stream can't be resynchronised after a malformed line, report it and stop
+            LOGGER.warn("Malformed line in bulk registration request: {}", e.getMessage());
+            write(outputStream, List.of(new BulkRegistrationResult(null, BulkRegistrationStatus.INVALID_REQUEST)));
+        }
+    }
+
+    private Iterator<RegisterRequest> limit(Iterator<RegisterRequest> registerRequests) {
+        return new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return read < maxLines && registerRequests.hasNext();
+            }
+
+            @Override
+            public RegisterRequest next() {
+                read++;
+                return registerRequests.next();
+            }
+        };
+    }
+
+    private void write(OutputStream outputStream, List<BulkRegistrationResult> results) {
+        try {
+            for (BulkRegistrationResult result : results) {
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.betterbank.controller;
+
+import com.betterbank.dto.request.VerifyEmailRequest;
+import com.betterbank.dto.response.GenericResponse;
+import com.betterbank.providers.LocalAuthProvider;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * The local provider sends no mail, so with {@code app.config.auth.local.email-verification.required} set
+ * this is how new accounts get verified: whoever runs the environment marks them, presenting the configured
+ * {@value #API_KEY_HEADER}.
+ */
+@Tag(name = "BetterBank Auth Service", description = "Documentation for auth-service APIs")
+@RestController
+@RequestMapping("/api/auth")
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "local")
+@ConditionalOnProperty(name = "app.config.auth.local.email-verification.required", havingValue = "true")
+public class LocalEmailVerificationController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalEmailVerificationController.class);
+
+    static final String API_KEY_HEADER = "X-Email-Verification-Key";
+
+    private final LocalAuthProvider localAuthProvider;
+    private final byte[] apiKey;
+
+    public LocalEmailVerificationController(LocalAuthProvider localAuthProvider,
+                                            @Value("${app.config.auth.local.email-verification.api-key:}") String apiKey) {
+        if (apiKey.isBlank()) {
+            throw new IllegalStateException("app.config.auth.local.email-verification.api-key must be set when local email verification is required");
+        }
+        this.localAuthProvider = localAuthProvider;
+        this.apiKey = apiKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("/local/verify-email")
+    public ResponseEntity<GenericResponse> verifyEmail(@Valid @RequestBody VerifyEmailRequest verifyEmailRequest,
+                                                       @RequestHeader(value = API_KEY_HEADER, required = false) String presentedKey) {
+        LOGGER.debug("Handling request for /api/auth/local/verify-email");
+        if (presentedKey == null || !MessageDigest.isEqual(apiKey, presentedKey.getBytes(StandardCharsets.UTF_8))) {
+            LOGGER.warn("Rejecting email verification without a valid {}", API_KEY_HEADER);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new GenericResponse(false, "Unauthorized"));
+        }
+        if (!localAuthProvider.verifyEmail(verifyEmailRequest.email())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new GenericResponse(false, "No account with this email address."));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(new GenericResponse(true, "Email address verified."));
+    }
+}
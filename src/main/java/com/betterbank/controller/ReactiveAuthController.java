@@ -0,0 +1,54 @@
+package com.betterbank.controller;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.GenericResponse;
+import com.betterbank.dto.response.LoginResponse;
+import com.betterbank.security.LoginRateLimiter;
+import com.betterbank.service.ReactiveAuthService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Login and register returning {@link Mono}. Spring MVC completes these as async requests, so the
+ * Tomcat thread goes back to the pool while Keycloak is being called instead of waiting on it.
+ */
+@Tag(name = "BetterBank Auth Service (reactive)", description = "Non-blocking variants of the login and register APIs")
+@RestController
+@RequestMapping("/api/auth/reactive")
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+@ConditionalOnProperty(name = "app.config.auth.reactive.enabled", havingValue = "true")
+public class ReactiveAuthController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveAuthController.class);
+
+    private final ReactiveAuthService reactiveAuthService;
+    private final LoginRateLimiter loginRateLimiter;
+
+    public ReactiveAuthController(ReactiveAuthService reactiveAuthService, LoginRateLimiter loginRateLimiter) {
+        this.reactiveAuthService = reactiveAuthService;
+        this.loginRateLimiter = loginRateLimiter;
+    }
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<GenericResponse>> register(@Valid @RequestBody RegisterRequest registerRequest,
+                                                          @RequestHeader(value = "Idempotency-Key", required = false) Optional<String> idempotencyKey) {
+        LOGGER.debug("Handling request for /api/auth/reactive/register");
+        return reactiveAuthService.register(registerRequest, idempotencyKey).map(AuthController::toResponseEntity);
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<LoginResponse>> login(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        LOGGER.debug("Handling request for /api/auth/reactive/login");
+        loginRateLimiter.checkLogin(loginRequest.email(), request.getRemoteAddr());
+        return reactiveAuthService.login(loginRequest).map(AuthController::toResponseEntity);
+    }
+}
@@ -0,0 +1,7 @@
+package com.betterbank.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record IntrospectRequest(
+        @NotBlank(message = "Token is required") String token) {
+}
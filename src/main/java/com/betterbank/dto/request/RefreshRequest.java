@@ -0,0 +1,7 @@
+package com.betterbank.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshRequest(
+        @NotBlank(message = "Refresh token is required") String refreshToken) {
+}
@@ -0,0 +1,7 @@
+package com.betterbank.dto.response;
+
+public record BulkRegistrationResult(
+        String email,
+        BulkRegistrationStatus status
+) {
+}
@@ -0,0 +1,10 @@
+package com.betterbank.dto.response;
+
+public enum BulkRegistrationStatus {
+    CREATED,
+    USER_EXISTS,
+    DUPLICATE_IN_REQUEST,
+    INVALID_REQUEST,
+    TOO_MANY_LINES,
+    AUTH_PROVIDER_ERROR
+}
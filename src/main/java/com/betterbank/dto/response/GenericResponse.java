@@ -1,7 +1,13 @@
 package com.betterbank.dto.response;
 
+import java.util.Optional;
+
 public record GenericResponse(
         boolean successStatus,
-        String message
+        String message,
+        Optional<String> registrationId
 ) {
+    public GenericResponse(boolean successStatus, String message) {
+        this(successStatus, message, Optional.empty());
+    }
 }
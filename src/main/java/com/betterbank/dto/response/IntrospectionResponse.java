@@ -0,0 +1,16 @@
+package com.betterbank.dto.response;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public record IntrospectionResponse(
+        boolean active,
+        Optional<String> subject,
+        Optional<String> email,
+        Optional<String> scope,
+        Optional<Instant> expiresAt
+) {
+    public static IntrospectionResponse inactive() {
+        return new IntrospectionResponse(false, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+    }
+}
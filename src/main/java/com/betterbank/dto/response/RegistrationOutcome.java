@@ -3,5 +3,6 @@ package com.betterbank.dto.response;
 public enum RegistrationOutcome {
     INITIATED_ASYNC_PROCESS,
     USER_EXISTS,
-    AUTH_PROVIDER_ERROR
+    AUTH_PROVIDER_ERROR,
+    REGISTRATION_QUEUE_FULL
 }
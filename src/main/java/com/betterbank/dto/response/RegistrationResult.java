@@ -0,0 +1,12 @@
+package com.betterbank.dto.response;
+
+import java.util.Optional;
+
+public record RegistrationResult(
+        RegistrationOutcome outcome,
+        Optional<String> registrationId
+) {
+    public static RegistrationResult of(RegistrationOutcome outcome) {
+        return new RegistrationResult(outcome, Optional.empty());
+    }
+}
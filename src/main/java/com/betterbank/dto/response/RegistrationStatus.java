@@ -0,0 +1,10 @@
+package com.betterbank.dto.response;
+
+public enum RegistrationStatus {
+    QUEUED,
+    IN_PROGRESS,
+    RETRYING,
+    COMPLETED,
+    USER_EXISTS,
+    FAILED
+}
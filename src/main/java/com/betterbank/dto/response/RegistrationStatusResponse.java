@@ -0,0 +1,7 @@
+package com.betterbank.dto.response;
+
+public record RegistrationStatusResponse(
+        String registrationId,
+        RegistrationStatus status
+) {
+}
@@ -0,0 +1,7 @@
+package com.betterbank.exception;
+
+public class AuthProviderUnavailableException extends RuntimeException {
+    public AuthProviderUnavailableException(String message) {
+        super(message);
+    }
+}
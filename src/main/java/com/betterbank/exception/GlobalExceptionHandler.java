@@ -1,10 +1,13 @@
 package com.betterbank.exception;
 
+import com.betterbank.dto.response.GenericResponse;
 import com.betterbank.dto.response.LoginError;
 import com.betterbank.dto.response.ValidationErrorResponse;
+import com.betterbank.providers.KeycloakTokenRejectedException;
 import feign.FeignException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -33,6 +36,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(401).body(error);
     }
 
+    @ExceptionHandler(KeycloakTokenRejectedException.class)
+    public ResponseEntity<LoginError> handleKeycloakTokenRejected(KeycloakTokenRejectedException ex) {
+        LOGGER.error("Keycloak Token Rejected Error: {}", ex.getMessage());
+        return ResponseEntity.status(401).body(new LoginError(false, "Unauthorized"));
+    }
+
     @ExceptionHandler(jakarta.ws.rs.ProcessingException.class)
     public ResponseEntity<LoginError> handleKeycloakProcessingException(jakarta.ws.rs.ProcessingException ex) {
         LOGGER.error("Keycloak Processing Error: {}", ex.getMessage());
@@ -46,6 +55,24 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(status).body(new LoginError(false, "Authentication provider error"));
     }
 
+    @ExceptionHandler(AuthProviderUnavailableException.class)
+    public ResponseEntity<LoginError> handleAuthProviderUnavailableException(AuthProviderUnavailableException ex) {
+        LOGGER.error("Authentication provider unavailable: {}", ex.getMessage());
+        return ResponseEntity.status(503).body(new LoginError(false, "Authentication provider unavailable"));
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<LoginError> handleRateLimitExceededException(RateLimitExceededException ex) {
+        // rejected attempts are counted in auth.rate-limit.rejected, logging each one would flood the log during an attack
+        return ResponseEntity.status(429).header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.retryAfterSeconds())).body(new LoginError(false, ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<GenericResponse> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        LOGGER.warn("Rejected registration: {}", ex.getMessage());
+        return ResponseEntity.status(422).body(new GenericResponse(false, ex.getMessage()));
+    }
+
     @ExceptionHandler(NullPointerException.class)
     public ResponseEntity<LoginError> handleNullPointerException(NullPointerException ex) {
         LOGGER.error("Null Pointer Exception: {}", ex.getMessage());
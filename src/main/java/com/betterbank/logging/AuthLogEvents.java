@@ -0,0 +1,48 @@
+package com.betterbank.logging;
+
+import org.slf4j.Logger;
+
+/**
+ * Structured events of the login and registration paths. The values go into fields instead of the message,
+ * so nothing is formatted unless the event is actually logged, and every event has an {@code event} field to
+ * filter and count on. Successes are sampled, failures are always logged.
+ */
+public final class AuthLogEvents {
+    private AuthLogEvents() {
+    }
+
+    public static void loginSucceeded(Logger logger, String email, int sampleOneIn) {
+        if (LogSampling.sampled(sampleOneIn)) {
+            logger.atInfo().setMessage("Login succeeded")
+                    .addKeyValue("event", "login.succeeded")
+                    .addKeyValue("email", email)
+                    .log();
+        }
+    }
+
+    public static void loginFailed(Logger logger, String email, String reason) {
+        logger.atWarn().setMessage("Login failed")
+                .addKeyValue("event", "login.failed")
+                .addKeyValue("reason", reason)
+                .addKeyValue("email", email)
+                .log();
+    }
+
+    public static void registrationQueued(Logger logger, String email, String registrationId, int sampleOneIn) {
+        if (LogSampling.sampled(sampleOneIn)) {
+            logger.atInfo().setMessage("Registration queued")
+                    .addKeyValue("event", "registration.queued")
+                    .addKeyValue("email", email)
+                    .addKeyValue("registrationId", registrationId)
+                    .log();
+        }
+    }
+
+    public static void registrationRejected(Logger logger, String email, String reason) {
+        logger.atWarn().setMessage("Registration rejected")
+                .addKeyValue("event", "registration.rejected")
+                .addKeyValue("reason", reason)
+                .addKeyValue("email", email)
+                .log();
+    }
+}
@@ -0,0 +1,23 @@
+package com.betterbank.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampling for high-volume success events: the caller asks before building the event, so events that are
+ * skipped cost neither formatting nor a slot in the async appender's queue.
+ */
+public final class LogSampling {
+    private LogSampling() {
+    }
+
+    /**
+     * @param oneIn log about one in {@code oneIn} events, 1 logs all of them and 0 or less none
+     */
+    public static boolean sampled(int oneIn) {
+        if (oneIn <= 1) {
+            return oneIn == 1;
+        }
+        // no shared counter, so no contention between request threads
+        return ThreadLocalRandom.current().nextInt(oneIn) == 0;
+    }
+}
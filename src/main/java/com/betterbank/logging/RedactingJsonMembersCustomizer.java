@@ -0,0 +1,31 @@
+package com.betterbank.logging;
+
+import org.springframework.boot.json.JsonWriter;
+import org.springframework.boot.logging.structured.StructuredLoggingJsonMembersCustomizer;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Masks the value of every structured log field, MDC entry or key-value pair, whose name says it holds a
+ * secret, wherever it sits in the JSON. Set through {@code logging.structured.json.customizer}.
+ * <p>
+ * Only fields are covered; secrets must never be formatted into the message itself.
+ */
+public class RedactingJsonMembersCustomizer implements StructuredLoggingJsonMembersCustomizer<Object> {
+    static final String REDACTED = "[REDACTED]";
+
+    private static final Set<String> SECRET_NAMES = Set.of(
+            "password", "access_token", "accesstoken", "refresh_token", "refreshtoken", "id_token", "idtoken",
+            "token", "client_secret", "clientsecret", "secret", "authorization", "cookie", "set-cookie");
+
+    @Override
+    public void customize(JsonWriter.Members<Object> members) {
+        members.applyingValueProcessor(JsonWriter.ValueProcessor.of(value -> value == null ? null : REDACTED)
+                .whenHasPath(path -> path.name() != null && isSecret(path.name())));
+    }
+
+    static boolean isSecret(String name) {
+        return SECRET_NAMES.contains(name.toLowerCase(Locale.ROOT));
+    }
+}
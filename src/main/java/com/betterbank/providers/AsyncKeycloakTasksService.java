@@ -1,6 +1,7 @@
 package com.betterbank.providers;
 
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.exception.AuthProviderUnavailableException;
 import jakarta.ws.rs.core.Response;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.UsersResource;
@@ -8,9 +9,10 @@ import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
@@ -18,67 +20,104 @@ import java.util.Collections;
 import java.util.List;
 
 @Service
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
 public class AsyncKeycloakTasksService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AsyncKeycloakTasksService.class);
     private final Keycloak keycloakAdminClient;
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
     private final String keycloakRealm;
+    private final KeycloakUserStatusResolver keycloakUserStatusResolver;
+    private final VerificationEmailDispatcher verificationEmailDispatcher;
 
-    public AsyncKeycloakTasksService(Keycloak keycloakAdminClient, @Value("${app.config.keycloak.realm}") String keycloakRealm) {
+    public AsyncKeycloakTasksService(Keycloak keycloakAdminClient, @Qualifier("keycloakAdminApiLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter, @Value("${app.config.keycloak.realm}") String keycloakRealm, KeycloakUserStatusResolver keycloakUserStatusResolver, VerificationEmailDispatcher verificationEmailDispatcher) {
         this.keycloakAdminClient = keycloakAdminClient;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
         this.keycloakRealm = keycloakRealm;
+        this.keycloakUserStatusResolver = keycloakUserStatusResolver;
+        this.verificationEmailDispatcher = verificationEmailDispatcher;
     }
 
-    @Async("taskExecutor")
-    public void createUserInKeycloak(RegisterRequest registerRequest) {
-        LOGGER.info("Starting asynchronous Keycloak User Creation Task for: {}", registerRequest.email());
+    // Runs on the RegistrationWorkQueue workers, the result tells them whether a retry makes sense
+    public KeycloakTaskResult createUserInKeycloak(RegisterRequest registerRequest) {
+        LOGGER.debug("Starting asynchronous Keycloak User Creation Task for: {}", registerRequest.email());
 
         String userId = null; // To store the Keycloak user ID
 
         try {
             UsersResource usersResource = this.keycloakAdminClient.realm(this.keycloakRealm).users();
 
-            // 1. Create UserRepresentation
-            UserRepresentation userRepresentation = new UserRepresentation();
-            userRepresentation.setEnabled(true);
-            userRepresentation.setUsername(registerRequest.email());
-            userRepresentation.setEmail(registerRequest.email());
-            userRepresentation.setFirstName(registerRequest.firstName());
-            userRepresentation.setLastName(registerRequest.lastName());
-            userRepresentation.setEmailVerified(false);
-            userRepresentation.setRequiredActions(List.of("VERIFY_EMAIL"));
-
-            // 2. Set Credentials
-            CredentialRepresentation credential = new CredentialRepresentation();
-            credential.setType(CredentialRepresentation.PASSWORD);
-            credential.setValue(registerRequest.password());
-            credential.setTemporary(false);
-
-            // 3. set the credentials to the user object
-            userRepresentation.setCredentials(Collections.singletonList(credential));
-
-            // 4. Create user in Keycloak
-            try (Response response = usersResource.create(userRepresentation)) {
+            // 1. Build the user together with its credentials
+            UserRepresentation userRepresentation = toUserRepresentation(registerRequest);
+
+            // 2. Create user in Keycloak
+            try (Response response = keycloakConcurrencyLimiter.execute("createUser", () -> usersResource.create(userRepresentation))) {
                 if (response.getStatus() != HttpStatus.CREATED.value()) {
                     String errorBody = response.readEntity(String.class); // Attempt to read error message from Keycloak
                     LOGGER.error("Failed to create user {} in Keycloak. Status: {}, Error: {}", registerRequest.email(), response.getStatus(), errorBody);
 //                    emailService.sendRegistrationCompleteEmail(request.email(), "Registration failed due to a server error. Please try again later.", "Registration Failed");
-                    return; // Stop processing on failure
+                    KeycloakTaskResult result = resultForStatus(response.getStatus());
+                    if (result == KeycloakTaskResult.CONFLICT) {
+                        keycloakUserStatusResolver.userCreated(registerRequest.email());
+                    }
+                    return result; // Stop processing on failure
                 } else {
                     URI location = response.getLocation();
                     // Extract user ID from the response header (e.g., Location: /auth/admin/realms/{realm}/users/{userId})
                     String path = location.getPath();
                     userId = path.substring(path.lastIndexOf('/') + 1);
-                    LOGGER.info("User {} created successfully in Keycloak with ID: {}", registerRequest.email(), userId);
+                    LOGGER.debug("User {} created successfully in Keycloak with ID: {}", registerRequest.email(), userId);
+                    keycloakUserStatusResolver.userCreated(registerRequest.email());
 
-                    LOGGER.info("Sending verification email on the email ID: {}", registerRequest.email());
-                    usersResource.get(userId).sendVerifyEmail();
+                    // the user exists at this point, a mail that can't be queued must not make the caller retry the creation
+                    verificationEmailDispatcher.dispatch(userId, registerRequest.email());
+                    return KeycloakTaskResult.SUCCEEDED;
                 }
             }
 
+        } catch (jakarta.ws.rs.ProcessingException | AuthProviderUnavailableException e) {
+            LOGGER.warn("Keycloak unreachable while creating user {}: {}", registerRequest.email(), e.getMessage());
+            return KeycloakTaskResult.RETRYABLE_FAILURE;
+        } catch (jakarta.ws.rs.WebApplicationException e) {
+            LOGGER.error("Keycloak returned HTTP error while creating user {}: {}", registerRequest.email(), e.getMessage());
+            return resultForStatus(e.getResponse().getStatus());
         } catch (Exception e) {
             LOGGER.error("Error during asynchronous Keycloak user creation for {}: {}", registerRequest.email(), e.getMessage(), e);
             // Send failure email if any unexpected error occurs in the async process
 //            emailService.sendRegistrationCompleteEmail(request.email(), "An unexpected error occurred during your account registration. Please contact support.", "Registration Error");
+            return KeycloakTaskResult.PERMANENT_FAILURE;
+        }
+    }
+
+    public static UserRepresentation toUserRepresentation(RegisterRequest registerRequest) {
+        // 1. Create UserRepresentation
+        UserRepresentation userRepresentation = new UserRepresentation();
+        userRepresentation.setEnabled(true);
+        userRepresentation.setUsername(registerRequest.email());
+        userRepresentation.setEmail(registerRequest.email());
+        userRepresentation.setFirstName(registerRequest.firstName());
+        userRepresentation.setLastName(registerRequest.lastName());
+        userRepresentation.setEmailVerified(false);
+        userRepresentation.setRequiredActions(List.of("VERIFY_EMAIL"));
+
+        // 2. Set Credentials
+        CredentialRepresentation credential = new CredentialRepresentation();
+        credential.setType(CredentialRepresentation.PASSWORD);
+        credential.setValue(registerRequest.password());
+        credential.setTemporary(false);
+
+        // 3. set the credentials to the user object
+        userRepresentation.setCredentials(Collections.singletonList(credential));
+
+        return userRepresentation;
+    }
+
+    private static KeycloakTaskResult resultForStatus(int status) {
+        if (status == HttpStatus.CONFLICT.value()) {
+            return KeycloakTaskResult.CONFLICT;
+        }
+        if (status == HttpStatus.TOO_MANY_REQUESTS.value() || status >= 500) {
+            return KeycloakTaskResult.RETRYABLE_FAILURE;
         }
+        return KeycloakTaskResult.PERMANENT_FAILURE;
     }
 }
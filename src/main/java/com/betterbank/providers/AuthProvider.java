@@ -2,12 +2,26 @@ package com.betterbank.providers;
 
 import com.betterbank.dto.request.LoginRequest;
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
 import com.betterbank.dto.response.LoginResponse;
 import com.betterbank.dto.response.LoginStatus;
-import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatus;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface AuthProvider {
-    RegistrationOutcome register(RegisterRequest registerRequest);
+    RegistrationResult register(RegisterRequest registerRequest);
+
+    List<BulkRegistrationResult> registerBatch(List<RegisterRequest> registerRequests);
 
     LoginStatus login(LoginRequest loginRequest);
+
+    LoginStatus refresh(String refreshToken);
+
+    Optional<RegistrationStatus> registrationStatus(String registrationId);
+
+    // Silently does nothing for emails without an account awaiting verification
+    void resendVerificationEmail(String email);
 }
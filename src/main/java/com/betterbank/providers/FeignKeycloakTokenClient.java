@@ -0,0 +1,44 @@
+package com.betterbank.providers;
+
+import com.betterbank.exception.AuthProviderUnavailableException;
+import feign.FeignException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Map;
+
+public class FeignKeycloakTokenClient implements KeycloakTokenClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeignKeycloakTokenClient.class);
+
+    private final KeycloakTokenFeignClient keycloakTokenFeignClient;
+
+    public FeignKeycloakTokenClient(KeycloakTokenFeignClient keycloakTokenFeignClient) {
+        this.keycloakTokenFeignClient = keycloakTokenFeignClient;
+    }
+
+    @Override
+    public KeycloakTokenResponse requestToken(String realm, Map<String, String> formParams) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        formParams.forEach(form::add);
+        try {
+            return keycloakTokenFeignClient.getToken(realm, form);
+        } catch (FeignException.BadRequest | FeignException.Unauthorized e) {
+            throw new KeycloakTokenRejectedException(e.status(), e.contentUTF8());
+        } catch (FeignException e) {
+            // same contract as HttpKeycloakTokenClient, callers answer SERVER_ERROR instead of a bare 500
+            LOGGER.error("Keycloak token endpoint failed with status {}: {}", e.status(), e.getMessage());
+            throw new AuthProviderUnavailableException(e.status() < 0 ? "Keycloak token endpoint unreachable" : "Keycloak token endpoint returned status " + e.status());
+        }
+    }
+
+    @Override
+    public void fetchConfiguration(String realm) {
+        try {
+            keycloakTokenFeignClient.getConfiguration(realm);
+        } catch (FeignException e) {
+            throw new AuthProviderUnavailableException(e.status() < 0 ? "Keycloak unreachable" : "Keycloak configuration endpoint returned status " + e.status());
+        }
+    }
+}
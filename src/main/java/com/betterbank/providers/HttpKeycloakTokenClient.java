@@ -0,0 +1,114 @@
+package com.betterbank.providers;
+
+import com.betterbank.exception.AuthProviderUnavailableException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Token client on the JDK's {@link HttpClient}: connections are pooled and kept alive across logins,
+ * HTTP/2 is negotiated when Keycloak offers it, and the response is read straight into
+ * {@link KeycloakTokenResponse}.
+ */
+public class HttpKeycloakTokenClient implements KeycloakTokenClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpKeycloakTokenClient.class);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String keycloakUrl;
+    private final Duration requestTimeout;
+
+    public HttpKeycloakTokenClient(HttpClient httpClient, ObjectMapper objectMapper, String keycloakUrl, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.keycloakUrl = keycloakUrl;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public KeycloakTokenResponse requestToken(String realm, Map<String, String> formParams) {
+        try {
+            return requestTokenAsync(realm, formParams).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<KeycloakTokenResponse> requestTokenAsync(String realm, Map<String, String> formParams) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(keycloakUrl + "/realms/" + realm + "/protocol/openid-connect/token"))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(encode(formParams)))
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, throwable) -> {
+                    if (throwable != null) {
+                        LOGGER.error("Keycloak token endpoint unreachable: {}", throwable.getMessage());
+                        throw new AuthProviderUnavailableException("Keycloak token endpoint unreachable");
+                    }
+                    return toTokenResponse(response);
+                });
+    }
+
+    @Override
+    public void fetchConfiguration(String realm) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(keycloakUrl + "/realms/" + realm + "/.well-known/openid-configuration"))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new AuthProviderUnavailableException("Keycloak configuration endpoint returned status " + response.statusCode());
+            }
+        } catch (IOException e) {
+            throw new AuthProviderUnavailableException("Keycloak unreachable");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthProviderUnavailableException("Interrupted while fetching the Keycloak configuration");
+        }
+    }
+
+    private KeycloakTokenResponse toTokenResponse(HttpResponse<byte[]> response) {
+        int status = response.statusCode();
+        if (status == 400 || status == 401) {
+            throw new KeycloakTokenRejectedException(status, new String(response.body(), StandardCharsets.UTF_8));
+        }
+        if (status != 200) {
+            LOGGER.error("Keycloak token endpoint returned status {}", status);
+            throw new AuthProviderUnavailableException("Keycloak token endpoint returned status " + status);
+        }
+        try {
+            return objectMapper.readValue(response.body(), KeycloakTokenResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read Keycloak token response", e);
+        }
+    }
+
+    private static String encode(Map<String, String> formParams) {
+        return formParams.entrySet().stream()
+                .map(entry -> URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+    }
+}
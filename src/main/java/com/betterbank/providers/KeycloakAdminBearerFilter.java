@@ -0,0 +1,37 @@
+package com.betterbank.providers;
+
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+
+/**
+ * Puts the token from {@link KeycloakAdminCredentials} on every admin API call. It replaces whatever
+ * Authorization header the admin client's own filter set, so it has to run after it.
+ */
+public class KeycloakAdminBearerFilter implements ClientRequestFilter, ClientResponseFilter {
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final KeycloakAdminCredentials keycloakAdminCredentials;
+
+    public KeycloakAdminBearerFilter(KeycloakAdminCredentials keycloakAdminCredentials) {
+        this.keycloakAdminCredentials = keycloakAdminCredentials;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        requestContext.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, BEARER_PREFIX + keycloakAdminCredentials.accessToken());
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        if (responseContext.getStatus() != 401) {
+            return;
+        }
+        String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            keycloakAdminCredentials.invalidate(authorization.substring(BEARER_PREFIX.length()));
+        }
+    }
+}
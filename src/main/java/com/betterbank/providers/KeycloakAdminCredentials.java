@@ -0,0 +1,230 @@
+package com.betterbank.providers;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Access token of the admin API client. Keycloak's own TokenManager refreshes the token on the thread of
+ * whichever admin call finds it expired, under a lock every other admin call queues on; here the token is
+ * fetched at startup and refreshed on a background thread {@code min-validity} before it expires, and
+ * {@link #accessToken()} is a volatile read.
+ * <p>
+ * Callers only fetch a token themselves when the background refresh has been failing for longer than the
+ * token lives, which is as good as it gets with Keycloak unreachable anyway. With {@code fetch-on-startup}
+ * off, e.g. for the CDS training run, the first admin call fetches it that way.
+ */
+@Component
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class KeycloakAdminCredentials {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakAdminCredentials.class);
+    // a token this close to expiring may be rejected by the time the call reaches Keycloak
+    private static final Duration EXPIRY_MARGIN = Duration.ofSeconds(5);
+
+    private final KeycloakTokenClient keycloakTokenClient;
+    private final String keycloakRealm;
+    private final String clientId;
+    private final String clientSecret;
+    private final String username;
+    private final String password;
+    private final Duration minValidity;
+    private final Duration retryInterval;
+    private final boolean fetchOnStartup;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+
+    private volatile AdminToken current;
+    private ScheduledFuture<?> scheduledRefresh;
+
+    public KeycloakAdminCredentials(KeycloakTokenClient keycloakTokenClient,
+                                    @Value("${app.config.keycloak.realm}") String keycloakRealm,
+                                    @Value("${app.config.keycloak.admin.client-id}") String clientId,
+                                    @Value("${app.config.keycloak.admin.client-secret}") String clientSecret,
+                                    @Value("${app.config.keycloak.admin.username}") String username,
+                                    @Value("${app.config.keycloak.admin.password}") String password,
+                                    @Value("${app.config.keycloak.admin.token.min-validity:PT30S}") Duration minValidity,
+                                    @Value("${app.config.keycloak.admin.token.retry-interval:PT5S}") Duration retryInterval,
+                                    @Value("${app.config.keycloak.admin.token.fetch-on-startup:true}") boolean fetchOnStartup,
+                                    MeterRegistry meterRegistry) {
+        this.keycloakTokenClient = keycloakTokenClient;
+        this.keycloakRealm = keycloakRealm;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.username = username;
+        this.password = password;
+        this.minValidity = minValidity;
+        this.retryInterval = retryInterval;
+        this.fetchOnStartup = fetchOnStartup;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "Auth-Service-Keycloak-Admin-Token");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("auth.keycloak.admin-token.remaining-validity", this, KeycloakAdminCredentials::remainingValiditySeconds)
+                .description("Seconds until the current admin access token expires")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!fetchOnStartup) {
+            return;
+        }
+        refreshLock.lock();
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Keycloak may start after this service, keep trying in the background
+            LOGGER.warn("Fetching the Keycloak admin token failed, retrying in {}: {}", retryInterval, e.getMessage());
+            scheduleRefresh(retryInterval);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public String accessToken() {
+        AdminToken token = current;
+        if (token != null && token.isValid(System.nanoTime())) {
+            return token.accessToken();
+        }
+        return fetchOnCallingThread(token).accessToken();
+    }
+
+    /**
+     * Drops the token after Keycloak answered 401 for it, e.g. because the admin session was revoked.
+     * The next admin call fetches a new one.
+     */
+    public void invalidate(String accessToken) {
+        AdminToken token = current;
+        if (token != null && token.accessToken().equals(accessToken)) {
+            LOGGER.warn("Keycloak rejected the admin token, fetching a new one");
+            current = null;
+        }
+    }
+
+    private AdminToken fetchOnCallingThread(AdminToken stale) {
+        refreshLock.lock();
+        try {
+            AdminToken token = current;
+            if (token != null && token != stale && token.isValid(System.nanoTime())) {
+                // another caller got there first
+                return token;
+            }
+            return refresh();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void runScheduledRefresh() {
+        refreshLock.lock();
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Refreshing the Keycloak admin token failed, retrying in {}: {}", retryInterval, e.getMessage());
+            scheduleRefresh(retryInterval);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private AdminToken refresh() {
+        AdminToken previous = current;
+        long now = System.nanoTime();
+        KeycloakTokenResponse tokenResponse = null;
+        if (previous != null && previous.refreshToken() != null && now - previous.refreshExpiresAtNanos() < 0) {
+            try {
+                tokenResponse = requestToken("refresh_token", Map.of("refresh_token", previous.refreshToken()));
+            } catch (KeycloakTokenRejectedException e) {
+                // the admin session ended, e.g. Keycloak restarted
+                LOGGER.info("Keycloak rejected the admin refresh token, logging in again");
+            }
+        }
+        if (tokenResponse == null) {
+            tokenResponse = requestToken("password", Map.of("username", username, "password", password));
+        }
+
+        AdminToken token = AdminToken.from(tokenResponse, now);
+        current = token;
+        scheduleRefresh(refreshDelay(tokenResponse.expiresIn()));
+        return token;
+    }
+
+    private KeycloakTokenResponse requestToken(String grantType, Map<String, String> grantParams) {
+        Map<String, String> formParams = new HashMap<>(grantParams);
+        formParams.put("grant_type", grantType);
+        formParams.put("client_id", clientId);
+        if (clientSecret != null && !clientSecret.isEmpty()) {
+            formParams.put("client_secret", clientSecret);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            KeycloakTokenResponse tokenResponse = keycloakTokenClient.requestToken(keycloakRealm, formParams);
+            outcome = "success";
+            return tokenResponse;
+        } finally {
+            sample.stop(Timer.builder("auth.keycloak.admin-token.refresh")
+                    .description("Admin access token requests made by the background refresh or by a caller finding it expired")
+                    .tag("grant", grantType)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private Duration refreshDelay(long expiresInSeconds) {
+        Duration expiresIn = Duration.ofSeconds(expiresInSeconds);
+        // tokens that live shorter than twice min-validity are refreshed halfway instead
+        return expiresIn.compareTo(minValidity.multipliedBy(2)) > 0 ? expiresIn.minus(minValidity) : expiresIn.dividedBy(2);
+    }
+
+    private void scheduleRefresh(Duration delay) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        if (!scheduler.isShutdown()) {
+            scheduledRefresh = scheduler.schedule(this::runScheduledRefresh, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private double remainingValiditySeconds() {
+        AdminToken token = current;
+        return token == null ? 0 : Math.max(0, (token.expiresAtNanos() - System.nanoTime()) / 1e9);
+    }
+
+    private record AdminToken(String accessToken, String refreshToken, long expiresAtNanos, long refreshExpiresAtNanos) {
+        static AdminToken from(KeycloakTokenResponse tokenResponse, long issuedAtNanos) {
+            return new AdminToken(tokenResponse.accessToken(), tokenResponse.refreshToken(),
+                    issuedAtNanos + TimeUnit.SECONDS.toNanos(tokenResponse.expiresIn()),
+                    issuedAtNanos + TimeUnit.SECONDS.toNanos(tokenResponse.refreshExpiresIn()));
+        }
+
+        boolean isValid(long nowNanos) {
+            return expiresAtNanos - EXPIRY_MARGIN.toNanos() - nowNanos > 0;
+        }
+    }
+}
@@ -1,23 +1,25 @@
 package com.betterbank.providers;
 
+import com.betterbank.concurrent.SingleFlight;
 import com.betterbank.dto.request.LoginRequest;
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
 import com.betterbank.dto.response.LoginResponse;
 import com.betterbank.dto.response.LoginState;
 import com.betterbank.dto.response.LoginStatus;
 import com.betterbank.dto.response.RegistrationOutcome;
-import feign.FeignException;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.betterbank.exception.AuthProviderUnavailableException;
+import com.betterbank.logging.AuthLogEvents;
 import org.keycloak.OAuth2Constants;
 import org.keycloak.admin.client.Keycloak;
-import org.keycloak.admin.client.resource.UsersResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,9 +29,19 @@ public class KeycloakAuthProvider implements AuthProvider {
 
     private final Keycloak keycloakAdminClient;
 
-    private final AsyncKeycloakTasksService asyncKeycloakTasksService;
+    private final RegistrationWorkQueue registrationWorkQueue;
 
-    private final KeycloakTokenFeignClient keycloakTokenFeignClient;
+    private final KeycloakTokenClient keycloakTokenClient;
+
+    private final KeycloakUserStatusResolver keycloakUserStatusResolver;
+
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+
+    private final KeycloakBulkImporter keycloakBulkImporter;
+
+    private final VerificationEmailDispatcher verificationEmailDispatcher;
+
+    private final SingleFlight<String, LoginStatus> refreshSingleFlight = new SingleFlight<>();
 
     @Value("${app.config.keycloak.url}")
     private String keycloakUrl;
@@ -43,6 +55,15 @@ public class KeycloakAuthProvider implements AuthProvider {
     @Value("${app.config.keycloak.client-secret}")
     private String keycloakClientSecret;
 
+    @Value("${app.config.keycloak.login.mode:standard}")
+    private KeycloakLoginMode loginMode = KeycloakLoginMode.STANDARD;
+
+    @Value("${app.config.logging.sample.login-success:100}")
+    private int loginSuccessLogOneIn = 100;
+
+    @Value("${app.config.logging.sample.registration-queued:10}")
+    private int registrationQueuedLogOneIn = 10;
+
     //
 //    @Value("${app.config.keycloak.admin.username}")
 //    private String keycloakAdminUsername;
@@ -56,78 +77,180 @@ public class KeycloakAuthProvider implements AuthProvider {
 //    @Value("${app.config.keycloak.admin.client-secret}")
 //    private String keycloakAdminClientSecret;
 
-    public KeycloakAuthProvider(Keycloak keycloakAdminClient, AsyncKeycloakTasksService asyncKeycloakTasksService, KeycloakTokenFeignClient keycloakTokenFeignClient) {
+    public KeycloakAuthProvider(Keycloak keycloakAdminClient, RegistrationWorkQueue registrationWorkQueue, KeycloakTokenClient keycloakTokenClient, KeycloakUserStatusResolver keycloakUserStatusResolver, KeycloakConcurrencyLimiter keycloakConcurrencyLimiter, KeycloakBulkImporter keycloakBulkImporter, VerificationEmailDispatcher verificationEmailDispatcher) {
         this.keycloakAdminClient = keycloakAdminClient;
-        this.asyncKeycloakTasksService = asyncKeycloakTasksService;
-        this.keycloakTokenFeignClient = keycloakTokenFeignClient;
+        this.registrationWorkQueue = registrationWorkQueue;
+        this.keycloakTokenClient = keycloakTokenClient;
+        this.keycloakUserStatusResolver = keycloakUserStatusResolver;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
+        this.keycloakBulkImporter = keycloakBulkImporter;
+        this.verificationEmailDispatcher = verificationEmailDispatcher;
     }
 
     @Override
-    public RegistrationOutcome register(RegisterRequest registerRequest) {
-        LOGGER.info("Processing registration request for email: {}", registerRequest.email());
+    public RegistrationResult register(RegisterRequest registerRequest) {
+        LOGGER.debug("Processing registration request");
 
         try {
             // Check if the user already exists
-            UsersResource usersResource = keycloakAdminClient.realm(keycloakRealm).users();
             LOGGER.debug("Checking is user already exists in Keycloak realm: {}", this.keycloakRealm);
-            if (!usersResource.searchByUsername(registerRequest.email(), true).isEmpty() || !usersResource.searchByEmail(registerRequest.email(), true).isEmpty()) {
-                LOGGER.warn("Registration failed: User with email {} already exists", registerRequest.email());
-                return RegistrationOutcome.USER_EXISTS;
+            if (keycloakUserStatusResolver.resolve(registerRequest.email()).exists()) {
+                AuthLogEvents.registrationRejected(LOGGER, registerRequest.email(), "user_exists");
+                return RegistrationResult.of(RegistrationOutcome.USER_EXISTS);
             }
 
-            // call async method here
-            LOGGER.info("User does not exist, delegating user creation to AsyncKeycloakTaskService for: {}", registerRequest.email());
-            asyncKeycloakTasksService.createUserInKeycloak(registerRequest);
+            // hand off to the registration queue, refuse instead of over-accepting when it is full
+            Optional<String> registrationId = registrationWorkQueue.offer(registerRequest);
+            if (registrationId.isEmpty()) {
+                AuthLogEvents.registrationRejected(LOGGER, registerRequest.email(), "queue_full");
+                return RegistrationResult.of(RegistrationOutcome.REGISTRATION_QUEUE_FULL);
+            }
 
-            // return a temp response
-            LOGGER.info("Sending a response, further user onboarding will be done on email");
-            return RegistrationOutcome.INITIATED_ASYNC_PROCESS;
+            // return a temp response, the registration id lets the client follow the async creation
+            AuthLogEvents.registrationQueued(LOGGER, registerRequest.email(), registrationId.get(), registrationQueuedLogOneIn);
+            return new RegistrationResult(RegistrationOutcome.INITIATED_ASYNC_PROCESS, registrationId);
         } catch (jakarta.ws.rs.ProcessingException e) {
             LOGGER.error("Failed to connect to Keycloak: {}", e.getMessage(), e);
-            return RegistrationOutcome.AUTH_PROVIDER_ERROR;
+            return RegistrationResult.of(RegistrationOutcome.AUTH_PROVIDER_ERROR);
         } catch (jakarta.ws.rs.WebApplicationException e) {
             LOGGER.error("Keycloak returned HTTP error: {} - {}", e.getResponse().getStatus(), e.getMessage(), e);
-            return RegistrationOutcome.AUTH_PROVIDER_ERROR;
+            return RegistrationResult.of(RegistrationOutcome.AUTH_PROVIDER_ERROR);
         } catch (Exception e) {
             LOGGER.error("Unexpected error during registration: {}", e.getMessage(), e);
-            return RegistrationOutcome.AUTH_PROVIDER_ERROR;
+            return RegistrationResult.of(RegistrationOutcome.AUTH_PROVIDER_ERROR);
         }
     }
 
+    @Override
+    public List<BulkRegistrationResult> registerBatch(List<RegisterRequest> registerRequests) {
+        LOGGER.info("Processing bulk registration chunk of {} users", registerRequests.size());
+        return keycloakBulkImporter.importUsers(registerRequests);
+    }
+
+    @Override
+    public Optional<RegistrationStatus> registrationStatus(String registrationId) {
+        return registrationWorkQueue.status(registrationId);
+    }
+
+    @Override
+    public void resendVerificationEmail(String email) {
+        LOGGER.debug("Processing verification email resend for: {}", email);
+        verificationEmailDispatcher.resend(email);
+    }
+
     @Override
     public LoginStatus login(LoginRequest loginRequest) {
-        LOGGER.info("Processing login request for email: {}", loginRequest.email());
-        UsersResource usersResource = keycloakAdminClient.realm(keycloakRealm).users();
+        LOGGER.debug("Processing login request");
+        try {
+            return loginMode == KeycloakLoginMode.OPTIMISTIC ? optimisticLogin(loginRequest) : standardLogin(loginRequest);
+        } catch (AuthProviderUnavailableException e) {
+            // open circuit or full bulkhead, answer right away instead of queueing behind a struggling Keycloak
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "keycloak_unavailable");
+            return new LoginStatus(LoginState.SERVER_ERROR, Optional.empty(), Optional.empty());
+        }
+    }
+
+    private LoginStatus standardLogin(LoginRequest loginRequest) {
+        UserStatus userStatus = keycloakUserStatusResolver.resolve(loginRequest.email());
         // 1. Check if user does not exist
-        boolean userExists = !usersResource.searchByUsername(loginRequest.email(), true).isEmpty() || !usersResource.searchByEmail(loginRequest.email(), true).isEmpty();
-        if (!userExists) {
-            LOGGER.warn("Login failed: User with email {} does not exist", loginRequest.email());
+        if (!userStatus.exists()) {
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "unknown_user");
             return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
         }
         // 2. Check if user verification is still pending
-        var userList = usersResource.searchByEmail(loginRequest.email(), true);
-        if (!userList.isEmpty() && userList.get(0).isEnabled() && !userList.get(0).isEmailVerified()) {
-            LOGGER.warn("Login failed: User email verification pending for {}", loginRequest.email());
+        if (userStatus.isPendingVerification()) {
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "email_not_verified");
             return new LoginStatus(LoginState.EMAIL_NOT_VERIFIED, Optional.empty(), Optional.empty());
         }
 
         // 3. If user exists and is verified, get access and refresh token
-        MultiValueMap<String, String> formParam = new LinkedMultiValueMap<>();
-        formParam.put("grant_type", Collections.singletonList("password"));
-        formParam.put("client_id", Collections.singletonList(keycloakClientId));
-        formParam.put("client_secret", Collections.singletonList(keycloakClientSecret));
-        formParam.put("username", Collections.singletonList(loginRequest.email()));
-        formParam.put("password", Collections.singletonList(loginRequest.password()));
-
-        Map<String, Object> tokenResponse = keycloakTokenFeignClient.getToken(keycloakRealm, formParam);
-        LOGGER.info("Token response: {}", tokenResponse);
-        String accessToken = tokenResponse.get("access_token") != null ? tokenResponse.get("access_token").toString() : null;
-        String refreshToken = tokenResponse.get("refresh_token") != null ? tokenResponse.get("refresh_token").toString() : null;
+        try {
+            return requestToken(loginRequest);
+        } catch (KeycloakTokenRejectedException e) {
+            if (!e.isInvalidGrant()) {
+                throw e;
+            }
+            // the account was checked above, so a rejected grant means a wrong password
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "invalid_credentials");
+            return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+        }
+    }
+
+    private LoginStatus optimisticLogin(LoginRequest loginRequest) {
+        try {
+            return requestToken(loginRequest);
+        } catch (KeycloakTokenRejectedException e) {
+            if (!e.isInvalidGrant()) {
+                throw e;
+            }
+            // Keycloak answers invalid_grant both for bad credentials and for pending required actions
+            // ("Account is not fully set up"), only the admin API can tell them apart
+            LOGGER.debug("Token grant rejected, checking user status");
+            if (keycloakUserStatusResolver.resolve(loginRequest.email()).isPendingVerification()) {
+                AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "email_not_verified");
+                return new LoginStatus(LoginState.EMAIL_NOT_VERIFIED, Optional.empty(), Optional.empty());
+            }
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "invalid_credentials");
+            return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+        }
+    }
+
+    private LoginStatus requestToken(LoginRequest loginRequest) {
+        Map<String, String> formParam = passwordGrant(keycloakClientId, keycloakClientSecret, loginRequest);
+
+        KeycloakTokenResponse tokenResponse = keycloakConcurrencyLimiter.execute("passwordGrant", () -> keycloakTokenClient.requestToken(keycloakRealm, formParam));
+        String accessToken = tokenResponse.accessToken();
+        String refreshToken = tokenResponse.refreshToken();
 
         if (accessToken == null) {
-            LOGGER.warn("Login failed: Invalid credentials for {}", loginRequest.email());
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "invalid_credentials");
             return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
         }
+        AuthLogEvents.loginSucceeded(LOGGER, loginRequest.email(), loginSuccessLogOneIn);
         return new LoginStatus(LoginState.LOGGED_IN, Optional.of(accessToken), Optional.ofNullable(refreshToken));
     }
+
+    static Map<String, String> passwordGrant(String clientId, String clientSecret, LoginRequest loginRequest) {
+        Map<String, String> formParam = new LinkedHashMap<>();
+        formParam.put("grant_type", "password");
+        formParam.put("client_id", clientId);
+        formParam.put("client_secret", clientSecret);
+        formParam.put("username", loginRequest.email());
+        formParam.put("password", loginRequest.password());
+        return formParam;
+    }
+
+    @Override
+    public LoginStatus refresh(String refreshToken) {
+        LOGGER.debug("Processing token refresh request");
+        // Clients tend to fire several refreshes with the same token at once, and Keycloak may revoke
+        // the token on first use, so concurrent refreshes share one upstream call
+        return refreshSingleFlight.execute(refreshToken, () -> requestRefresh(refreshToken));
+    }
+
+    private LoginStatus requestRefresh(String refreshToken) {
+        Map<String, String> formParam = new LinkedHashMap<>();
+        formParam.put("grant_type", "refresh_token");
+        formParam.put("client_id", keycloakClientId);
+        formParam.put("client_secret", keycloakClientSecret);
+        formParam.put("refresh_token", refreshToken);
+
+        try {
+            KeycloakTokenResponse tokenResponse = keycloakConcurrencyLimiter.execute("refreshGrant", () -> keycloakTokenClient.requestToken(keycloakRealm, formParam));
+            String accessToken = tokenResponse.accessToken();
+            String newRefreshToken = tokenResponse.refreshToken();
+            if (accessToken == null) {
+                LOGGER.warn("Token refresh failed: no access token in Keycloak response");
+                return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+            }
+            return new LoginStatus(LoginState.LOGGED_IN, Optional.of(accessToken), Optional.ofNullable(newRefreshToken));
+        } catch (KeycloakTokenRejectedException e) {
+            // expired, revoked or otherwise invalid refresh token
+            LOGGER.warn("Token refresh rejected by Keycloak with status {}", e.status());
+            return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+        } catch (AuthProviderUnavailableException e) {
+            LOGGER.warn("Token refresh failed fast: {}", e.getMessage());
+            return new LoginStatus(LoginState.SERVER_ERROR, Optional.empty(), Optional.empty());
+        }
+    }
 }
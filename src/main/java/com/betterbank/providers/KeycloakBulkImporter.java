@@ -0,0 +1,100 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.BulkRegistrationStatus;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.Response;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class KeycloakBulkImporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakBulkImporter.class);
+
+    private final Keycloak keycloakAdminClient;
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+    private final VerificationEmailDispatcher verificationEmailDispatcher;
+    private final String keycloakRealm;
+    private final KeycloakUserStatusResolver keycloakUserStatusResolver;
+
+    public KeycloakBulkImporter(Keycloak keycloakAdminClient, @Qualifier("keycloakAdminApiLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter, VerificationEmailDispatcher verificationEmailDispatcher, @Value("${app.config.keycloak.realm}") String keycloakRealm, KeycloakUserStatusResolver keycloakUserStatusResolver) {
+        this.keycloakAdminClient = keycloakAdminClient;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
+        this.verificationEmailDispatcher = verificationEmailDispatcher;
+        this.keycloakRealm = keycloakRealm;
+        this.keycloakUserStatusResolver = keycloakUserStatusResolver;
+    }
+
+    // Expects a chunk that is already validated and free of duplicate emails
+    public List<BulkRegistrationResult> importUsers(List<RegisterRequest> registerRequests) {
+        LOGGER.info("Importing a chunk of {} users into Keycloak realm {}", registerRequests.size(), keycloakRealm);
+
+        // 1. One partial import per chunk. SKIP makes Keycloak do the duplicate check for the whole
+        // chunk, which replaces a searchByUsername/searchByEmail pair per user
+        PartialImportRepresentation partialImport = new PartialImportRepresentation();
+        partialImport.setIfResourceExists(PartialImportRepresentation.Policy.SKIP.name());
+        partialImport.setUsers(registerRequests.stream().map(AsyncKeycloakTasksService::toUserRepresentation).toList());
+
+        Map<String, Map<String, Object>> resultsByUsername = new HashMap<>();
+        try (Response response = keycloakConcurrencyLimiter.execute("partialImport", () -> keycloakAdminClient.realm(keycloakRealm).partialImport(partialImport))) {
+            if (response.getStatus() != HttpStatus.OK.value()) {
+                LOGGER.error("Partial import of {} users failed. Status: {}, Error: {}", registerRequests.size(), response.getStatus(), response.readEntity(String.class));
+                return failAll(registerRequests);
+            }
+            Map<String, Object> body = response.readEntity(new GenericType<Map<String, Object>>() {
+            });
+            for (Object item : (List<?>) body.getOrDefault("results", List.of())) {
+                Map<String, Object> result = castResult(item);
+                if ("USER".equals(result.get("resourceType")) && result.get("resourceName") != null) {
+                    resultsByUsername.put(KeycloakUserStatusResolver.normalize(result.get("resourceName").toString()), result);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Partial import of {} users failed: {}", registerRequests.size(), e.getMessage(), e);
+            return failAll(registerRequests);
+        }
+
+        // 2. Map Keycloak's per-user actions back onto the request order
+        List<BulkRegistrationResult> results = new ArrayList<>(registerRequests.size());
+        for (RegisterRequest registerRequest : registerRequests) {
+            Map<String, Object> result = resultsByUsername.get(KeycloakUserStatusResolver.normalize(registerRequest.email()));
+            if (result == null) {
+                results.add(new BulkRegistrationResult(registerRequest.email(), BulkRegistrationStatus.AUTH_PROVIDER_ERROR));
+            } else if ("ADDED".equals(result.get("action"))) {
+                results.add(new BulkRegistrationResult(registerRequest.email(), BulkRegistrationStatus.CREATED));
+                keycloakUserStatusResolver.userCreated(registerRequest.email());
+                // partial import doesn't send the verification mail
+                verificationEmailDispatcher.dispatch(String.valueOf(result.get("id")), registerRequest.email());
+            } else {
+                results.add(new BulkRegistrationResult(registerRequest.email(), BulkRegistrationStatus.USER_EXISTS));
+                keycloakUserStatusResolver.userCreated(registerRequest.email());
+            }
+        }
+        return results;
+    }
+
+    private static List<BulkRegistrationResult> failAll(List<RegisterRequest> registerRequests) {
+        return registerRequests.stream()
+                .map(registerRequest -> new BulkRegistrationResult(registerRequest.email(), BulkRegistrationStatus.AUTH_PROVIDER_ERROR))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castResult(Object item) {
+        return (Map<String, Object>) item;
+    }
+}
@@ -0,0 +1,15 @@
+package com.betterbank.providers;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import java.util.Map;
+
+@FeignClient(name = "keycloakCertsClient", url = "${app.config.keycloak.url}")
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public interface KeycloakCertsFeignClient {
+    @GetMapping("/realms/{realm}/protocol/openid-connect/certs")
+    Map<String, Object> getCerts(@PathVariable("realm") String realm);
+}
@@ -0,0 +1,244 @@
+package com.betterbank.providers;
+
+import com.betterbank.concurrent.CircuitBreaker;
+import com.betterbank.exception.AuthProviderUnavailableException;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead and circuit breaker for one Keycloak endpoint (see KeycloakResilienceConfig). The bulkhead caps
+ * the number of calls in flight: with virtual threads the number of blocked callers is effectively
+ * unbounded, so this is what keeps a login storm from becoming a Keycloak storm. The circuit breaker
+ * stops calling an endpoint that keeps failing, so a Keycloak brownout costs callers nothing instead of
+ * a full timeout each.
+ */
+public class KeycloakConcurrencyLimiter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakConcurrencyLimiter.class);
+
+    private final String name;
+    private final Semaphore permits;
+    private final int maxConcurrentCalls;
+    private final long acquireTimeoutNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    public KeycloakConcurrencyLimiter(int maxConcurrentCalls, Duration acquireTimeout) {
+        this("keycloak", maxConcurrentCalls, acquireTimeout, null, Metrics.globalRegistry);
+    }
+
+    public KeycloakConcurrencyLimiter(String name, int maxConcurrentCalls, Duration acquireTimeout, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param operation name of the Keycloak call, used as the {@code operation} tag of the {@code keycloak.calls} timer
+     */
+    public <T> T execute(String operation, Supplier<T> call) {
+        acquireCircuitPermission(operation);
+        try {
+            acquire(operation);
+        } catch (AuthProviderUnavailableException e) {
+            releaseCircuitPermission();
+            throw e;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = call.get();
+            recordResult(result);
+            sample.stop(callTimer(operation, resultTag(result)));
+            return result;
+        } catch (Throwable e) {
+            // Errors too, a half-open probe that ends without an outcome would hold its permit forever
+            recordOutcome(e);
+            sample.stop(callTimer(operation, outcomeTag(e)));
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void execute(String operation, Runnable call) {
+        execute(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Non-blocking variant for callers that must not park their thread. Waiting for a slot would block,
+     * so the call is rejected straight away when the limit is reached.
+     */
+    public <T> CompletableFuture<T> executeAsync(String operation, Supplier<CompletableFuture<T>> call) {
+        try {
+            acquireCircuitPermission(operation);
+        } catch (AuthProviderUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!permits.tryAcquire()) {
+            releaseCircuitPermission();
+            rejectedCounter(operation, "bulkhead").increment();
+            LOGGER.warn("Keycloak {} concurrency limit of {} reached, rejecting async call", name, maxConcurrentCalls);
+            return CompletableFuture.failedFuture(new AuthProviderUnavailableException("Too many concurrent calls to Keycloak " + name));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return call.get().whenComplete((result, throwable) -> {
+                permits.release();
+                if (throwable == null) {
+                    recordResult(result);
+                    sample.stop(callTimer(operation, resultTag(result)));
+                } else {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    recordOutcome(cause);
+                    sample.stop(callTimer(operation, outcomeTag(cause)));
+                }
+            });
+        } catch (Throwable e) {
+            permits.release();
+            recordOutcome(e);
+            sample.stop(callTimer(operation, outcomeTag(e)));
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public int inFlightCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    public int waitingCalls() {
+        return permits.getQueueLength();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return circuitBreaker == null ? CircuitBreaker.State.CLOSED : circuitBreaker.state();
+    }
+
+    /**
+     * Whether an exception says something about Keycloak's health. Rejected grants and other 4xx
+     * answers are Keycloak working as intended and must not open the circuit.
+     */
+    static boolean isKeycloakFailure(Throwable throwable) {
+        if (throwable instanceof KeycloakTokenRejectedException) {
+            return false;
+        }
+        if (throwable instanceof jakarta.ws.rs.WebApplicationException e) {
+            return e.getResponse() == null || e.getResponse().getStatus() >= 500;
+        }
+        if (throwable instanceof FeignException e) {
+            // RetryableException (connect/read timeouts) carries no status
+            return e.status() < 400 || e.status() >= 500;
+        }
+        return true;
+    }
+
+    /**
+     * Admin calls such as {@code create} hand back the {@link Response} instead of throwing on an error status.
+     */
+    static boolean isFailedResponse(Object result) {
+        return result instanceof Response response && response.getStatus() >= 500;
+    }
+
+    private void acquire(String operation) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejectedCounter(operation, "bulkhead").increment();
+                LOGGER.warn("Keycloak {} concurrency limit of {} reached, rejecting call", name, maxConcurrentCalls);
+                throw new AuthProviderUnavailableException("Too many concurrent calls to Keycloak " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthProviderUnavailableException("Interrupted while waiting for a Keycloak call slot");
+        }
+    }
+
+    private void acquireCircuitPermission(String operation) {
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+            rejectedCounter(operation, "circuit-open").increment();
+            LOGGER.debug("Keycloak {} circuit is {}, failing fast", name, circuitBreaker.state());
+            throw new AuthProviderUnavailableException("Keycloak " + name + " circuit is open");
+        }
+    }
+
+    private Timer callTimer(String operation, String outcome) {
+        return Timer.builder("keycloak.calls")
+                .description("Latency of calls to Keycloak, excluding the wait for a bulkhead slot")
+                .tags("endpoint", name, "operation", operation, "outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter rejectedCounter(String operation, String reason) {
+        return Counter.builder("keycloak.calls.rejected")
+                .description("Keycloak calls that were never made because the bulkhead was full or the circuit open")
+                .tags("endpoint", name, "operation", operation, "reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static String resultTag(Object result) {
+        return isFailedResponse(result) ? "failure" : "success";
+    }
+
+    private static String outcomeTag(Throwable throwable) {
+        // a rejected grant is a successful round trip with a negative answer
+        return isKeycloakFailure(throwable) ? "failure" : "rejected";
+    }
+
+    private void releaseCircuitPermission() {
+        if (circuitBreaker != null) {
+            circuitBreaker.releasePermission();
+        }
+    }
+
+    private void recordResult(Object result) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (isFailedResponse(result)) {
+            recordFailure("status " + ((Response) result).getStatus());
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private void recordOutcome(Throwable throwable) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (isKeycloakFailure(throwable)) {
+            recordFailure(String.valueOf(throwable.getMessage()));
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private void recordFailure(String reason) {
+        CircuitBreaker.State before = circuitBreaker.state();
+        circuitBreaker.onFailure();
+        if (before != CircuitBreaker.State.OPEN && circuitBreaker.state() == CircuitBreaker.State.OPEN) {
+            LOGGER.error("Keycloak {} circuit opened after repeated failures, last: {}", name, reason);
+        }
+    }
+}
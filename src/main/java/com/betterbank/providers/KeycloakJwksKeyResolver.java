@@ -0,0 +1,146 @@
+package com.betterbank.providers;
+
+import com.betterbank.security.SigningKeyResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class KeycloakJwksKeyResolver implements SigningKeyResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakJwksKeyResolver.class);
+
+    private final KeycloakCertsFeignClient keycloakCertsFeignClient;
+    private final String keycloakRealm;
+    private final Executor executor;
+    private final Duration minRefreshInterval;
+    private final Duration refreshWait;
+
+    private final AtomicReference<CompletableFuture<Map<String, PublicKey>>> inFlightRefresh = new AtomicReference<>();
+    private volatile Map<String, PublicKey> keys;
+    private volatile long lastRefreshNanos;
+
+    public KeycloakJwksKeyResolver(KeycloakCertsFeignClient keycloakCertsFeignClient,
+                                   @Value("${app.config.keycloak.realm}") String keycloakRealm,
+                                   @Qualifier("taskExecutor") Executor executor,
+                                   @Value("${app.config.jwt.jwks.min-refresh-interval:PT30S}") Duration minRefreshInterval,
+                                   @Value("${app.config.jwt.jwks.refresh-wait:PT2S}") Duration refreshWait) {
+        this.keycloakCertsFeignClient = keycloakCertsFeignClient;
+        this.keycloakRealm = keycloakRealm;
+        this.executor = executor;
+        this.minRefreshInterval = minRefreshInterval;
+        this.refreshWait = refreshWait;
+    }
+
+    @Override
+    public Optional<PublicKey> resolve(String keyId) {
+        Map<String, PublicKey> current = keys;
+        if (current == null) {
+            // first use, nothing to fall back on so always fetch
+            current = awaitRefresh();
+        }
+        PublicKey key = current.get(keyId);
+        if (key != null) {
+            return Optional.of(key);
+        }
+
+        // Unknown key id usually means Keycloak rotated its keys. Rate limit refreshes so a flood of
+        // tokens with made-up key ids can't turn into a flood of JWKS fetches.
+        if (System.nanoTime() - lastRefreshNanos < minRefreshInterval.toNanos()) {
+            return Optional.empty();
+        }
+        LOGGER.info("Signing key {} not found in cached JWKS, refreshing", keyId);
+        return Optional.ofNullable(awaitRefresh().get(keyId));
+    }
+
+    private Map<String, PublicKey> awaitRefresh() {
+        try {
+            return triggerRefresh().get(refreshWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("JWKS refresh still running after {}, using cached keys", refreshWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Failed to fetch JWKS for realm {}: {}", keycloakRealm, e.getCause().getMessage());
+        }
+        Map<String, PublicKey> current = keys;
+        return current != null ? current : Map.of();
+    }
+
+    private CompletableFuture<Map<String, PublicKey>> triggerRefresh() {
+        while (true) {
+            CompletableFuture<Map<String, PublicKey>> existing = inFlightRefresh.get();
+            if (existing != null) {
+                return existing;
+            }
+            CompletableFuture<Map<String, PublicKey>> refresh = new CompletableFuture<>();
+            if (!inFlightRefresh.compareAndSet(null, refresh)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> runRefresh(refresh));
+            } catch (RuntimeException e) {
+                inFlightRefresh.set(null);
+                refresh.completeExceptionally(e);
+            }
+            return refresh;
+        }
+    }
+
+    private void runRefresh(CompletableFuture<Map<String, PublicKey>> refresh) {
+        try {
+            Map<String, PublicKey> fetched = parseKeys(keycloakCertsFeignClient.getCerts(keycloakRealm));
+            keys = fetched;
+            LOGGER.info("Loaded {} signing keys from JWKS of realm {}", fetched.size(), keycloakRealm);
+            refresh.complete(fetched);
+        } catch (Exception e) {
+            refresh.completeExceptionally(e);
+        } finally {
+            lastRefreshNanos = System.nanoTime();
+            inFlightRefresh.set(null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, PublicKey> parseKeys(Map<String, Object> jwks) throws Exception {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        Object jwkList = jwks.get("keys");
+        if (!(jwkList instanceof List<?> list)) {
+            return parsed;
+        }
+
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        for (Object item : list) {
+            Map<String, Object> jwk = (Map<String, Object>) item;
+            // Keycloak also publishes encryption keys (use=enc), only signing keys are of interest here
+            if (!"RSA".equals(jwk.get("kty")) || "enc".equals(jwk.get("use")) || jwk.get("kid") == null) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, decoder.decode(jwk.get("n").toString()));
+            BigInteger exponent = new BigInteger(1, decoder.decode(jwk.get("e").toString()));
+            parsed.put(jwk.get("kid").toString(), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+        return Map.copyOf(parsed);
+    }
+}
@@ -0,0 +1,159 @@
+package com.betterbank.providers;
+
+import com.betterbank.cache.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Bloom filter of every username and email in the realm, so that lookups for addresses that were never
+ * registered are answered without an admin API call.
+ * <p>
+ * The filter is loaded page by page in the background at startup and rebuilt every {@code refresh-interval};
+ * until the first load finishes every lookup goes to Keycloak. Users created through any replica are added
+ * right away (the other replicas hear about them through the user status cache invalidations), users created
+ * elsewhere, e.g. in the admin console, are only seen after the next rebuild and are treated as unknown until
+ * then, which is why the filter is off by default.
+ */
+@Component
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class KeycloakKnownUsersFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakKnownUsersFilter.class);
+
+    private final Keycloak keycloakAdminClient;
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+    private final String keycloakRealm;
+    private final boolean enabled;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+    private final int pageSize;
+    private final Duration refreshInterval;
+
+    private final Object lock = new Object();
+    private volatile BloomFilter current;
+    private BloomFilter building;
+    private Thread loader;
+
+    public KeycloakKnownUsersFilter(Keycloak keycloakAdminClient,
+                                    @Qualifier("keycloakAdminApiLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter,
+                                    @Value("${app.config.keycloak.realm}") String keycloakRealm,
+                                    @Value("${app.config.keycloak.known-users-filter.enabled:false}") boolean enabled,
+                                    @Value("${app.config.keycloak.known-users-filter.expected-users:1000000}") long expectedUsers,
+                                    @Value("${app.config.keycloak.known-users-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                    @Value("${app.config.keycloak.known-users-filter.page-size:500}") int pageSize,
+                                    @Value("${app.config.keycloak.known-users-filter.refresh-interval:PT15M}") Duration refreshInterval) {
+        this.keycloakAdminClient = keycloakAdminClient;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
+        this.keycloakRealm = keycloakRealm;
+        this.enabled = enabled;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.pageSize = pageSize;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        loader = new Thread(this::runLoader, "Auth-Service-Known-Users-Loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (loader != null) {
+            loader.interrupt();
+        }
+    }
+
+    /**
+     * @return true only when the filter is loaded and the normalized email was certainly never seen
+     */
+    public boolean definitelyUnknown(String normalizedEmail) {
+        BloomFilter filter = current;
+        return filter != null && !filter.mightContain(normalizedEmail);
+    }
+
+    public void add(String email) {
+        if (!enabled) {
+            return;
+        }
+        String key = KeycloakUserStatusResolver.normalize(email);
+        // the lock makes sure an add lands in the filter that is being built as well, a user created
+        // before the rebuild started is picked up by the listing anyway
+        synchronized (lock) {
+            if (current != null) {
+                current.put(key);
+            }
+            if (building != null) {
+                building.put(key);
+            }
+        }
+    }
+
+    void load() {
+        BloomFilter filter = new BloomFilter(expectedUsers, falsePositiveRate);
+        synchronized (lock) {
+            building = filter;
+        }
+        try {
+            long count = 0;
+            List<UserRepresentation> page;
+            do {
+                int first = (int) count;
+                page = keycloakConcurrencyLimiter.execute("listUsers", () -> keycloakAdminClient.realm(keycloakRealm).users().list(first, pageSize));
+                for (UserRepresentation user : page) {
+                    if (user.getUsername() != null) {
+                        filter.put(KeycloakUserStatusResolver.normalize(user.getUsername()));
+                    }
+                    if (user.getEmail() != null) {
+                        filter.put(KeycloakUserStatusResolver.normalize(user.getEmail()));
+                    }
+                }
+                count += page.size();
+            } while (page.size() == pageSize);
+
+            synchronized (lock) {
+                current = filter;
+            }
+            if (count > expectedUsers) {
+                LOGGER.warn("Loaded {} users into the known users filter sized for {}, raise expected-users to keep the false positive rate", count, expectedUsers);
+            } else {
+                LOGGER.info("Loaded {} users into the known users filter", count);
+            }
+        } finally {
+            synchronized (lock) {
+                building = null;
+            }
+        }
+    }
+
+    private void runLoader() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                load();
+            } catch (Exception e) {
+                // keep answering from the previous filter, or from Keycloak if there is none yet
+                LOGGER.warn("Loading the known users filter failed: {}", e.getMessage());
+            }
+            try {
+                Thread.sleep(refreshInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.betterbank.providers;
+
+public enum KeycloakLoginMode {
+    // check the user through the admin API before asking for a token
+    STANDARD,
+    // ask for a token first and only consult the admin API when the grant is rejected
+    OPTIMISTIC
+}
@@ -0,0 +1,8 @@
+package com.betterbank.providers;
+
+public enum KeycloakTaskResult {
+    SUCCEEDED,
+    CONFLICT,
+    RETRYABLE_FAILURE,
+    PERMANENT_FAILURE
+}
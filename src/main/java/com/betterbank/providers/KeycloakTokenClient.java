@@ -0,0 +1,26 @@
+package com.betterbank.providers;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client for the realm's OpenID Connect token endpoint, selected with {@code app.config.keycloak.token-client.type}.
+ * Implementations throw {@link KeycloakTokenRejectedException} when Keycloak rejects the grant.
+ */
+public interface KeycloakTokenClient {
+    KeycloakTokenResponse requestToken(String realm, Map<String, String> formParams);
+
+    /**
+     * Fetches the realm's OpenID Connect discovery document over the connections the grants use, which opens
+     * them without a grant that Keycloak would record as a failed event.
+     */
+    void fetchConfiguration(String realm);
+
+    default CompletableFuture<KeycloakTokenResponse> requestTokenAsync(String realm, Map<String, String> formParams) {
+        try {
+            return CompletableFuture.completedFuture(requestToken(realm, formParams));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
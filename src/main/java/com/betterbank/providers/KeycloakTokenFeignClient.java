@@ -1,8 +1,10 @@
 package com.betterbank.providers;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.MediaType;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -11,12 +13,16 @@ import org.springframework.web.bind.annotation.RequestParam;
 import java.util.Map;
 
 @FeignClient(name = "keycloakTokenClient", url = "${app.config.keycloak.url}")
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
 public interface KeycloakTokenFeignClient {
     @PostMapping(value = "/realms/{realm}/protocol/openid-connect/token",
             consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    Map<String, Object> getToken(
+    KeycloakTokenResponse getToken(
             @PathVariable("realm") String realm,
             @RequestBody MultiValueMap<String, String> formParams
     );
+
+    @GetMapping("/realms/{realm}/.well-known/openid-configuration")
+    Map<String, Object> getConfiguration(@PathVariable("realm") String realm);
 }
 
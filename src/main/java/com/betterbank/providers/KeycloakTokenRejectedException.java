@@ -0,0 +1,28 @@
+package com.betterbank.providers;
+
+/**
+ * The token endpoint answered 400 or 401, i.e. Keycloak rejected the grant itself
+ * (bad credentials, pending required actions, an expired refresh token, ...).
+ */
+public class KeycloakTokenRejectedException extends RuntimeException {
+    private final int status;
+    private final String body;
+
+    public KeycloakTokenRejectedException(int status, String body) {
+        super("Keycloak rejected the token request with status " + status);
+        this.status = status;
+        this.body = body;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public String body() {
+        return body;
+    }
+
+    public boolean isInvalidGrant() {
+        return body != null && body.contains("invalid_grant");
+    }
+}
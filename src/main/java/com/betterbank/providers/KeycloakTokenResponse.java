@@ -0,0 +1,21 @@
+package com.betterbank.providers;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record KeycloakTokenResponse(
+        @JsonProperty("access_token") String accessToken,
+        @JsonProperty("refresh_token") String refreshToken,
+        @JsonProperty("expires_in") long expiresIn,
+        @JsonProperty("refresh_expires_in") long refreshExpiresIn,
+        @JsonProperty("token_type") String tokenType
+) {
+    @Override
+    public String toString() {
+        // the tokens are credentials, keep them out of logs and exception messages
+        return "KeycloakTokenResponse[accessToken=" + (accessToken == null ? null : "***")
+                + ", refreshToken=" + (refreshToken == null ? null : "***")
+                + ", expiresIn=" + expiresIn + ", refreshExpiresIn=" + refreshExpiresIn + ", tokenType=" + tokenType + "]";
+    }
+}
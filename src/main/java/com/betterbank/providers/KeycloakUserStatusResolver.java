@@ -0,0 +1,95 @@
+package com.betterbank.providers;
+
+import com.betterbank.cache.TieredCache;
+import com.betterbank.cache.TieredCacheFactory;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class KeycloakUserStatusResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakUserStatusResolver.class);
+
+    private final Keycloak keycloakAdminClient;
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+    private final String keycloakRealm;
+    private final TieredCache<UserStatus> userStatusCache;
+    private final TieredCache<Boolean> notFoundCache;
+    private final KeycloakKnownUsersFilter knownUsersFilter;
+
+    public KeycloakUserStatusResolver(Keycloak keycloakAdminClient,
+                                      @Qualifier("keycloakAdminApiLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter,
+                                      @Value("${app.config.keycloak.realm}") String keycloakRealm,
+                                      @Value("${app.config.keycloak.user-status-cache.max-size:10000}") int cacheMaxSize,
+                                      @Value("${app.config.keycloak.user-status-cache.ttl:PT5M}") Duration cacheTtl,
+                                      @Value("${app.config.keycloak.user-status-cache.negative-max-size:10000}") int negativeCacheMaxSize,
+                                      @Value("${app.config.keycloak.user-status-cache.negative-ttl:PT30S}") Duration negativeCacheTtl,
+                                      KeycloakKnownUsersFilter knownUsersFilter,
+                                      TieredCacheFactory tieredCacheFactory) {
+        this.keycloakAdminClient = keycloakAdminClient;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
+        this.keycloakRealm = keycloakRealm;
+        this.userStatusCache = tieredCacheFactory.create("user-status", cacheMaxSize, cacheTtl, UserStatus.class);
+        // misses get a short ttl of their own, a user created outside this service shows up after at most that long
+        this.notFoundCache = tieredCacheFactory.create("user-not-found", negativeCacheMaxSize, negativeCacheTtl, Boolean.class);
+        this.knownUsersFilter = knownUsersFilter;
+        // a miss is only invalidated once the user exists, so this is how the other replicas' filters learn about it
+        this.notFoundCache.onInvalidation(knownUsersFilter::add);
+    }
+
+    public UserStatus resolve(String email) {
+        String key = normalize(email);
+        Optional<UserStatus> cached = userStatusCache.get(key);
+        if (cached.isPresent()) {
+            LOGGER.debug("User status cache hit for {}", key);
+            return cached.get();
+        }
+        if (notFoundCache.get(key).isPresent() || knownUsersFilter.definitelyUnknown(key)) {
+            LOGGER.debug("User {} is known not to exist", key);
+            return UserStatus.NOT_FOUND;
+        }
+
+        // Usernames are always the email address, so a single exact email search is enough
+        List<UserRepresentation> users = keycloakConcurrencyLimiter.execute("searchByEmail", () -> keycloakAdminClient.realm(keycloakRealm).users().searchByEmail(key, true));
+        if (users.isEmpty()) {
+            notFoundCache.put(key, Boolean.TRUE);
+            return UserStatus.NOT_FOUND;
+        }
+
+        UserRepresentation user = users.get(0);
+        UserStatus userStatus = new UserStatus(true, Boolean.TRUE.equals(user.isEnabled()), Boolean.TRUE.equals(user.isEmailVerified()));
+
+        // A pending verification can flip at any moment, only cache states that won't change on their own
+        if (!userStatus.isPendingVerification()) {
+            userStatusCache.put(key, userStatus);
+        }
+        return userStatus;
+    }
+
+    public void invalidate(String email) {
+        String key = normalize(email);
+        userStatusCache.invalidate(key);
+        notFoundCache.invalidate(key);
+    }
+
+    // Called once Keycloak has the user, so that neither the negative cache nor the filter hides it
+    public void userCreated(String email) {
+        knownUsersFilter.add(email);
+        invalidate(email);
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,181 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.BulkRegistrationStatus;
+import com.betterbank.dto.response.LoginState;
+import com.betterbank.dto.response.LoginStatus;
+import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.betterbank.logging.AuthLogEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * {@link AuthProvider} without Keycloak: users live in the {@link LocalUserStore}, passwords are hashed
+ * with the configured KDF and tokens are signed by the {@link LocalTokenIssuer}. Nothing goes over the
+ * network, which makes it the baseline for capacity tests and a provider for test and edge environments.
+ * <p>
+ * Registrations are done right away, the registration id is the user id and its status is
+ * {@link RegistrationStatus#COMPLETED} from the start. There is no mail transport: when email verification
+ * is required, new users stay pending until {@link #verifyEmail} is called for them, which
+ * {@link com.betterbank.controller.LocalEmailVerificationController} exposes.
+ */
+public class LocalAuthProvider implements AuthProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalAuthProvider.class);
+
+    private final LocalUserStore localUserStore;
+    private final LocalTokenIssuer localTokenIssuer;
+    private final PasswordEncoder passwordEncoder;
+    private final boolean emailVerificationRequired;
+    private final int loginSuccessLogOneIn;
+    private final Clock clock;
+    private final String unknownUserHash;
+
+    public LocalAuthProvider(LocalUserStore localUserStore, LocalTokenIssuer localTokenIssuer, PasswordEncoder passwordEncoder,
+                             boolean emailVerificationRequired, int loginSuccessLogOneIn) {
+        this(localUserStore, localTokenIssuer, passwordEncoder, emailVerificationRequired, loginSuccessLogOneIn, Clock.systemUTC());
+    }
+
+    LocalAuthProvider(LocalUserStore localUserStore, LocalTokenIssuer localTokenIssuer, PasswordEncoder passwordEncoder,
+                      boolean emailVerificationRequired, int loginSuccessLogOneIn, Clock clock) {
+        this.localUserStore = localUserStore;
+        this.localTokenIssuer = localTokenIssuer;
+        this.passwordEncoder = passwordEncoder;
+        this.emailVerificationRequired = emailVerificationRequired;
+        this.loginSuccessLogOneIn = loginSuccessLogOneIn;
+        this.clock = clock;
+        // checked against on logins for unknown emails, so they take as long as a wrong password
+        this.unknownUserHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    @Override
+    public RegistrationResult register(RegisterRequest registerRequest) {
+        LOGGER.debug("Processing local registration request");
+        String email = KeycloakUserStatusResolver.normalize(registerRequest.email());
+        // checked before hashing, the KDF is the expensive part
+        if (localUserStore.findByEmail(email).isPresent()) {
+            AuthLogEvents.registrationRejected(LOGGER, email, "user_exists");
+            return RegistrationResult.of(RegistrationOutcome.USER_EXISTS);
+        }
+        try {
+            LocalUser user = newUser(registerRequest, passwordEncoder.encode(registerRequest.password()));
+            if (!localUserStore.insert(user)) {
+                AuthLogEvents.registrationRejected(LOGGER, email, "user_exists");
+                return RegistrationResult.of(RegistrationOutcome.USER_EXISTS);
+            }
+            return new RegistrationResult(RegistrationOutcome.INITIATED_ASYNC_PROCESS, Optional.of(user.id().toString()));
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error during local registration: {}", e.getMessage(), e);
+            return RegistrationResult.of(RegistrationOutcome.AUTH_PROVIDER_ERROR);
+        }
+    }
+
+    @Override
+    public List<BulkRegistrationResult> registerBatch(List<RegisterRequest> registerRequests) {
+        LOGGER.info("Processing local bulk registration chunk of {} users", registerRequests.size());
+        // the chunk is validated and free of duplicates already; hashing dominates, so it runs in parallel
+        return registerRequests.parallelStream()
+                .map(registerRequest -> new BulkRegistrationResult(registerRequest.email(), registerOne(registerRequest)))
+                .toList();
+    }
+
+    private BulkRegistrationStatus registerOne(RegisterRequest registerRequest) {
+        if (localUserStore.findByEmail(registerRequest.email()).isPresent()) {
+            return BulkRegistrationStatus.USER_EXISTS;
+        }
+        try {
+            LocalUser user = newUser(registerRequest, passwordEncoder.encode(registerRequest.password()));
+            return localUserStore.insert(user) ? BulkRegistrationStatus.CREATED : BulkRegistrationStatus.USER_EXISTS;
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error during local bulk registration: {}", e.getMessage(), e);
+            return BulkRegistrationStatus.AUTH_PROVIDER_ERROR;
+        }
+    }
+
+    @Override
+    public LoginStatus login(LoginRequest loginRequest) {
+        LOGGER.debug("Processing local login request");
+        Optional<LocalUser> user = localUserStore.findByEmail(loginRequest.email());
+        if (user.isEmpty()) {
+            passwordEncoder.matches(loginRequest.password(), unknownUserHash);
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "unknown_user");
+            return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+        }
+        // unlike the Keycloak provider's standard mode the password comes first, so a pending account is
+        // only revealed to someone who knows its password
+        if (!passwordEncoder.matches(loginRequest.password(), user.get().passwordHash())) {
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "invalid_credentials");
+            return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+        }
+        if (!user.get().emailVerified()) {
+            AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "email_not_verified");
+            return new LoginStatus(LoginState.EMAIL_NOT_VERIFIED, Optional.empty(), Optional.empty());
+        }
+        if (passwordEncoder.upgradeEncoding(user.get().passwordHash())) {
+            // hashed with a KDF or cost that is no longer configured, the plain password is only at hand now
+            localUserStore.update(user.get().withPasswordHash(passwordEncoder.encode(loginRequest.password())));
+        }
+        AuthLogEvents.loginSucceeded(LOGGER, loginRequest.email(), loginSuccessLogOneIn);
+        return tokens(user.get());
+    }
+
+    @Override
+    public LoginStatus refresh(String refreshToken) {
+        LOGGER.debug("Processing local token refresh request");
+        Optional<LocalUser> user = localTokenIssuer.verifyRefreshToken(refreshToken).flatMap(localUserStore::findById);
+        if (user.isEmpty() || !user.get().emailVerified()) {
+            LOGGER.warn("Token refresh rejected: invalid or expired refresh token");
+            return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+        }
+        return tokens(user.get());
+    }
+
+    @Override
+    public Optional<RegistrationStatus> registrationStatus(String registrationId) {
+        try {
+            return localUserStore.findById(UUID.fromString(registrationId)).map(user -> RegistrationStatus.COMPLETED);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void resendVerificationEmail(String email) {
+        // nothing to send with, only worth a note for whoever runs the environment
+        localUserStore.findByEmail(email)
+                .filter(user -> !user.emailVerified())
+                .ifPresent(user -> LOGGER.info("Verification requested for pending local user {}, local mode sends no mail", user.id()));
+    }
+
+    /**
+     * Marks the account of {@code email} as verified, the local stand-in for following the link in the
+     * verification mail.
+     *
+     * @return false when there is no such account
+     */
+    public boolean verifyEmail(String email) {
+        Optional<LocalUser> user = localUserStore.findByEmail(email);
+        if (user.isEmpty()) {
+            return false;
+        }
+        return user.get().emailVerified() || localUserStore.update(user.get().withEmailVerified());
+    }
+
+    private LocalUser newUser(RegisterRequest registerRequest, String passwordHash) {
+        return new LocalUser(UUID.randomUUID(), KeycloakUserStatusResolver.normalize(registerRequest.email()),
+                registerRequest.firstName(), registerRequest.lastName(), passwordHash, !emailVerificationRequired, clock.millis());
+    }
+
+    private LoginStatus tokens(LocalUser user) {
+        return new LoginStatus(LoginState.LOGGED_IN, Optional.of(localTokenIssuer.accessToken(user)), Optional.of(localTokenIssuer.refreshToken(user)));
+    }
+}
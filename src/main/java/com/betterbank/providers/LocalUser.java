@@ -0,0 +1,98 @@
+package com.betterbank.providers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A user of {@link LocalAuthProvider}. {@link LocalUserStore} keeps every user as one encoded byte array,
+ * which is also the user's form in the snapshot file: the id, the creation time, the flags and then the
+ * normalized email, names and password hash as length-prefixed UTF-8.
+ */
+public record LocalUser(
+        UUID id,
+        String email,
+        String firstName,
+        String lastName,
+        String passwordHash,
+        boolean emailVerified,
+        long createdAtMillis
+) {
+    private static final int EMAIL_VERIFIED = 1;
+    private static final int EMAIL_OFFSET = 25;
+
+    public LocalUser withEmailVerified() {
+        return new LocalUser(id, email, firstName, lastName, passwordHash, true, createdAtMillis);
+    }
+
+    public LocalUser withPasswordHash(String passwordHash) {
+        return new LocalUser(id, email, firstName, lastName, passwordHash, emailVerified, createdAtMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "LocalUser[id=" + id + ", email=" + email + ", emailVerified=" + emailVerified + "]";
+    }
+
+    byte[] encode() {
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        byte[] firstNameBytes = firstName.getBytes(StandardCharsets.UTF_8);
+        byte[] lastNameBytes = lastName.getBytes(StandardCharsets.UTF_8);
+        byte[] passwordHashBytes = passwordHash.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(EMAIL_OFFSET + 8 + emailBytes.length + firstNameBytes.length + lastNameBytes.length + passwordHashBytes.length)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .putLong(createdAtMillis)
+                .put((byte) (emailVerified ? EMAIL_VERIFIED : 0));
+        putString(buffer, emailBytes);
+        putString(buffer, firstNameBytes);
+        putString(buffer, lastNameBytes);
+        putString(buffer, passwordHashBytes);
+        return buffer.array();
+    }
+
+    static LocalUser decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        long createdAtMillis = buffer.getLong();
+        boolean emailVerified = (buffer.get() & EMAIL_VERIFIED) != 0;
+        return new LocalUser(id, getString(buffer), getString(buffer), getString(buffer), getString(buffer), emailVerified, createdAtMillis);
+    }
+
+    /**
+     * Compares the stored email without decoding the record. Tolerates records that are not fully visible
+     * yet, the store's optimistic reads may look at one.
+     */
+    static boolean hasEmail(byte[] record, byte[] normalizedEmail) {
+        if (record == null || record.length < EMAIL_OFFSET + 2) {
+            return false;
+        }
+        int length = ((record[EMAIL_OFFSET] & 0xFF) << 8) | (record[EMAIL_OFFSET + 1] & 0xFF);
+        int from = EMAIL_OFFSET + 2;
+        return length == normalizedEmail.length && from + length <= record.length
+                && Arrays.equals(record, from, from + length, normalizedEmail, 0, length);
+    }
+
+    static boolean hasId(byte[] record, UUID id) {
+        if (record == null || record.length < 16) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        return buffer.getLong(0) == id.getMostSignificantBits() && buffer.getLong(8) == id.getLeastSignificantBits();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value.length > 0xFFFF) {
+            throw new IllegalArgumentException("Field of " + value.length + " bytes does not fit a local user record");
+        }
+        buffer.putShort((short) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
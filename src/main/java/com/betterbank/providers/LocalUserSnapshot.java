@@ -0,0 +1,104 @@
+package com.betterbank.providers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot file of {@link LocalUserStore}: a header, the encoded users back to back, each with its length,
+ * and a CRC32C over them. Both directions go through a memory mapping, so a snapshot of a million users
+ * is one bulk copy instead of a million small reads or writes.
+ * <p>
+ * A snapshot is written to a temporary file and moved over the previous one, a crash while writing
+ * leaves the previous snapshot in place.
+ */
+public class LocalUserSnapshot {
+    private static final int MAGIC = 0x42424C55;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 12;
+    private static final int TRAILER_LENGTH = 8;
+
+    private final Path path;
+
+    public LocalUserSnapshot(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the encoded users, empty when there is no snapshot yet
+     * @throws IllegalStateException when the file is not a snapshot or is damaged
+     */
+    public List<byte[]> read() {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + TRAILER_LENGTH || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Local user snapshot " + path + " has an invalid size of " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalStateException(path + " is not a local user snapshot of this version");
+            }
+            int count = buffer.getInt();
+
+            int bodyEnd = (int) size - TRAILER_LENGTH;
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(HEADER_LENGTH, bodyEnd - HEADER_LENGTH));
+            if (crc.getValue() != buffer.getLong(bodyEnd)) {
+                throw new IllegalStateException("Local user snapshot " + path + " is damaged, checksum mismatch");
+            }
+
+            List<byte[]> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] record = new byte[buffer.getInt()];
+                buffer.get(record);
+                records.add(record);
+            }
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read local user snapshot " + path, e);
+        }
+    }
+
+    public void write(List<byte[]> records) {
+        long size = HEADER_LENGTH + TRAILER_LENGTH;
+        for (byte[] record : records) {
+            size += 4 + record.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Local user snapshot of " + size + " bytes exceeds the 2 GiB a single mapping can hold");
+        }
+
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path next = path.resolveSibling(path.getFileName() + ".next");
+            try (FileChannel channel = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(records.size());
+                for (byte[] record : records) {
+                    buffer.putInt(record.length).put(record);
+                }
+                int bodyEnd = buffer.position();
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.slice(HEADER_LENGTH, bodyEnd - HEADER_LENGTH));
+                buffer.putLong(bodyEnd, crc.getValue());
+                buffer.force();
+            }
+            Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write local user snapshot " + path, e);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.betterbank.providers;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Users of {@link LocalAuthProvider}, in memory. Every user is one encoded byte array in a row table, found
+ * through two open-addressing indexes over plain {@code long}/{@code int} arrays: one keyed by a 64-bit
+ * hash of the normalized email, one by the user id. Hash collisions are resolved by comparing the row,
+ * so no key objects are kept at all.
+ * <p>
+ * Lookups run under an optimistic read of a {@link StampedLock} and only take the read lock when a write
+ * got in between; writes are rare next to logins. The table is written to a {@link LocalUserSnapshot}
+ * every {@code snapshot.interval} when it changed, and on shutdown. Users registered after the last
+ * snapshot are lost on a crash.
+ */
+@Component
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "local")
+public class LocalUserStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalUserStore.class);
+
+    private final StampedLock lock = new StampedLock();
+    private final LocalUserSnapshot snapshot;
+    private final Duration snapshotInterval;
+    private final ScheduledExecutorService snapshotScheduler;
+
+    private byte[][] rows;
+    private int size;
+    private LongIndex emailIndex;
+    private LongIndex idIndex;
+    private long version;
+    private long snapshotVersion;
+
+    public LocalUserStore(@Value("${app.config.auth.local.snapshot.path:data/local-users.snapshot}") String snapshotPath,
+                          @Value("${app.config.auth.local.snapshot.interval:PT1M}") Duration snapshotInterval,
+                          @Value("${app.config.auth.local.initial-capacity:1024}") int initialCapacity,
+                          MeterRegistry meterRegistry) {
+        this.snapshot = snapshotPath.isBlank() ? null : new LocalUserSnapshot(Path.of(snapshotPath));
+        this.snapshotInterval = snapshotInterval;
+        this.rows = new byte[Math.max(16, initialCapacity)][];
+        this.emailIndex = new LongIndex(rows.length * 2);
+        this.idIndex = new LongIndex(rows.length * 2);
+        this.snapshotScheduler = snapshot == null ? null : Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "Auth-Service-Local-User-Snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("auth.local.users", this, LocalUserStore::size).description("Users in the local user store").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (snapshot == null) {
+            LOGGER.warn("No local user snapshot path configured, local users will not survive a restart");
+            return;
+        }
+        List<byte[]> records = snapshot.read();
+        long stamp = lock.writeLock();
+        try {
+            records.forEach(this::append);
+            snapshotVersion = version;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        LOGGER.info("Loaded {} local users from the snapshot", records.size());
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (snapshot != null) {
+            snapshotScheduler.shutdownNow();
+            writeSnapshot();
+        }
+    }
+
+    public Optional<LocalUser> findByEmail(String email) {
+        byte[] normalizedEmail = KeycloakUserStatusResolver.normalize(email).getBytes(StandardCharsets.UTF_8);
+        long key = emailKey(normalizedEmail);
+        long stamp = lock.tryOptimisticRead();
+        byte[] record = findByEmail(key, normalizedEmail);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                record = findByEmail(key, normalizedEmail);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Optional.ofNullable(record).map(LocalUser::decode);
+    }
+
+    public Optional<LocalUser> findById(UUID id) {
+        long key = idKey(id);
+        long stamp = lock.tryOptimisticRead();
+        byte[] record = findById(key, id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                record = findById(key, id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Optional.ofNullable(record).map(LocalUser::decode);
+    }
+
+    /**
+     * @param user with its email already normalized
+     * @return false when a user with the same email exists already
+     */
+    public boolean insert(LocalUser user) {
+        byte[] record = user.encode();
+        byte[] normalizedEmail = user.email().getBytes(StandardCharsets.UTF_8);
+        long stamp = lock.writeLock();
+        try {
+            if (findByEmail(emailKey(normalizedEmail), normalizedEmail) != null) {
+                return false;
+            }
+            append(record);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the stored user with the same id; the email must not change.
+     *
+     * @return false when there is no such user
+     */
+    public boolean update(LocalUser user) {
+        byte[] record = user.encode();
+        long stamp = lock.writeLock();
+        try {
+            int row = idIndex.find(idKey(user.id()), candidate -> LocalUser.hasId(rows[candidate], user.id()));
+            if (row < 0) {
+                return false;
+            }
+            rows[row] = record;
+            version++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
+    }
+
+    void writeSnapshot() {
+        // rows are never modified in place, so the copied references are a consistent picture
+        List<byte[]> records;
+        long copiedVersion;
+        long stamp = lock.readLock();
+        try {
+            if (version == snapshotVersion) {
+                return;
+            }
+            records = Arrays.asList(Arrays.copyOf(rows, size));
+            copiedVersion = version;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        synchronized (snapshot) {
+            snapshot.write(records);
+        }
+        stamp = lock.writeLock();
+        try {
+            snapshotVersion = Math.max(snapshotVersion, copiedVersion);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        LOGGER.debug("Wrote {} local users to the snapshot", records.size());
+    }
+
+    private void snapshotQuietly() {
+        try {
+            writeSnapshot();
+        } catch (RuntimeException e) {
+            // the next run tries again, the previous snapshot is still in place
+            LOGGER.error("Writing the local user snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // caller holds the write lock
+    private void append(byte[] record) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        // the row goes in before the index entries, so an optimistic reader never finds an empty row
+        int row = size;
+        rows[row] = record;
+        size++;
+        LocalUser user = LocalUser.decode(record);
+        emailIndex = emailIndex.withRoomFor(size);
+        idIndex = idIndex.withRoomFor(size);
+        emailIndex.add(emailKey(user.email().getBytes(StandardCharsets.UTF_8)), row);
+        idIndex.add(idKey(user.id()), row);
+        version++;
+    }
+
+    // safe to call without a lock, a racing write makes it return a wrong answer that the caller discards
+    private byte[] findByEmail(long key, byte[] normalizedEmail) {
+        byte[][] currentRows = rows;
+        int row = emailIndex.find(key, candidate -> candidate < currentRows.length && LocalUser.hasEmail(currentRows[candidate], normalizedEmail));
+        return row < 0 ? null : currentRows[row];
+    }
+
+    private byte[] findById(long key, UUID id) {
+        byte[][] currentRows = rows;
+        int row = idIndex.find(key, candidate -> candidate < currentRows.length && LocalUser.hasId(currentRows[candidate], id));
+        return row < 0 ? null : currentRows[row];
+    }
+
+    static long emailKey(byte[] normalizedEmail) {
+        // FNV-1a, spread by the murmur3 finalizer so that linear probing doesn't cluster
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : normalizedEmail) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return nonZero(mix(hash));
+    }
+
+    private static long idKey(UUID id) {
+        return nonZero(mix(id.getMostSignificantBits() ^ id.getLeastSignificantBits()));
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Open-addressing multimap from a non-zero {@code long} key to {@code int} rows, with linear probing.
+     * Equal keys get a slot each, {@link #find} checks every one of them against the row.
+     */
+    static final class LongIndex {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        LongIndex(int minCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(16, minCapacity) - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * @return this index, or a bigger copy once {@code entries} would fill more than half of it
+         */
+        LongIndex withRoomFor(int entries) {
+            if (entries * 2 <= keys.length) {
+                return this;
+            }
+            LongIndex grown = new LongIndex(keys.length * 2);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    grown.add(keys[slot], values[slot]);
+                }
+            }
+            return grown;
+        }
+
+        void add(long key, int value) {
+            int slot = (int) key & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            // the value goes in before the key, a reader only looks at values of keys it sees
+            values[slot] = value;
+            keys[slot] = key;
+        }
+
+        int find(long key, IntPredicate matches) {
+            // bounded, so a reader racing a writer can't loop forever
+            for (int probe = 0, slot = (int) key & mask; probe <= mask; probe++, slot = (slot + 1) & mask) {
+                long candidate = keys[slot];
+                if (candidate == 0) {
+                    return -1;
+                }
+                if (candidate == key && matches.test(values[slot])) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.RegisterRequest;
+
+public record PendingRegistration(
+        String id,
+        RegisterRequest registerRequest
+) {
+}
@@ -0,0 +1,16 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginStatus;
+import com.betterbank.dto.response.RegistrationResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link AuthProvider} for the login and register hot paths.
+ */
+public interface ReactiveAuthProvider {
+    Mono<RegistrationResult> register(RegisterRequest registerRequest);
+
+    Mono<LoginStatus> login(LoginRequest loginRequest);
+}
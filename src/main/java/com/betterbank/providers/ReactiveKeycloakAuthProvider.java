@@ -0,0 +1,141 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginState;
+import com.betterbank.dto.response.LoginStatus;
+import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.exception.AuthProviderUnavailableException;
+import com.betterbank.logging.AuthLogEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Reactive Keycloak provider. The token grant is an async call on the {@link KeycloakTokenClient}
+ * (non-blocking end to end with {@code app.config.keycloak.token-client.type=http}), while the admin
+ * API lookups, which only exist as blocking RESTEasy calls, are moved to the bounded elastic scheduler.
+ */
+public class ReactiveKeycloakAuthProvider implements ReactiveAuthProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveKeycloakAuthProvider.class);
+
+    private final KeycloakTokenClient keycloakTokenClient;
+    private final KeycloakUserStatusResolver keycloakUserStatusResolver;
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+    private final RegistrationWorkQueue registrationWorkQueue;
+    private final String keycloakRealm;
+    private final String keycloakClientId;
+    private final String keycloakClientSecret;
+    private final KeycloakLoginMode loginMode;
+    private final int loginSuccessLogOneIn;
+    private final int registrationQueuedLogOneIn;
+
+    public ReactiveKeycloakAuthProvider(KeycloakTokenClient keycloakTokenClient, KeycloakUserStatusResolver keycloakUserStatusResolver,
+                                        KeycloakConcurrencyLimiter keycloakConcurrencyLimiter, RegistrationWorkQueue registrationWorkQueue,
+                                        String keycloakRealm, String keycloakClientId, String keycloakClientSecret, KeycloakLoginMode loginMode,
+                                        int loginSuccessLogOneIn, int registrationQueuedLogOneIn) {
+        this.keycloakTokenClient = keycloakTokenClient;
+        this.keycloakUserStatusResolver = keycloakUserStatusResolver;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
+        this.registrationWorkQueue = registrationWorkQueue;
+        this.keycloakRealm = keycloakRealm;
+        this.keycloakClientId = keycloakClientId;
+        this.keycloakClientSecret = keycloakClientSecret;
+        this.loginMode = loginMode;
+        this.loginSuccessLogOneIn = loginSuccessLogOneIn;
+        this.registrationQueuedLogOneIn = registrationQueuedLogOneIn;
+    }
+
+    @Override
+    public Mono<RegistrationResult> register(RegisterRequest registerRequest) {
+        LOGGER.debug("Processing reactive registration request");
+        return resolveUserStatus(registerRequest.email())
+                .map(userStatus -> {
+                    if (userStatus.exists()) {
+                        AuthLogEvents.registrationRejected(LOGGER, registerRequest.email(), "user_exists");
+                        return RegistrationResult.of(RegistrationOutcome.USER_EXISTS);
+                    }
+                    Optional<String> registrationId = registrationWorkQueue.offer(registerRequest);
+                    if (registrationId.isEmpty()) {
+                        AuthLogEvents.registrationRejected(LOGGER, registerRequest.email(), "queue_full");
+                        return RegistrationResult.of(RegistrationOutcome.REGISTRATION_QUEUE_FULL);
+                    }
+                    AuthLogEvents.registrationQueued(LOGGER, registerRequest.email(), registrationId.get(), registrationQueuedLogOneIn);
+                    return new RegistrationResult(RegistrationOutcome.INITIATED_ASYNC_PROCESS, registrationId);
+                })
+                .onErrorResume(e -> {
+                    LOGGER.error("Unexpected error during registration: {}", e.getMessage(), e);
+                    return Mono.just(RegistrationResult.of(RegistrationOutcome.AUTH_PROVIDER_ERROR));
+                });
+    }
+
+    @Override
+    public Mono<LoginStatus> login(LoginRequest loginRequest) {
+        LOGGER.debug("Processing reactive login request");
+        return doLogin(loginRequest)
+                .onErrorResume(AuthProviderUnavailableException.class, e -> {
+                    AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "keycloak_unavailable");
+                    return Mono.just(new LoginStatus(LoginState.SERVER_ERROR, Optional.empty(), Optional.empty()));
+                });
+    }
+
+    private Mono<LoginStatus> doLogin(LoginRequest loginRequest) {
+        if (loginMode == KeycloakLoginMode.OPTIMISTIC) {
+            return requestToken(loginRequest)
+                    .onErrorResume(KeycloakTokenRejectedException.class, e -> e.isInvalidGrant()
+                            ? resolveUserStatus(loginRequest.email()).map(userStatus -> userStatus.isPendingVerification() ? emailNotVerified() : invalidCredentials())
+                            : Mono.error(e));
+        }
+
+        return resolveUserStatus(loginRequest.email())
+                .flatMap(userStatus -> {
+                    if (!userStatus.exists()) {
+                        AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "unknown_user");
+                        return Mono.just(invalidCredentials());
+                    }
+                    if (userStatus.isPendingVerification()) {
+                        AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "email_not_verified");
+                        return Mono.just(emailNotVerified());
+                    }
+                    return requestToken(loginRequest)
+                            .onErrorResume(KeycloakTokenRejectedException.class, e -> {
+                                if (!e.isInvalidGrant()) {
+                                    return Mono.error(e);
+                                }
+                                AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "invalid_credentials");
+                                return Mono.just(invalidCredentials());
+                            });
+                });
+    }
+
+    private Mono<UserStatus> resolveUserStatus(String email) {
+        // cache hits return immediately, misses block on the admin API so they must not run on the caller's thread
+        return Mono.fromCallable(() -> keycloakUserStatusResolver.resolve(email))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<LoginStatus> requestToken(LoginRequest loginRequest) {
+        return Mono.fromFuture(() -> keycloakConcurrencyLimiter.executeAsync("passwordGrant", () -> keycloakTokenClient.requestTokenAsync(keycloakRealm,
+                        KeycloakAuthProvider.passwordGrant(keycloakClientId, keycloakClientSecret, loginRequest))))
+                .map(tokenResponse -> {
+                    if (tokenResponse.accessToken() == null) {
+                        AuthLogEvents.loginFailed(LOGGER, loginRequest.email(), "invalid_credentials");
+                        return invalidCredentials();
+                    }
+                    AuthLogEvents.loginSucceeded(LOGGER, loginRequest.email(), loginSuccessLogOneIn);
+                    return new LoginStatus(LoginState.LOGGED_IN, Optional.of(tokenResponse.accessToken()), Optional.ofNullable(tokenResponse.refreshToken()));
+                });
+    }
+
+    private static LoginStatus invalidCredentials() {
+        return new LoginStatus(LoginState.INVALID_CREDENTIALS, Optional.empty(), Optional.empty());
+    }
+
+    private static LoginStatus emailNotVerified() {
+        return new LoginStatus(LoginState.EMAIL_NOT_VERIFIED, Optional.empty(), Optional.empty());
+    }
+}
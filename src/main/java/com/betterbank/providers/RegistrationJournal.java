@@ -0,0 +1,177 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.RegisterRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of accepted registrations. Every accepted request is written as an
+ * {@code E} record before it is queued and closed by a {@code D} record once the worker is done with it,
+ * so whatever has no {@code D} record on startup is still pending. Payloads carry the user's password
+ * and are therefore AES-GCM encrypted.
+ */
+public class RegistrationJournal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistrationJournal.class);
+
+    private static final String ENQUEUED = "E";
+    private static final String DONE = "D";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final Path path;
+    private final SecretKey key;
+    private final boolean fsync;
+    private final long compactThresholdBytes;
+    private final ObjectMapper objectMapper;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private FileChannel channel;
+    private int pendingCount;
+
+    public RegistrationJournal(Path path, SecretKey key, boolean fsync, long compactThresholdBytes, ObjectMapper objectMapper) {
+        this.path = path;
+        this.key = key;
+        this.fsync = fsync;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads back every registration that was never completed and rewrites the journal so it only
+     * contains those. Must be called once before the first append.
+     */
+    public synchronized List<PendingRegistration> recover() {
+        try {
+            Map<String, PendingRegistration> pending = new LinkedHashMap<>();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            if (Files.exists(path)) {
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        readRecord(line, pending);
+                    }
+                }
+            }
+
+            // compact: write the survivors to a fresh file and swap it in
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (PendingRegistration pendingRegistration : pending.values()) {
+                    out.write(encodeEnqueued(pendingRegistration));
+                }
+                out.force(true);
+            }
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            pendingCount = pending.size();
+            return new ArrayList<>(pending.values());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover registration journal " + path, e);
+        }
+    }
+
+    public synchronized void appendEnqueued(PendingRegistration pendingRegistration) {
+        write(encodeEnqueued(pendingRegistration));
+        pendingCount++;
+    }
+
+    public synchronized void appendDone(String id) {
+        write(ByteBuffer.wrap((DONE + " " + id + "\n").getBytes(StandardCharsets.US_ASCII)));
+        pendingCount--;
+        // nothing left to replay, so the whole file can go
+        if (pendingCount == 0) {
+            try {
+                if (channel.size() > compactThresholdBytes) {
+                    channel.truncate(0);
+                    LOGGER.debug("Truncated drained registration journal {}", path);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to truncate registration journal {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void write(ByteBuffer record) {
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to registration journal " + path, e);
+        }
+    }
+
+    private ByteBuffer encodeEnqueued(PendingRegistration pendingRegistration) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            // the id is bound to the ciphertext so records can't be swapped around
+            cipher.updateAAD(pendingRegistration.id().getBytes(StandardCharsets.US_ASCII));
+            byte[] ciphertext = cipher.doFinal(objectMapper.writeValueAsBytes(pendingRegistration.registerRequest()));
+
+            byte[] payload = ByteBuffer.allocate(IV_LENGTH + ciphertext.length).put(iv).put(ciphertext).array();
+            String line = ENQUEUED + " " + pendingRegistration.id() + " " + Base64.getEncoder().encodeToString(payload) + "\n";
+            return ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalStateException("Failed to encode registration journal record", e);
+        }
+    }
+
+    private void readRecord(String line, Map<String, PendingRegistration> pending) {
+        String[] fields = line.split(" ");
+        try {
+            if (fields.length == 3 && ENQUEUED.equals(fields[0])) {
+                byte[] payload = Base64.getDecoder().decode(fields[2]);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, payload, 0, IV_LENGTH));
+                cipher.updateAAD(fields[1].getBytes(StandardCharsets.US_ASCII));
+                byte[] json = cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH);
+                pending.put(fields[1], new PendingRegistration(fields[1], objectMapper.readValue(json, RegisterRequest.class)));
+            } else if (fields.length == 2 && DONE.equals(fields[0])) {
+                pending.remove(fields[1]);
+            } else if (!line.isBlank()) {
+                LOGGER.warn("Skipping malformed registration journal record");
+            }
+        } catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+            // a torn last line after a crash or a record written with a different key
+            LOGGER.warn("Skipping unreadable registration journal record: {}", e.getMessage());
+        }
+    }
+}
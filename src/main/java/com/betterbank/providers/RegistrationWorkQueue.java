@@ -0,0 +1,246 @@
+package com.betterbank.providers;
+
+import com.betterbank.cache.ExpiringCache;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded hand-off between the register endpoint and Keycloak user creation. The queue refuses new work
+ * when it is full instead of accepting registrations it cannot process, workers retry transient Keycloak
+ * failures with exponential backoff, and the optional journal keeps accepted registrations across restarts.
+ */
+@Service
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class RegistrationWorkQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistrationWorkQueue.class);
+    private static final Duration IDLE_POLL_INTERVAL = Duration.ofMillis(200);
+
+    private final AsyncKeycloakTasksService asyncKeycloakTasksService;
+    private final BlockingQueue<PendingRegistration> queue;
+    private final Queue<PendingRegistration> recoveryBacklog = new ConcurrentLinkedQueue<>();
+    private final RegistrationJournal journal;
+    private final int workerCount;
+    private final Duration shutdownTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ExpiringCache<String, RegistrationStatus> statusIndex;
+
+    // released on shutdown; workers are not interrupted, an interrupt would close the journal's FileChannel
+    private final CountDownLatch stopping = new CountDownLatch(1);
+
+    public RegistrationWorkQueue(AsyncKeycloakTasksService asyncKeycloakTasksService,
+                                 ObjectMapper objectMapper,
+                                 @Value("${app.config.registration.queue.capacity:1000}") int capacity,
+                                 @Value("${app.config.registration.queue.workers:4}") int workerCount,
+                                 @Value("${app.config.registration.queue.shutdown-timeout:PT10S}") Duration shutdownTimeout,
+                                 @Value("${app.config.registration.retry.max-attempts:5}") int maxAttempts,
+                                 @Value("${app.config.registration.retry.initial-backoff:PT0.5S}") Duration initialBackoff,
+                                 @Value("${app.config.registration.retry.max-backoff:PT30S}") Duration maxBackoff,
+                                 @Value("${app.config.registration.journal.path:data/registration-journal.log}") Path journalPath,
+                                 @Value("${app.config.registration.journal.encryption-key:}") String journalEncryptionKey,
+                                 @Value("${app.config.registration.journal.fsync:true}") boolean journalFsync,
+                                 @Value("${app.config.registration.journal.compact-threshold-bytes:1048576}") long journalCompactThresholdBytes,
+                                 @Value("${app.config.registration.status.max-size:100000}") int statusIndexMaxSize,
+                                 @Value("${app.config.registration.status.ttl:PT1H}") Duration statusIndexTtl) {
+        this.asyncKeycloakTasksService = asyncKeycloakTasksService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.workerCount = workerCount;
+        this.shutdownTimeout = shutdownTimeout;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.statusIndex = new ExpiringCache<>(statusIndexMaxSize, statusIndexTtl);
+
+        if (journalEncryptionKey.isBlank()) {
+            // the journal holds passwords, never write it unencrypted
+            LOGGER.warn("No registration journal encryption key configured, pending registrations will not survive a restart");
+            this.journal = null;
+        } else {
+            SecretKey key = new SecretKeySpec(Base64.getDecoder().decode(journalEncryptionKey), "AES");
+            this.journal = new RegistrationJournal(journalPath, key, journalFsync, journalCompactThresholdBytes, objectMapper);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (journal != null) {
+            List<PendingRegistration> recovered = journal.recover();
+            if (!recovered.isEmpty()) {
+                LOGGER.info("Recovered {} pending registrations from the journal", recovered.size());
+            }
+            for (PendingRegistration pendingRegistration : recovered) {
+                statusIndex.put(pendingRegistration.id(), RegistrationStatus.QUEUED);
+                // recovered work was already accepted, so it may exceed the intake bound; the workers drain it first
+                if (!queue.offer(pendingRegistration)) {
+                    recoveryBacklog.add(pendingRegistration);
+                }
+            }
+        }
+        for (int i = 0; i < workerCount; i++) {
+            startWorker("Auth-Service-Registration-Worker-" + i, this::runWorker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        stopping.countDown();
+        // a worker in the middle of a Keycloak call still writes its done record
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        boolean stopped = true;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stopped &= !worker.isAlive();
+        }
+        if (!stopped) {
+            // their registrations stay open in the journal and are replayed on restart
+            LOGGER.warn("Registration workers did not stop within {}, leaving the journal open", shutdownTimeout);
+            return;
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Accepts a registration for asynchronous creation.
+     *
+     * @return the id assigned to the registration, or empty when the queue is full
+     */
+    public Optional<String> offer(RegisterRequest registerRequest) {
+        PendingRegistration pendingRegistration = new PendingRegistration(UUID.randomUUID().toString(), registerRequest);
+        if (queue.remainingCapacity() == 0) {
+            return Optional.empty();
+        }
+        if (journal != null) {
+            journal.appendEnqueued(pendingRegistration);
+        }
+        statusIndex.put(pendingRegistration.id(), RegistrationStatus.QUEUED);
+        if (!queue.offer(pendingRegistration)) {
+            // lost the race for the last slot
+            statusIndex.invalidate(pendingRegistration.id());
+            if (journal != null) {
+                journal.appendDone(pendingRegistration.id());
+            }
+            return Optional.empty();
+        }
+        return Optional.of(pendingRegistration.id());
+    }
+
+    public Optional<RegistrationStatus> status(String registrationId) {
+        return statusIndex.get(registrationId);
+    }
+
+    public int size() {
+        return queue.size() + recoveryBacklog.size();
+    }
+
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    private void startWorker(String name, Runnable task) {
+        Thread worker = new Thread(task, name);
+        worker.setDaemon(true);
+        workers.add(worker);
+        worker.start();
+    }
+
+    private void runWorker() {
+        while (stopping.getCount() > 0) {
+            try {
+                PendingRegistration next = recoveryBacklog.poll();
+                if (next == null) {
+                    next = queue.poll(IDLE_POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                if (next != null) {
+                    process(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    void process(PendingRegistration pendingRegistration) {
+        String email = pendingRegistration.registerRequest().email();
+        Duration backoff = initialBackoff;
+        statusIndex.put(pendingRegistration.id(), RegistrationStatus.IN_PROGRESS);
+        for (int attempt = 1; ; attempt++) {
+            KeycloakTaskResult result = asyncKeycloakTasksService.createUserInKeycloak(pendingRegistration.registerRequest());
+            if (result != KeycloakTaskResult.RETRYABLE_FAILURE) {
+                LOGGER.debug("Registration {} for {} finished with {}", pendingRegistration.id(), email, result);
+                statusIndex.put(pendingRegistration.id(), toRegistrationStatus(result));
+                break;
+            }
+            if (attempt >= maxAttempts) {
+                LOGGER.error("Giving up on registration {} for {} after {} attempts", pendingRegistration.id(), email, attempt);
+                statusIndex.put(pendingRegistration.id(), RegistrationStatus.FAILED);
+                break;
+            }
+            statusIndex.put(pendingRegistration.id(), RegistrationStatus.RETRYING);
+            if (!sleep(withJitter(backoff))) {
+                // shutting down, leave the journal record open so the registration is replayed on restart
+                return;
+            }
+            backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+        }
+        if (journal != null) {
+            journal.appendDone(pendingRegistration.id());
+        }
+    }
+
+    private static RegistrationStatus toRegistrationStatus(KeycloakTaskResult result) {
+        return switch (result) {
+            case SUCCEEDED -> RegistrationStatus.COMPLETED;
+            case CONFLICT -> RegistrationStatus.USER_EXISTS;
+            case RETRYABLE_FAILURE, PERMANENT_FAILURE -> RegistrationStatus.FAILED;
+        };
+    }
+
+    private static Duration withJitter(Duration backoff) {
+        long millis = backoff.toMillis();
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private boolean sleep(Duration duration) {
+        try {
+            return !stopping.await(duration.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
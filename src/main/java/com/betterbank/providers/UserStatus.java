@@ -0,0 +1,13 @@
+package com.betterbank.providers;
+
+public record UserStatus(
+        boolean exists,
+        boolean enabled,
+        boolean emailVerified
+) {
+    public static final UserStatus NOT_FOUND = new UserStatus(false, false, false);
+
+    public boolean isPendingVerification() {
+        return exists && enabled && !emailVerified;
+    }
+}
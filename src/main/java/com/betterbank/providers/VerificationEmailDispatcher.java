@@ -0,0 +1,239 @@
+package com.betterbank.providers;
+
+import com.betterbank.concurrent.TokenBucketRateLimiter;
+import com.betterbank.exception.AuthProviderUnavailableException;
+import com.betterbank.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends Keycloak's verify-email action on its own bounded queue and workers. Keycloak sends the mail while
+ * the admin call is open, so a slow SMTP server holds the calling thread for as long as it takes; here that
+ * only ever holds a mail worker, never a registration worker.
+ * <p>
+ * Sends are rate limited across the workers, and failures that can go away (Keycloak or SMTP errors,
+ * timeouts) are retried with exponential backoff. A retry waits on a scheduler rather than in the worker,
+ * so it doesn't hold up the mails behind it. Keycloak has no bulk variant of the action, so there is
+ * one admin call per mail. Those calls go through their own limiter and circuit breaker, failures of the
+ * mail server never count against the admin API.
+ */
+@Service
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class VerificationEmailDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VerificationEmailDispatcher.class);
+    private static final String RATE_LIMIT_KEY = "verification-email";
+
+    private final Keycloak keycloakAdminClient;
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+    private final KeycloakConcurrencyLimiter verificationEmailLimiter;
+    private final String keycloakRealm;
+    private final BlockingQueue<VerificationEmail> queue;
+    private final int workerCount;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final TokenBucketRateLimiter resendLimiter;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final MeterRegistry meterRegistry;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retryScheduler;
+
+    private volatile boolean running;
+
+    public VerificationEmailDispatcher(Keycloak keycloakAdminClient,
+                                       @Qualifier("keycloakAdminApiLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter,
+                                       @Qualifier("keycloakVerificationEmailLimiter") KeycloakConcurrencyLimiter verificationEmailLimiter,
+                                       @Value("${app.config.keycloak.realm}") String keycloakRealm,
+                                       @Value("${app.config.verification-email.queue.capacity:10000}") int capacity,
+                                       @Value("${app.config.verification-email.queue.workers:4}") int workerCount,
+                                       @Value("${app.config.verification-email.rate-limit.capacity:20}") int rateLimitCapacity,
+                                       @Value("${app.config.verification-email.rate-limit.refill-period:PT1S}") Duration rateLimitRefillPeriod,
+                                       @Value("${app.config.verification-email.retry.max-attempts:5}") int maxAttempts,
+                                       @Value("${app.config.verification-email.retry.initial-backoff:PT2S}") Duration initialBackoff,
+                                       @Value("${app.config.verification-email.retry.max-backoff:PT2M}") Duration maxBackoff,
+                                       @Value("${app.config.verification-email.resend.capacity:3}") int resendCapacity,
+                                       @Value("${app.config.verification-email.resend.refill-period:PT15M}") Duration resendRefillPeriod,
+                                       @Value("${app.config.verification-email.resend.max-keys:100000}") int resendMaxKeys,
+                                       MeterRegistry meterRegistry) {
+        this.keycloakAdminClient = keycloakAdminClient;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
+        this.verificationEmailLimiter = verificationEmailLimiter;
+        this.keycloakRealm = keycloakRealm;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.workerCount = workerCount;
+        this.rateLimiter = new TokenBucketRateLimiter(rateLimitCapacity, rateLimitRefillPeriod, 1);
+        this.resendLimiter = new TokenBucketRateLimiter(resendCapacity, resendRefillPeriod, resendMaxKeys);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.meterRegistry = meterRegistry;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "Auth-Service-Verification-Email-Retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("auth.verification-email.queue.size", queue, BlockingQueue::size).description("Verification emails waiting for a mail worker").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "Auth-Service-Verification-Email-Worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        retryScheduler.shutdownNow();
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Queues the verify-email action for a user.
+     *
+     * @return false when the queue is full, the user can ask for the mail again through the resend endpoint
+     */
+    public boolean dispatch(String userId, String email) {
+        if (!queue.offer(new VerificationEmail(userId, email, 1))) {
+            LOGGER.error("Verification email queue full, not sending the verification email to {}", email);
+            count("dropped");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queues the verify-email action again for an account that is still waiting for verification. Any other
+     * email is ignored without telling the caller, so the endpoint doesn't reveal which accounts exist.
+     *
+     * @throws RateLimitExceededException when the email asked for too many mails already
+     */
+    public void resend(String email) {
+        String key = KeycloakUserStatusResolver.normalize(email);
+        long waitNanos = resendLimiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            count("resend-rejected");
+            throw new RateLimitExceededException("Too many verification email requests", Duration.ofNanos(waitNanos));
+        }
+        List<UserRepresentation> users = keycloakConcurrencyLimiter.execute("searchByEmail", () -> keycloakAdminClient.realm(keycloakRealm).users().searchByEmail(key, true));
+        if (users.isEmpty() || !Boolean.TRUE.equals(users.get(0).isEnabled()) || Boolean.TRUE.equals(users.get(0).isEmailVerified())) {
+            LOGGER.debug("Not resending the verification email to {}, the account is not awaiting verification", key);
+            return;
+        }
+        dispatch(users.get(0).getId(), email);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                VerificationEmail verificationEmail = queue.take();
+                awaitRateLimit();
+                send(verificationEmail);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void awaitRateLimit() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = rateLimiter.tryAcquire(RATE_LIMIT_KEY)) > 0) {
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    void send(VerificationEmail verificationEmail) {
+        try {
+            LOGGER.debug("Sending verification email on the email ID: {}", verificationEmail.email());
+            verificationEmailLimiter.execute("sendVerifyEmail", () -> keycloakAdminClient.realm(keycloakRealm).users().get(verificationEmail.userId()).sendVerifyEmail());
+            count("sent");
+        } catch (jakarta.ws.rs.ProcessingException | AuthProviderUnavailableException e) {
+            retry(verificationEmail, e.getMessage());
+        } catch (jakarta.ws.rs.WebApplicationException e) {
+            // Keycloak answers 500 when it can't reach the mail server, 4xx means the user can't get the mail at all
+            if (e.getResponse().getStatus() >= 500) {
+                retry(verificationEmail, e.getMessage());
+            } else {
+                LOGGER.error("Keycloak refused to send the verification email to {}: {}", verificationEmail.email(), e.getMessage());
+                count("failed");
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Sending the verification email to {} failed: {}", verificationEmail.email(), e.getMessage(), e);
+            count("failed");
+        }
+    }
+
+    private void retry(VerificationEmail verificationEmail, String reason) {
+        if (verificationEmail.attempt() >= maxAttempts) {
+            LOGGER.error("Giving up on the verification email to {} after {} attempts: {}", verificationEmail.email(), verificationEmail.attempt(), reason);
+            count("failed");
+            return;
+        }
+        Duration backoff = backoff(verificationEmail.attempt());
+        LOGGER.warn("Sending the verification email to {} failed, retrying in {}: {}", verificationEmail.email(), backoff, reason);
+        count("retried");
+        VerificationEmail next = new VerificationEmail(verificationEmail.userId(), verificationEmail.email(), verificationEmail.attempt() + 1);
+        try {
+            retryScheduler.schedule(() -> {
+                if (!queue.offer(next)) {
+                    LOGGER.error("Verification email queue full, dropping the retry for {}", next.email());
+                    count("dropped");
+                }
+            }, backoff.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            count("dropped");
+        }
+    }
+
+    private Duration backoff(int attempt) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        if (backoff.compareTo(maxBackoff) > 0) {
+            backoff = maxBackoff;
+        }
+        long millis = backoff.toMillis();
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("auth.verification-email", "outcome", outcome).increment();
+    }
+
+    record VerificationEmail(String userId, String email, int attempt) {
+    }
+}
@@ -0,0 +1,182 @@
+package com.betterbank.security;
+
+import com.betterbank.cache.ExpiringCache;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+public class JwtTokenValidator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtTokenValidator.class);
+
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {
+    };
+
+    private static final Map<String, String> SIGNATURE_ALGORITHMS = Map.of(
+            "RS256", "SHA256withRSA",
+            "RS384", "SHA384withRSA",
+            "RS512", "SHA512withRSA");
+
+    private static final String ACCESS_TOKEN_TYPE = "Bearer";
+
+    private final SigningKeyResolver signingKeyResolver;
+    private final ObjectMapper objectMapper;
+    private final String expectedIssuer;
+    private final String expectedAuthorizedParty;
+    private final String expectedAudience;
+    private final Duration clockSkew;
+    private final Clock clock;
+    private final ExpiringCache<String, VerifiedToken> verifiedTokenCache;
+
+    @Autowired
+    public JwtTokenValidator(SigningKeyResolver signingKeyResolver,
+                             ObjectMapper objectMapper,
+                             @Value("${app.config.jwt.issuer:${app.config.keycloak.url}/realms/${app.config.keycloak.realm}}") String expectedIssuer,
+                             @Value("${app.config.jwt.authorized-party:}") String expectedAuthorizedParty,
+                             @Value("${app.config.jwt.audience:}") String expectedAudience,
+                             @Value("${app.config.jwt.clock-skew:PT30S}") Duration clockSkew,
+                             @Value("${app.config.jwt.cache.max-size:50000}") int cacheMaxSize,
+                             @Value("${app.config.jwt.cache.ttl:PT5M}") Duration cacheTtl) {
+        this(signingKeyResolver, objectMapper, expectedIssuer, expectedAuthorizedParty, expectedAudience, clockSkew,
+                new ExpiringCache<>(cacheMaxSize, cacheTtl), Clock.systemUTC());
+    }
+
+    /**
+     * @param expectedAuthorizedParty required {@code azp} claim, not checked when blank
+     * @param expectedAudience        value the {@code aud} claim must contain, not checked when blank
+     */
+    JwtTokenValidator(SigningKeyResolver signingKeyResolver, ObjectMapper objectMapper, String expectedIssuer,
+                      String expectedAuthorizedParty, String expectedAudience, Duration clockSkew,
+                      ExpiringCache<String, VerifiedToken> verifiedTokenCache, Clock clock) {
+        this.signingKeyResolver = signingKeyResolver;
+        this.objectMapper = objectMapper;
+        this.expectedIssuer = expectedIssuer;
+        this.expectedAuthorizedParty = expectedAuthorizedParty;
+        this.expectedAudience = expectedAudience;
+        this.clockSkew = clockSkew;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.clock = clock;
+    }
+
+    public Optional<VerifiedToken> validate(String token) {
+        String tokenHash = hash(token);
+        Optional<VerifiedToken> cached = verifiedTokenCache.get(tokenHash);
+        if (cached.isPresent()) {
+            // the cache TTL is independent of the token lifetime, so expiry is checked on every hit
+            return cached.filter(this::isUnexpired);
+        }
+
+        try {
+            Optional<VerifiedToken> verified = verify(token).filter(this::isUnexpired);
+            verified.ifPresent(verifiedToken -> verifiedTokenCache.put(tokenHash, verifiedToken));
+            return verified;
+        } catch (Exception e) {
+            LOGGER.debug("Rejecting malformed token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<VerifiedToken> verify(String token) throws Exception {
+        // 1. Split into header, payload and signature
+        int firstDot = token.indexOf('.');
+        int secondDot = token.indexOf('.', firstDot + 1);
+        if (firstDot < 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            LOGGER.debug("Rejecting token: not a compact JWS");
+            return Optional.empty();
+        }
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Map<String, Object> header = objectMapper.readValue(decoder.decode(token.substring(0, firstDot)), CLAIMS_TYPE);
+
+        // 2. Verify the signature with the key the token names
+        String algorithm = SIGNATURE_ALGORITHMS.get(String.valueOf(header.get("alg")));
+        Object keyId = header.get("kid");
+        if (algorithm == null || keyId == null) {
+            LOGGER.debug("Rejecting token: unsupported alg {} or missing kid", header.get("alg"));
+            return Optional.empty();
+        }
+        Optional<PublicKey> publicKey = signingKeyResolver.resolve(keyId.toString());
+        if (publicKey.isEmpty()) {
+            LOGGER.debug("Rejecting token: unknown signing key {}", keyId);
+            return Optional.empty();
+        }
+        Signature signature = Signature.getInstance(algorithm);
+        signature.initVerify(publicKey.get());
+        signature.update(token.substring(0, secondDot).getBytes(StandardCharsets.US_ASCII));
+        if (!signature.verify(decoder.decode(token.substring(secondDot + 1)))) {
+            LOGGER.debug("Rejecting token: signature mismatch");
+            return Optional.empty();
+        }
+
+        // 3. Check the claims
+        Map<String, Object> claims = objectMapper.readValue(decoder.decode(token.substring(firstDot + 1, secondDot)), CLAIMS_TYPE);
+        if (!expectedIssuer.equals(claims.get("iss"))) {
+            LOGGER.debug("Rejecting token: unexpected issuer {}", claims.get("iss"));
+            return Optional.empty();
+        }
+        // ID tokens of the same realm are signed with the same key and carry the same issuer
+        if (!ACCESS_TOKEN_TYPE.equals(claims.get("typ"))) {
+            LOGGER.debug("Rejecting token: not an access token, typ {}", claims.get("typ"));
+            return Optional.empty();
+        }
+        if (!expectedAuthorizedParty.isBlank() && !expectedAuthorizedParty.equals(claims.get("azp"))) {
+            LOGGER.debug("Rejecting token: issued to another client {}", claims.get("azp"));
+            return Optional.empty();
+        }
+        if (!expectedAudience.isBlank() && !hasAudience(claims.get("aud"))) {
+            LOGGER.debug("Rejecting token: unexpected audience {}", claims.get("aud"));
+            return Optional.empty();
+        }
+        if (!(claims.get("exp") instanceof Number exp)) {
+            LOGGER.debug("Rejecting token: missing exp claim");
+            return Optional.empty();
+        }
+        if (claims.get("nbf") instanceof Number nbf && Instant.ofEpochSecond(nbf.longValue()).isAfter(clock.instant().plus(clockSkew))) {
+            LOGGER.debug("Rejecting token: not valid before {}", nbf);
+            return Optional.empty();
+        }
+
+        return Optional.of(new VerifiedToken(
+                String.valueOf(claims.get("sub")),
+                Optional.ofNullable(claims.get("email")).map(Object::toString),
+                expectedIssuer,
+                Optional.ofNullable(claims.get("scope")).map(Object::toString),
+                Instant.ofEpochSecond(exp.longValue()),
+                Collections.unmodifiableMap(claims)));
+    }
+
+    private boolean hasAudience(Object audience) {
+        // a single audience may come as a plain string
+        return audience instanceof Collection<?> audiences ? audiences.contains(expectedAudience) : expectedAudience.equals(audience);
+    }
+
+    private boolean isUnexpired(VerifiedToken verifiedToken) {
+        return verifiedToken.expiresAt().plus(clockSkew).isAfter(clock.instant());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
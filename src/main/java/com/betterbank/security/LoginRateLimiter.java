@@ -0,0 +1,62 @@
+package com.betterbank.security;
+
+import com.betterbank.concurrent.TokenBucketRateLimiter;
+import com.betterbank.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Login attempts per client IP and per account, checked before anything reaches Keycloak so that
+ * credential stuffing bursts are refused without costing admin API or token endpoint calls.
+ */
+@Component
+public class LoginRateLimiter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final boolean enabled;
+    private final TokenBucketRateLimiter clientIpLimiter;
+    private final TokenBucketRateLimiter accountLimiter;
+    private final MeterRegistry meterRegistry;
+
+    public LoginRateLimiter(@Value("${app.config.auth.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${app.config.auth.rate-limit.client-ip.capacity:100}") int clientIpCapacity,
+                            @Value("${app.config.auth.rate-limit.client-ip.refill-period:PT1M}") Duration clientIpRefillPeriod,
+                            @Value("${app.config.auth.rate-limit.account.capacity:10}") int accountCapacity,
+                            @Value("${app.config.auth.rate-limit.account.refill-period:PT1M}") Duration accountRefillPeriod,
+                            @Value("${app.config.auth.rate-limit.max-keys:100000}") int maxKeys,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.clientIpLimiter = new TokenBucketRateLimiter(clientIpCapacity, clientIpRefillPeriod, maxKeys);
+        this.accountLimiter = new TokenBucketRateLimiter(accountCapacity, accountRefillPeriod, maxKeys);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Takes a token from the client IP's and the account's bucket.
+     *
+     * @throws RateLimitExceededException when either bucket is empty
+     */
+    public void checkLogin(String email, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        // the IP bucket goes first, a flood from one client must not drain the buckets of the accounts it targets
+        check(clientIpLimiter, "client-ip", clientIp);
+        check(accountLimiter, "account", email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private void check(TokenBucketRateLimiter limiter, String limit, String key) {
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            meterRegistry.counter("auth.rate-limit.rejected", "limit", limit).increment();
+            LOGGER.debug("Login rate limit per {} exceeded for {}", limit, key);
+            throw new RateLimitExceededException("Too many login attempts", Duration.ofNanos(waitNanos));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.betterbank.security;
+
+import com.betterbank.concurrent.TokenBucketRateLimiter;
+import com.betterbank.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Verification email resends per client IP. The per-email limit sits behind an admin API lookup and doesn't
+ * stop one client from cycling through addresses; this bucket is checked first and refuses such a client
+ * without costing a Keycloak call.
+ */
+@Component
+public class ResendVerificationRateLimiter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResendVerificationRateLimiter.class);
+
+    private final boolean enabled;
+    private final TokenBucketRateLimiter clientIpLimiter;
+    private final MeterRegistry meterRegistry;
+
+    public ResendVerificationRateLimiter(@Value("${app.config.auth.rate-limit.enabled:true}") boolean enabled,
+                                         @Value("${app.config.verification-email.resend.client-ip.capacity:10}") int clientIpCapacity,
+                                         @Value("${app.config.verification-email.resend.client-ip.refill-period:PT15M}") Duration clientIpRefillPeriod,
+                                         @Value("${app.config.verification-email.resend.max-keys:100000}") int maxKeys,
+                                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.clientIpLimiter = new TokenBucketRateLimiter(clientIpCapacity, clientIpRefillPeriod, maxKeys);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @throws RateLimitExceededException when the client IP's bucket is empty
+     */
+    public void checkResend(String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        long waitNanos = clientIpLimiter.tryAcquire(clientIp);
+        if (waitNanos > 0) {
+            meterRegistry.counter("auth.rate-limit.rejected", "limit", "resend-client-ip").increment();
+            LOGGER.debug("Verification email resend limit per client IP exceeded for {}", clientIp);
+            throw new RateLimitExceededException("Too many verification email requests", Duration.ofNanos(waitNanos));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.betterbank.security;
+
+import java.security.PublicKey;
+import java.util.Optional;
+
+public interface SigningKeyResolver {
+    Optional<PublicKey> resolve(String keyId);
+}
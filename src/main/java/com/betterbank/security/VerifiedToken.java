@@ -0,0 +1,15 @@
+package com.betterbank.security;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+public record VerifiedToken(
+        String subject,
+        Optional<String> email,
+        String issuer,
+        Optional<String> scope,
+        Instant expiresAt,
+        Map<String, Object> claims
+) {
+}
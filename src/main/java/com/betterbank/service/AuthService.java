@@ -1,14 +1,33 @@
 package com.betterbank.service;
 
 import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RefreshRequest;
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.IntrospectionResponse;
 import com.betterbank.dto.response.LoginResponse;
-import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatusResponse;
 import org.springframework.http.ResponseEntity;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
 public interface AuthService {
-    public RegistrationOutcome register(RegisterRequest registerRequest);
+    public RegistrationResult register(RegisterRequest registerRequest, Optional<String> idempotencyKey);
+
+    public Optional<RegistrationStatusResponse> registrationStatus(String registrationId);
+
+    public void resendVerificationEmail(String email);
+
+    public void registerBulk(Iterator<RegisterRequest> registerRequests, Consumer<List<BulkRegistrationResult>> resultSink);
 
     public LoginResponse login(LoginRequest loginRequest);
 
+    public LoginResponse refresh(RefreshRequest refreshRequest);
+
+    public IntrospectionResponse introspect(String token);
+
 }
@@ -1,33 +1,122 @@
 package com.betterbank.service;
 
 import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RefreshRequest;
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.BulkRegistrationStatus;
+import com.betterbank.dto.response.IntrospectionResponse;
 import com.betterbank.dto.response.LoginResponse;
 import com.betterbank.dto.response.LoginState;
 import com.betterbank.dto.response.LoginStatus;
-import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatusResponse;
 import com.betterbank.providers.AuthProvider;
+import com.betterbank.security.JwtTokenValidator;
+import com.betterbank.security.VerifiedToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 public class AuthServiceImpl implements AuthService {
     private final AuthProvider authProvider;
+    private final JwtTokenValidator jwtTokenValidator;
+    private final Validator validator;
+    private final int bulkChunkSize;
+    private final MeterRegistry meterRegistry;
+    private final RegistrationDeduplicator registrationDeduplicator;
 
-    public AuthServiceImpl(AuthProvider authProvider) {
+    public AuthServiceImpl(AuthProvider authProvider, JwtTokenValidator jwtTokenValidator, Validator validator, @Value("${app.config.registration.bulk.chunk-size:500}") int bulkChunkSize, MeterRegistry meterRegistry, RegistrationDeduplicator registrationDeduplicator) {
         this.authProvider = authProvider;
+        this.jwtTokenValidator = jwtTokenValidator;
+        this.validator = validator;
+        this.bulkChunkSize = bulkChunkSize;
+        this.meterRegistry = meterRegistry;
+        this.registrationDeduplicator = registrationDeduplicator;
     }
 
     @Override
-    public RegistrationOutcome register(RegisterRequest registerRequest) {
-        return authProvider.register(registerRequest);
+    public RegistrationResult register(RegisterRequest registerRequest, Optional<String> idempotencyKey) {
+        // the provider call runs on this thread, so the future is already complete
+        RegistrationResult registrationResult = registrationDeduplicator.register(registerRequest, idempotencyKey,
+                request -> CompletableFuture.completedFuture(authProvider.register(request))).join();
+        countRegistration(meterRegistry, registrationResult);
+        return registrationResult;
+    }
+
+    @Override
+    public Optional<RegistrationStatusResponse> registrationStatus(String registrationId) {
+        return authProvider.registrationStatus(registrationId)
+                .map(registrationStatus -> new RegistrationStatusResponse(registrationId, registrationStatus));
+    }
+
+    @Override
+    public void resendVerificationEmail(String email) {
+        authProvider.resendVerificationEmail(email);
+    }
+
+    @Override
+    public void registerBulk(Iterator<RegisterRequest> registerRequests, Consumer<List<BulkRegistrationResult>> resultSink) {
+        Set<String> seenEmails = new HashSet<>();
+        List<RegisterRequest> chunk = new ArrayList<>(bulkChunkSize);
+        List<BulkRegistrationResult> results = new ArrayList<>();
+
+        while (registerRequests.hasNext()) {
+            RegisterRequest registerRequest = registerRequests.next();
+            if (!validator.validate(registerRequest).isEmpty()) {
+                results.add(new BulkRegistrationResult(registerRequest.email(), BulkRegistrationStatus.INVALID_REQUEST));
+                continue;
+            }
+            if (!seenEmails.add(registerRequest.email().trim().toLowerCase(Locale.ROOT))) {
+                results.add(new BulkRegistrationResult(registerRequest.email(), BulkRegistrationStatus.DUPLICATE_IN_REQUEST));
+                continue;
+            }
+
+            chunk.add(registerRequest);
+            if (chunk.size() == bulkChunkSize) {
+                results.addAll(authProvider.registerBatch(chunk));
+                resultSink.accept(results);
+                chunk = new ArrayList<>(bulkChunkSize);
+                results = new ArrayList<>();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            results.addAll(authProvider.registerBatch(chunk));
+        }
+        if (!results.isEmpty()) {
+            resultSink.accept(results);
+        }
     }
 
     @Override
     public LoginResponse login(LoginRequest loginRequest) {
         LoginStatus loginStatus = authProvider.login(loginRequest);
+        countLogin(meterRegistry, loginStatus);
+        return toLoginResponse(loginRequest, loginStatus);
+    }
+
+    static void countLogin(MeterRegistry meterRegistry, LoginStatus loginStatus) {
+        meterRegistry.counter("auth.logins", "state", loginStatus.loginState().name()).increment();
+    }
 
+    static void countRegistration(MeterRegistry meterRegistry, RegistrationResult registrationResult) {
+        meterRegistry.counter("auth.registrations", "outcome", registrationResult.outcome().name()).increment();
+    }
+
+    static LoginResponse toLoginResponse(LoginRequest loginRequest, LoginStatus loginStatus) {
         if (loginStatus.loginState() == LoginState.INVALID_CREDENTIALS) {
             return new LoginResponse(false, LoginState.INVALID_CREDENTIALS, "Invalid credentials provided.", Optional.empty(), Optional.empty(), Optional.empty());
         } else if (loginStatus.loginState() == LoginState.EMAIL_NOT_VERIFIED) {
@@ -40,4 +129,31 @@ public class AuthServiceImpl implements AuthService {
                 "Login successful.", Optional.of(loginRequest.email()),
                 loginStatus.accessToken(), loginStatus.refreshToken());
     }
+
+    @Override
+    public LoginResponse refresh(RefreshRequest refreshRequest) {
+        LoginStatus loginStatus = authProvider.refresh(refreshRequest.refreshToken());
+        meterRegistry.counter("auth.refreshes", "state", loginStatus.loginState().name()).increment();
+
+        if (loginStatus.loginState() == LoginState.INVALID_CREDENTIALS) {
+            return new LoginResponse(false, LoginState.INVALID_CREDENTIALS, "Refresh token is invalid or expired. Please log in again.", Optional.empty(), Optional.empty(), Optional.empty());
+        } else if (loginStatus.loginState() == LoginState.SERVER_ERROR) {
+            return new LoginResponse(false, LoginState.SERVER_ERROR, "An error occurred while processing your request. Please try again later.", Optional.empty(), Optional.empty(), Optional.empty());
+        }
+
+        return new LoginResponse(true, LoginState.LOGGED_IN, "Token refreshed successfully.", Optional.empty(),
+                loginStatus.accessToken(), loginStatus.refreshToken());
+    }
+
+    @Override
+    public IntrospectionResponse introspect(String token) {
+        return toIntrospectionResponse(jwtTokenValidator.validate(token));
+    }
+
+    static IntrospectionResponse toIntrospectionResponse(Optional<VerifiedToken> verifiedToken) {
+        return verifiedToken
+                .map(token -> new IntrospectionResponse(true, Optional.of(token.subject()), token.email(),
+                        token.scope(), Optional.of(token.expiresAt())))
+                .orElseGet(IntrospectionResponse::inactive);
+    }
 }
@@ -0,0 +1,15 @@
+package com.betterbank.service;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginResponse;
+import com.betterbank.dto.response.RegistrationResult;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+public interface ReactiveAuthService {
+    Mono<RegistrationResult> register(RegisterRequest registerRequest, Optional<String> idempotencyKey);
+
+    Mono<LoginResponse> login(LoginRequest loginRequest);
+}
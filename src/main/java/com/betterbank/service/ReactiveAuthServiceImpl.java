@@ -0,0 +1,42 @@
+package com.betterbank.service;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginResponse;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.providers.ReactiveAuthProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+@ConditionalOnProperty(name = "app.config.auth.reactive.enabled", havingValue = "true")
+public class ReactiveAuthServiceImpl implements ReactiveAuthService {
+    private final ReactiveAuthProvider reactiveAuthProvider;
+    private final MeterRegistry meterRegistry;
+    private final RegistrationDeduplicator registrationDeduplicator;
+
+    public ReactiveAuthServiceImpl(ReactiveAuthProvider reactiveAuthProvider, MeterRegistry meterRegistry, RegistrationDeduplicator registrationDeduplicator) {
+        this.reactiveAuthProvider = reactiveAuthProvider;
+        this.meterRegistry = meterRegistry;
+        this.registrationDeduplicator = registrationDeduplicator;
+    }
+
+    @Override
+    public Mono<RegistrationResult> register(RegisterRequest registerRequest, Optional<String> idempotencyKey) {
+        return Mono.fromFuture(() -> registrationDeduplicator.register(registerRequest, idempotencyKey,
+                        request -> reactiveAuthProvider.register(request).toFuture()))
+                .doOnNext(registrationResult -> AuthServiceImpl.countRegistration(meterRegistry, registrationResult));
+    }
+
+    @Override
+    public Mono<LoginResponse> login(LoginRequest loginRequest) {
+        return reactiveAuthProvider.login(loginRequest)
+                .doOnNext(loginStatus -> AuthServiceImpl.countLogin(meterRegistry, loginStatus))
+                .map(loginStatus -> AuthServiceImpl.toLoginResponse(loginRequest, loginStatus));
+    }
+}
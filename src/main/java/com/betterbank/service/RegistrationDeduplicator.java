@@ -0,0 +1,145 @@
+package com.betterbank.service;
+
+import com.betterbank.cache.TieredCache;
+import com.betterbank.cache.TieredCacheFactory;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.betterbank.exception.IdempotencyKeyReusedException;
+import com.betterbank.providers.AuthProvider;
+import com.betterbank.providers.KeycloakUserStatusResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Makes repeated registrations of the same email cheap and consistent. Concurrent requests for an email
+ * share one call to the provider, a registration that is still queued answers later requests with the
+ * registration id it already has, and an {@code Idempotency-Key} replays the outcome it was first used for.
+ * Without this every double-click or client retry queues another Keycloak create that ends in a 409.
+ * <p>
+ * Only outcomes that a retry can't change are replayed; a full queue or an unreachable Keycloak is tried
+ * again on the next request.
+ */
+@Component
+public class RegistrationDeduplicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistrationDeduplicator.class);
+
+    private final AuthProvider authProvider;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, CompletableFuture<RegistrationResult>> inFlight = new ConcurrentHashMap<>();
+    private final TieredCache<String> pendingRegistrations;
+    private final TieredCache<IdempotentRegistration> idempotentRegistrations;
+
+    public RegistrationDeduplicator(AuthProvider authProvider, TieredCacheFactory tieredCacheFactory, MeterRegistry meterRegistry,
+                                    @Value("${app.config.registration.dedup.max-size:100000}") int maxSize,
+                                    @Value("${app.config.registration.dedup.pending-ttl:PT10M}") Duration pendingTtl,
+                                    @Value("${app.config.registration.idempotency.ttl:PT24H}") Duration idempotencyTtl) {
+        this.authProvider = authProvider;
+        this.meterRegistry = meterRegistry;
+        this.pendingRegistrations = tieredCacheFactory.create("registration-pending", maxSize, pendingTtl, String.class);
+        this.idempotentRegistrations = tieredCacheFactory.create("registration-idempotency", maxSize, idempotencyTtl, IdempotentRegistration.class);
+    }
+
+    /**
+     * @param registration starts the registration, only called when no earlier one can answer
+     * @throws IdempotencyKeyReusedException when the key was used to register a different email
+     */
+    public CompletableFuture<RegistrationResult> register(RegisterRequest registerRequest, Optional<String> idempotencyKey,
+                                                          Function<RegisterRequest, CompletableFuture<RegistrationResult>> registration) {
+        String email = KeycloakUserStatusResolver.normalize(registerRequest.email());
+
+        if (idempotencyKey.isPresent()) {
+            Optional<IdempotentRegistration> previous = idempotentRegistrations.get(idempotencyKey.get());
+            if (previous.isPresent()) {
+                if (!previous.get().email().equals(email)) {
+                    throw new IdempotencyKeyReusedException("Idempotency-Key was already used for a different registration");
+                }
+                countDeduplicated("idempotency-key");
+                return CompletableFuture.completedFuture(previous.get().toRegistrationResult());
+            }
+        }
+
+        Optional<String> pendingId = pendingRegistrations.get(email);
+        if (pendingId.isPresent() && isStillPending(pendingId.get())) {
+            LOGGER.debug("Registration {} for {} is still pending, not queueing another one", pendingId.get(), email);
+            countDeduplicated("pending");
+            return remember(idempotencyKey, email, CompletableFuture.completedFuture(
+                    new RegistrationResult(RegistrationOutcome.INITIATED_ASYNC_PROCESS, pendingId)));
+        }
+
+        CompletableFuture<RegistrationResult> call = new CompletableFuture<>();
+        CompletableFuture<RegistrationResult> existing = inFlight.putIfAbsent(email, call);
+        if (existing != null) {
+            countDeduplicated("in-flight");
+            return remember(idempotencyKey, email, existing);
+        }
+
+        CompletableFuture<RegistrationResult> started;
+        try {
+            started = registration.apply(registerRequest);
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((registrationResult, error) -> {
+            // the pending entry goes in before the in-flight one goes out, so a retry always finds one of them
+            if (registrationResult != null && registrationResult.outcome() == RegistrationOutcome.INITIATED_ASYNC_PROCESS) {
+                registrationResult.registrationId().ifPresent(registrationId -> pendingRegistrations.put(email, registrationId));
+            }
+            inFlight.remove(email, call);
+            if (error != null) {
+                call.completeExceptionally(error);
+            } else {
+                call.complete(registrationResult);
+            }
+        });
+        return remember(idempotencyKey, email, call);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private boolean isStillPending(String registrationId) {
+        // unknown here means queued on another replica or already expired from the status index, the
+        // pending entry's own ttl bounds how long that is trusted
+        Optional<RegistrationStatus> status = authProvider.registrationStatus(registrationId);
+        return status.isEmpty() || status.get() == RegistrationStatus.QUEUED
+                || status.get() == RegistrationStatus.IN_PROGRESS || status.get() == RegistrationStatus.RETRYING;
+    }
+
+    private CompletableFuture<RegistrationResult> remember(Optional<String> idempotencyKey, String email, CompletableFuture<RegistrationResult> result) {
+        if (idempotencyKey.isEmpty()) {
+            return result;
+        }
+        return result.thenApply(registrationResult -> {
+            if (isFinal(registrationResult.outcome())) {
+                idempotentRegistrations.put(idempotencyKey.get(), new IdempotentRegistration(email, registrationResult.outcome(), registrationResult.registrationId().orElse(null)));
+            }
+            return registrationResult;
+        });
+    }
+
+    private static boolean isFinal(RegistrationOutcome outcome) {
+        return outcome == RegistrationOutcome.INITIATED_ASYNC_PROCESS || outcome == RegistrationOutcome.USER_EXISTS;
+    }
+
+    private void countDeduplicated(String reason) {
+        meterRegistry.counter("auth.registrations.deduplicated", "reason", reason).increment();
+    }
+
+    record IdempotentRegistration(String email, RegistrationOutcome outcome, String registrationId) {
+        RegistrationResult toRegistrationResult() {
+            return new RegistrationResult(outcome, Optional.ofNullable(registrationId));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.betterbank.service;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.response.LoginResponse;
+import com.betterbank.dto.response.LoginState;
+import com.betterbank.dto.response.LoginStatus;
+import com.betterbank.providers.KeycloakAdminCredentials;
+import com.betterbank.providers.KeycloakConcurrencyLimiter;
+import com.betterbank.providers.KeycloakTokenClient;
+import com.betterbank.security.JwtTokenValidator;
+import com.betterbank.security.SigningKeyResolver;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.keycloak.admin.client.Keycloak;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Warms the login path up before the instance takes traffic: fetches the admin token, opens connections
+ * to Keycloak's admin API and token endpoint, loads the JWKS and runs synthetic logins and token validations,
+ * with tokens signed here instead of by Keycloak, through {@link AuthServiceImpl}'s response mapping until the
+ * JIT has compiled them.
+ * <p>
+ * Spring Boot only reports readiness after every ApplicationRunner returned, so the readiness probe, and
+ * through {@link com.betterbank.config.EurekaReadinessListener} the Eureka status, stay out of service
+ * while this runs. A step that fails or runs past {@code timeout} is logged and skipped; an instance
+ * that is only partly warm is still better than one that never becomes ready.
+ */
+@Component
+@ConditionalOnProperty(name = "app.config.auth.provider.type", havingValue = "keycloak", matchIfMissing = true)
+public class StartupWarmUp implements ApplicationRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupWarmUp.class);
+    private static final String WARM_UP_ISSUER = "urn:betterbank:warm-up";
+    private static final String WARM_UP_KEY_ID = "warm-up";
+
+    private final KeycloakTokenClient keycloakTokenClient;
+    private final Keycloak keycloakAdminClient;
+    private final KeycloakAdminCredentials keycloakAdminCredentials;
+    private final KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+    private final SigningKeyResolver signingKeyResolver;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final String keycloakRealm;
+    private final boolean enabled;
+    private final Duration timeout;
+    private final int connections;
+    private final int iterations;
+
+    public StartupWarmUp(KeycloakTokenClient keycloakTokenClient,
+                         Keycloak keycloakAdminClient,
+                         KeycloakAdminCredentials keycloakAdminCredentials,
+                         @Qualifier("keycloakAdminApiLimiter") KeycloakConcurrencyLimiter keycloakConcurrencyLimiter,
+                         SigningKeyResolver signingKeyResolver,
+                         Validator validator,
+                         ObjectMapper objectMapper,
+                         @Value("${app.config.keycloak.realm}") String keycloakRealm,
+                         @Value("${app.config.warm-up.enabled:true}") boolean enabled,
+                         @Value("${app.config.warm-up.timeout:PT60S}") Duration timeout,
+                         @Value("${app.config.warm-up.connections:8}") int connections,
+                         @Value("${app.config.warm-up.iterations:2000}") int iterations) {
+        this.keycloakTokenClient = keycloakTokenClient;
+        this.keycloakAdminClient = keycloakAdminClient;
+        this.keycloakAdminCredentials = keycloakAdminCredentials;
+        this.keycloakConcurrencyLimiter = keycloakConcurrencyLimiter;
+        this.signingKeyResolver = signingKeyResolver;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.keycloakRealm = keycloakRealm;
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.connections = connections;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long deadline = started + timeout.toNanos();
+        LOGGER.info("Warming up before accepting traffic");
+
+        ExecutorService executor = Executors.newFixedThreadPool(connections, task -> {
+            Thread thread = new Thread(task, "Auth-Service-Warm-Up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            step("admin token", deadline, executor, 1, keycloakAdminCredentials::accessToken);
+            // concurrent calls, so the pools end up with that many open connections
+            step("admin API connections", deadline, executor, connections,
+                    () -> keycloakConcurrencyLimiter.execute("countUsers", () -> keycloakAdminClient.realm(keycloakRealm).users().count()));
+            // the discovery document rides the token endpoint's connections, a grant would log a failed Keycloak event
+            step("token endpoint connections", deadline, executor, connections, () -> {
+                keycloakTokenClient.fetchConfiguration(keycloakRealm);
+                return null;
+            });
+            step("signing keys", deadline, executor, 1, () -> signingKeyResolver.resolve(WARM_UP_KEY_ID));
+            LoginPath loginPath = stubLoginPath();
+            // spread over the pool, the passes are CPU bound and mostly signing
+            step("login path", deadline, executor, connections, () -> exerciseLoginPath(loginPath, deadline, iterations / connections));
+        } catch (GeneralSecurityException | JsonProcessingException e) {
+            LOGGER.warn("Cannot set up the synthetic logins, skipping them: {}", e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void step(String name, long deadline, ExecutorService executor, int parallelism, Callable<?> task) {
+        List<Future<?>> futures = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            futures.add(executor.submit(task));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            LOGGER.debug("Warm-up step {} done", name);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Warm-up step {} did not finish within {}, skipping it", name, timeout);
+            futures.forEach(future -> future.cancel(true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+        } catch (Exception e) {
+            LOGGER.warn("Warm-up step {} failed: {}", name, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
+
+    /**
+     * The login path with Keycloak replaced by a signer of its own tokens, and a validator that trusts the
+     * signer's key.
+     */
+    private LoginPath stubLoginPath() throws GeneralSecurityException, JsonProcessingException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        SigningKeyResolver stubKeyResolver = keyId -> WARM_UP_KEY_ID.equals(keyId) ? Optional.of(keyPair.getPublic()) : Optional.empty();
+        JwtTokenValidator stubTokenValidator = new JwtTokenValidator(stubKeyResolver, objectMapper, WARM_UP_ISSUER, "", "", Duration.ofSeconds(30), iterations, Duration.ofMinutes(5));
+        return new LoginPath(new WarmUpTokenSigner(keyPair.getPrivate(), objectMapper)::login, stubTokenValidator, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Runs a login and an introspection, request validation and response serialization included. Every
+     * token is new, so the validator's cache never short-cuts the signature check.
+     */
+    private Void exerciseLoginPath(LoginPath loginPath, long deadline, int passes) throws JsonProcessingException {
+        String thread = Thread.currentThread().getName() + "-" + Thread.currentThread().getId();
+        for (int i = 0; i < passes && System.nanoTime() - deadline < 0; i++) {
+            LoginRequest loginRequest = new LoginRequest(thread + "-" + i + "@betterbank.invalid", "warm-up-password");
+            validator.validate(loginRequest);
+            LoginStatus loginStatus = loginPath.login().apply(loginRequest);
+            AuthServiceImpl.countLogin(loginPath.meterRegistry(), loginStatus);
+            LoginResponse loginResponse = AuthServiceImpl.toLoginResponse(loginRequest, loginStatus);
+            objectMapper.writeValueAsString(loginResponse);
+            String accessToken = loginResponse.accessToken().orElseThrow();
+            objectMapper.writeValueAsString(AuthServiceImpl.toIntrospectionResponse(loginPath.tokenValidator().validate(accessToken)));
+        }
+        return null;
+    }
+
+    private record LoginPath(Function<LoginRequest, LoginStatus> login, JwtTokenValidator tokenValidator, MeterRegistry meterRegistry) {
+    }
+
+    private static final class WarmUpTokenSigner {
+        private final PrivateKey signingKey;
+        private final ObjectMapper objectMapper;
+        private final String header;
+
+        private WarmUpTokenSigner(PrivateKey signingKey, ObjectMapper objectMapper) throws JsonProcessingException {
+            this.signingKey = signingKey;
+            this.objectMapper = objectMapper;
+            this.header = encode(objectMapper.writeValueAsBytes(Map.of("alg", "RS256", "kid", WARM_UP_KEY_ID, "typ", "JWT")));
+        }
+
+        private LoginStatus login(LoginRequest loginRequest) {
+            try {
+                Map<String, Object> claims = new LinkedHashMap<>();
+                claims.put("iss", WARM_UP_ISSUER);
+                claims.put("typ", "Bearer");
+                claims.put("sub", loginRequest.email());
+                claims.put("email", loginRequest.email());
+                claims.put("exp", Instant.now().plusSeconds(300).getEpochSecond());
+                String signingInput = header + "." + encode(objectMapper.writeValueAsBytes(claims));
+                Signature signature = Signature.getInstance("SHA256withRSA");
+                signature.initSign(signingKey);
+                signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+                String token = signingInput + "." + encode(signature.sign());
+                return new LoginStatus(LoginState.LOGGED_IN, Optional.of(token), Optional.of("warm-up-refresh-token"));
+            } catch (GeneralSecurityException | JsonProcessingException e) {
+                throw new IllegalStateException("Cannot sign warm-up token", e);
+            }
+        }
+
+        private static String encode(byte[] bytes) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        }
+    }
+}
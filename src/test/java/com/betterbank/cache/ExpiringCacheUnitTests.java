@@ -0,0 +1,60 @@
+package com.betterbank.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExpiringCacheUnitTests {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void getShouldReturnValueUntilTtlElapses() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, Duration.ofSeconds(30), clock::get);
+        cache.put("key", "value");
+
+        clock.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertThat(cache.get("key")).contains("value");
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(cache.get("key")).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void putShouldKeepCacheWithinMaxSize() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(3, Duration.ofMinutes(1), clock::get);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get(9)).contains(9);
+    }
+
+    @Test
+    void putShouldEvictExpiredEntriesBeforeLiveOnes() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, Duration.ofSeconds(10), clock::get);
+        cache.put("old", "value");
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.put("live-1", "value");
+        cache.put("live-2", "value");
+
+        assertThat(cache.get("live-1")).contains("value");
+        assertThat(cache.get("live-2")).contains("value");
+        assertThat(cache.get("old")).isEmpty();
+    }
+
+    @Test
+    void invalidateShouldRemoveEntry() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, Duration.ofMinutes(1), clock::get);
+        cache.put("key", "value");
+
+        cache.invalidate("key");
+
+        assertThat(cache.get("key")).isEmpty();
+    }
+}
@@ -0,0 +1,165 @@
+package com.betterbank.cache;
+
+import com.betterbank.support.RespStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class RedisRemoteCacheUnitTests {
+    private static final String KEY_PREFIX = "auth:";
+    private static final String CHANNEL = KEY_PREFIX + "invalidations";
+
+    private final List<RedisRemoteCache> caches = new ArrayList<>();
+    private RespStubServer respStubServer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        respStubServer = RespStubServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        caches.forEach(RedisRemoteCache::close);
+        respStubServer.close();
+    }
+
+    @Test
+    void putGetAndDeleteShouldUseTheKeyPrefixAndTtl() {
+        RedisRemoteCache redisRemoteCache = cache("", 0, Duration.ofSeconds(1), Duration.ofMillis(50));
+
+        redisRemoteCache.put("user:1", "{\"status\":\"VERIFIED\"}", Duration.ofSeconds(30));
+
+        assertThat(respStubServer.commands()).contains(List.of("SET", "auth:user:1", "{\"status\":\"VERIFIED\"}", "PX", "30000"));
+        assertThat(redisRemoteCache.get("user:1")).contains("{\"status\":\"VERIFIED\"}");
+        redisRemoteCache.delete("user:1");
+        assertThat(redisRemoteCache.get("user:1")).isEmpty();
+    }
+
+    @Test
+    void newConnectionsShouldAuthenticateAndSelectTheDatabase() {
+        respStubServer.setPassword("secret");
+        RedisRemoteCache redisRemoteCache = cache("secret", 2, Duration.ofSeconds(1), Duration.ofMillis(50));
+
+        redisRemoteCache.put("user:1", "value", Duration.ofSeconds(30));
+
+        assertThat(redisRemoteCache.get("user:1")).contains("value");
+        assertThat(respStubServer.commands()).contains(List.of("AUTH", "secret"), List.of("SELECT", "2"));
+    }
+
+    @Test
+    void aRejectedPasswordShouldBackOffLikeAnUnreachableServer() {
+        respStubServer.setPassword("secret");
+        RedisRemoteCache redisRemoteCache = cache("wrong", 0, Duration.ofSeconds(1), Duration.ofSeconds(10));
+        // the invalidation subscriber tries once right away, then waits out the retry interval
+        awaitUntil(() -> respStubServer.count("AUTH") == 1);
+
+        assertThatThrownBy(() -> redisRemoteCache.get("user:1")).isInstanceOf(RemoteCacheException.class)
+                .hasMessageContaining("failed")
+                .hasRootCauseMessage("WRONGPASS invalid username-password pair or user is disabled.");
+        assertThatThrownBy(() -> redisRemoteCache.get("user:1")).isInstanceOf(RemoteCacheException.class)
+                .hasMessageContaining("is unavailable");
+        assertThat(respStubServer.count("AUTH")).isEqualTo(2);
+    }
+
+    @Test
+    void anUnreachableServerShouldFailFastUntilTheRetryInterval() {
+        int port = respStubServer.port();
+        respStubServer.close();
+        RedisRemoteCache redisRemoteCache = new RedisRemoteCache("127.0.0.1", port, "", 0, 1, Duration.ofSeconds(1), Duration.ofSeconds(10), KEY_PREFIX);
+        caches.add(redisRemoteCache);
+
+        assertThatThrownBy(() -> redisRemoteCache.get("user:1")).isInstanceOf(RemoteCacheException.class)
+                .hasMessage("Redis at 127.0.0.1:" + port + " failed");
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> redisRemoteCache.get("user:1")).isInstanceOf(RemoteCacheException.class)
+                .hasMessage("Redis at 127.0.0.1:" + port + " is unavailable");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+    }
+
+    @Test
+    void shouldReconnectAfterTheServerDroppedTheConnection() throws InterruptedException {
+        RedisRemoteCache redisRemoteCache = cache("", 0, Duration.ofSeconds(1), Duration.ofMillis(50));
+        redisRemoteCache.put("user:1", "value", Duration.ofSeconds(30));
+
+        respStubServer.dropConnections();
+
+        assertThatThrownBy(() -> redisRemoteCache.get("user:1")).isInstanceOf(RemoteCacheException.class);
+        Thread.sleep(100);
+        assertThat(redisRemoteCache.get("user:1")).contains("value");
+    }
+
+    @Test
+    void aTimedOutCallShouldNotLeaveItsLateReplyForTheNextCall() throws InterruptedException {
+        RedisRemoteCache redisRemoteCache = cache("", 0, Duration.ofMillis(200), Duration.ofMillis(50));
+        redisRemoteCache.put("user:1", "first", Duration.ofSeconds(30));
+        redisRemoteCache.put("user:2", "second", Duration.ofSeconds(30));
+        respStubServer.setReplyDelay(Duration.ofMillis(500));
+
+        assertThatThrownBy(() -> redisRemoteCache.get("user:1")).isInstanceOf(RemoteCacheException.class);
+        respStubServer.setReplyDelay(Duration.ZERO);
+        Thread.sleep(100);
+
+        assertThat(redisRemoteCache.get("user:2")).isEqualTo(Optional.of("second"));
+    }
+
+    @Test
+    void invalidationsShouldReachTheListenersOfEveryReplica() {
+        RedisRemoteCache publisher = cache("", 0, Duration.ofSeconds(1), Duration.ofMillis(50));
+        RedisRemoteCache subscriber = cache("", 0, Duration.ofSeconds(1), Duration.ofMillis(50));
+        RemoteCache.InvalidationListener listener = mock(RemoteCache.InvalidationListener.class);
+        subscriber.addInvalidationListener(listener);
+        awaitUntil(() -> respStubServer.subscribers(CHANNEL) == 2);
+
+        publisher.publishInvalidation("user:1");
+
+        verify(listener, timeout(2000)).invalidated("user:1");
+    }
+
+    @Test
+    void shouldResubscribeAndReportMissedInvalidationsAfterTheSubscriptionDropped() {
+        RedisRemoteCache subscriber = cache("", 0, Duration.ofSeconds(1), Duration.ofMillis(50));
+        RemoteCache.InvalidationListener listener = mock(RemoteCache.InvalidationListener.class);
+        subscriber.addInvalidationListener(listener);
+        verify(listener, timeout(2000)).invalidationsMissed();
+        clearInvocations(listener);
+
+        respStubServer.dropConnections();
+
+        verify(listener, timeout(2000)).invalidationsMissed();
+        // the dropped connection may still be registered for a moment
+        awaitUntil(() -> respStubServer.subscribers(CHANNEL) == 1);
+        cache("", 0, Duration.ofSeconds(1), Duration.ofMillis(50)).publishInvalidation("user:1");
+        verify(listener, timeout(2000)).invalidated("user:1");
+    }
+
+    private RedisRemoteCache cache(String password, int database, Duration timeout, Duration retryInterval) {
+        RedisRemoteCache redisRemoteCache = new RedisRemoteCache("127.0.0.1", respStubServer.port(), password, database, 1, timeout, retryInterval, KEY_PREFIX);
+        caches.add(redisRemoteCache);
+        return redisRemoteCache;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AssertionError("Condition not met within 2 seconds");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
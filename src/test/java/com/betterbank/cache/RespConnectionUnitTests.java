@@ -0,0 +1,153 @@
+package com.betterbank.cache;
+
+import com.betterbank.support.RespStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RespConnectionUnitTests {
+    private RespStubServer respStubServer;
+    private RespConnection respConnection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        respStubServer = RespStubServer.start();
+        respConnection = new RespConnection("127.0.0.1", respStubServer.port(), Duration.ofSeconds(1), Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        respConnection.close();
+        respStubServer.close();
+    }
+
+    @Test
+    void shouldSendCommandsAsArraysOfBulkStrings() throws IOException {
+        respConnection.call("SET", "key", "välue with spaces", "PX", "1000");
+
+        assertThat(respStubServer.commands()).containsExactly(List.of("SET", "key", "välue with spaces", "PX", "1000"));
+    }
+
+    @Test
+    void bulkRepliesShouldKeepLineBreaksAndMultiByteCharacters() throws IOException {
+        respConnection.call("SET", "key", "first line\r\nsecond line ü");
+
+        assertThat(respConnection.call("GET", "key")).isEqualTo("first line\r\nsecond line ü");
+    }
+
+    @Test
+    void shouldReadEveryReplyType() throws IOException {
+        respStubServer.scriptReply("+OK\r\n");
+        respStubServer.scriptReply(":42\r\n");
+        respStubServer.scriptReply("$0\r\n\r\n");
+        respStubServer.scriptReply("*3\r\n$7\r\nmessage\r\n:1\r\n*1\r\n+nested\r\n");
+        respStubServer.scriptReply("*0\r\n");
+
+        assertThat(respConnection.call("PING")).isEqualTo("OK");
+        assertThat(respConnection.call("PING")).isEqualTo(42L);
+        assertThat(respConnection.call("PING")).isEqualTo("");
+        assertThat(respConnection.call("PING")).isEqualTo(List.of("message", 1L, List.of("nested")));
+        assertThat(respConnection.call("PING")).isEqualTo(List.of());
+    }
+
+    @Test
+    void nilRepliesShouldBeNull() throws IOException {
+        assertThat(respConnection.call("GET", "missing")).isNull();
+
+        respStubServer.scriptReply("*-1\r\n");
+        assertThat(respConnection.call("PING")).isNull();
+    }
+
+    @Test
+    void errorRepliesShouldThrowAndLeaveTheConnectionUsable() throws IOException {
+        respStubServer.scriptReply("-WRONGTYPE Operation against a key holding the wrong kind of value\r\n");
+
+        assertThatThrownBy(() -> respConnection.call("GET", "key"))
+                .isInstanceOf(RemoteCacheException.class)
+                .hasMessage("WRONGTYPE Operation against a key holding the wrong kind of value");
+        respConnection.call("SET", "key", "value");
+        assertThat(respConnection.call("GET", "key")).isEqualTo("value");
+    }
+
+    @Test
+    void anErrorInsideAnArrayShouldNotLeaveTheRestOfItForTheNextReply() throws IOException {
+        respStubServer.scriptReply("*3\r\n+OK\r\n-ERR first\r\n:7\r\n");
+
+        assertThatThrownBy(() -> respConnection.call("EXEC")).isInstanceOf(RemoteCacheException.class).hasMessage("ERR first");
+        respConnection.call("SET", "key", "value");
+        assertThat(respConnection.call("GET", "key")).isEqualTo("value");
+    }
+
+    @Test
+    void shouldReassembleRepliesArrivingInPieces() throws IOException {
+        respConnection.call("SET", "key", "a value split over many packets");
+        respStubServer.setFragmentReplies(true);
+
+        assertThat(respConnection.call("GET", "key")).isEqualTo("a value split over many packets");
+        assertThat(respConnection.call("DEL", "key")).isEqualTo(1L);
+    }
+
+    @Test
+    void aBulkReplyCutShortShouldFailWithEof() {
+        respStubServer.scriptReplyThenDisconnect("$10\r\nshort");
+
+        assertThatThrownBy(() -> respConnection.call("GET", "key")).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void aLineCutShortShouldFailWithEof() {
+        respStubServer.scriptReplyThenDisconnect("+O");
+
+        assertThatThrownBy(() -> respConnection.call("PING")).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void noReplyBeforeTheServerClosesShouldFailWithEof() {
+        respStubServer.scriptReplyThenDisconnect("");
+
+        assertThatThrownBy(() -> respConnection.call("GET", "key")).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void aConnectionClosedByTheServerShouldFail() throws IOException {
+        respConnection.call("SET", "key", "value");
+
+        respStubServer.dropConnections();
+
+        assertThatThrownBy(() -> respConnection.call("GET", "key")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void aSlowReplyShouldTimeOut() {
+        respStubServer.setReplyDelay(Duration.ofSeconds(1));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> respConnection.call("GET", "key")).isInstanceOf(SocketTimeoutException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(900));
+    }
+
+    @Test
+    void malformedRepliesShouldFailAsIoErrors() {
+        respStubServer.scriptReply("$abc\r\n");
+
+        assertThatThrownBy(() -> respConnection.call("GET", "key"))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Malformed RESP number abc");
+    }
+
+    @Test
+    void unknownReplyTypesShouldFailAsIoErrors() {
+        respStubServer.scriptReply("?what\r\n");
+
+        assertThatThrownBy(() -> respConnection.call("GET", "key")).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package com.betterbank.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TieredCacheUnitTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final InMemoryRemoteCache remoteCache = new InMemoryRemoteCache();
+
+    // two replicas sharing one remote tier
+    private final TieredCache<Status> replicaA = new TieredCache<>("status", 100, Duration.ofMinutes(1), Duration.ofMinutes(5), remoteCache, objectMapper, Status.class);
+    private final TieredCache<Status> replicaB = new TieredCache<>("status", 100, Duration.ofMinutes(1), Duration.ofMinutes(5), remoteCache, objectMapper, Status.class);
+
+    @Test
+    void getShouldFindValuesWrittenByAnotherReplica() {
+        replicaA.put("johndoe@test.com", new Status(true, false));
+
+        assertThat(replicaB.get("johndoe@test.com")).contains(new Status(true, false));
+    }
+
+    @Test
+    void invalidateShouldDropTheNearCopyOfEveryReplica() {
+        replicaA.put("johndoe@test.com", new Status(true, false));
+        assertThat(replicaB.get("johndoe@test.com")).isPresent();
+
+        replicaA.invalidate("johndoe@test.com");
+
+        assertThat(replicaB.get("johndoe@test.com")).isEmpty();
+        assertThat(remoteCache.size()).isZero();
+    }
+
+    @Test
+    void onInvalidationShouldReportKeysInvalidatedByAnyReplica() {
+        List<String> invalidated = new ArrayList<>();
+        replicaB.onInvalidation(invalidated::add);
+        TieredCache<Status> otherCache = new TieredCache<>("other", 100, Duration.ofMinutes(1), Duration.ofMinutes(5), remoteCache, objectMapper, Status.class);
+
+        replicaA.invalidate("johndoe@test.com");
+        otherCache.invalidate("janedoe@test.com");
+
+        assertThat(invalidated).containsExactly("johndoe@test.com");
+    }
+
+    @Test
+    void getShouldTreatAFailingRemoteTierAsAMiss() {
+        RemoteCache failingRemoteCache = mock(RemoteCache.class);
+        when(failingRemoteCache.get(anyString())).thenThrow(new RemoteCacheException("Redis is unavailable"));
+        TieredCache<Status> cache = new TieredCache<>("status", 100, Duration.ofMinutes(1), Duration.ofMinutes(5), failingRemoteCache, objectMapper, Status.class);
+
+        assertThat(cache.get("johndoe@test.com")).isEmpty();
+    }
+
+    @Test
+    void nearEntriesShouldExpireAfterNearTtlWithASharedTier() {
+        AtomicLong now = new AtomicLong();
+        TieredCache<Status> cache = new TieredCache<>("status", 100, Duration.ofMinutes(1), Duration.ofMinutes(5), remoteCache, objectMapper, Status.class, now::get);
+        cache.put("johndoe@test.com", new Status(true, false));
+        // changed by another replica, its invalidation lost
+        remoteCache.delete("status:johndoe@test.com");
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertThat(cache.get("johndoe@test.com")).isEmpty();
+    }
+
+    @Test
+    void nearEntriesShouldKeepTheFullTtlWithoutASharedTier() {
+        AtomicLong now = new AtomicLong();
+        TieredCache<Status> cache = new TieredCache<>("status", 100, Duration.ofMinutes(1), Duration.ofMinutes(5), new NoRemoteCache(), objectMapper, Status.class, now::get);
+        cache.put("johndoe@test.com", new Status(true, false));
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertThat(cache.get("johndoe@test.com")).contains(new Status(true, false));
+
+        now.addAndGet(Duration.ofMinutes(3).toNanos());
+        assertThat(cache.get("johndoe@test.com")).isEmpty();
+    }
+
+    @Test
+    void getShouldIgnoreFieldsWrittenByANewerVersion() {
+        remoteCache.put("status:johndoe@test.com", "{\"exists\":true,\"verified\":true,\"locked\":false}", Duration.ofMinutes(1));
+
+        assertThat(replicaA.get("johndoe@test.com")).isEqualTo(Optional.of(new Status(true, true)));
+    }
+
+    record Status(boolean exists, boolean verified) {
+    }
+}
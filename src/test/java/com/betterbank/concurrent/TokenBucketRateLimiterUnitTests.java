@@ -0,0 +1,107 @@
+package com.betterbank.concurrent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketRateLimiterUnitTests {
+    private final AtomicLong nanoTime = new AtomicLong();
+    private TokenBucketRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // 3 tokens per bucket, one token back every 10s, at most 2 buckets
+        rateLimiter = new TokenBucketRateLimiter(3, Duration.ofSeconds(30), 2, nanoTime::get);
+    }
+
+    @Test
+    void shouldAllowABurstUpToCapacityAndThenReportTheWait() {
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+
+        assertThat(rateLimiter.tryAcquire("a")).isEqualTo(Duration.ofSeconds(10).toNanos());
+    }
+
+    @Test
+    void shouldRefillOverTime() {
+        drain("a");
+
+        advance(Duration.ofSeconds(9));
+        assertThat(rateLimiter.tryAcquire("a")).isEqualTo(Duration.ofSeconds(1).toNanos());
+
+        advance(Duration.ofSeconds(1));
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+        assertThat(rateLimiter.tryAcquire("a")).isPositive();
+    }
+
+    @Test
+    void shouldKeepKeysIndependent() {
+        drain("a");
+
+        assertThat(rateLimiter.tryAcquire("b")).isZero();
+    }
+
+    @Test
+    void shouldEvictFullBucketsWhenMaxKeysIsReached() {
+        rateLimiter.tryAcquire("a");
+        rateLimiter.tryAcquire("b");
+
+        // both buckets are full again after 10s, so they can go
+        advance(Duration.ofSeconds(10));
+        assertThat(rateLimiter.tryAcquire("c")).isZero();
+        assertThat(rateLimiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShareAnOverflowBucketBetweenUntrackedKeysWhenAllBucketsAreInUse() {
+        drain("a");
+        drain("b");
+
+        assertThat(rateLimiter.tryAcquire("c")).isZero();
+        assertThat(rateLimiter.tryAcquire("d")).isZero();
+        assertThat(rateLimiter.tryAcquire("e")).isZero();
+        // fresh keys can't get around the limit, they all drew from the same bucket
+        assertThat(rateLimiter.tryAcquire("f")).isEqualTo(Duration.ofSeconds(10).toNanos());
+        assertThat(rateLimiter.tryAcquire("c")).isPositive();
+        assertThat(rateLimiter.size()).isEqualTo(2);
+        // buckets in use are never evicted
+        assertThat(rateLimiter.tryAcquire("a")).isPositive();
+    }
+
+    @Test
+    void shouldSweepAtMostOncePerTokenInterval() {
+        rateLimiter.tryAcquire("a");
+        drain("b");
+
+        // the sweep finds "a" still in use
+        advance(Duration.ofSeconds(9));
+        assertThat(rateLimiter.tryAcquire("c")).isZero();
+
+        // "a" is full now, but the last sweep is only 3s ago, so new keys use the overflow bucket without another scan
+        advance(Duration.ofSeconds(3));
+        assertThat(rateLimiter.tryAcquire("d")).isZero();
+        assertThat(rateLimiter.size()).isEqualTo(2);
+
+        advance(Duration.ofSeconds(7));
+        assertThat(rateLimiter.tryAcquire("e")).isZero();
+        assertThat(rateLimiter.size()).isEqualTo(2);
+        assertThat(rateLimiter.tryAcquire("e")).isZero();
+        assertThat(rateLimiter.tryAcquire("e")).isZero();
+        assertThat(rateLimiter.tryAcquire("e")).isPositive();
+    }
+
+    private void drain(String key) {
+        while (rateLimiter.tryAcquire(key) == 0) {
+            // take every token
+        }
+    }
+
+    private void advance(Duration duration) {
+        nanoTime.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,77 @@
+package com.betterbank.config;
+
+import com.betterbank.providers.HttpKeycloakTokenClient;
+import com.betterbank.providers.KeycloakAdminCredentials;
+import com.betterbank.support.KeycloakStubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.client.Client;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AuthProviderConfigUnitTests {
+    private static final String REALM = "test-realm";
+
+    private KeycloakStubServer keycloakStubServer;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private Client keycloakAdminHttpClient;
+    private KeycloakAdminCredentials keycloakAdminCredentials;
+    private Keycloak keycloakAdminClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        keycloakStubServer = KeycloakStubServer.start(Duration.ZERO);
+        KeycloakAdminTransportConfig transportConfig = new KeycloakAdminTransportConfig();
+        connectionManager = transportConfig.keycloakAdminConnectionManager(4, 4, Duration.ofMinutes(5), Duration.ofSeconds(2));
+        keycloakAdminHttpClient = transportConfig.keycloakAdminHttpClient(connectionManager, Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofSeconds(2), Duration.ofSeconds(30));
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(2)).build();
+        HttpKeycloakTokenClient keycloakTokenClient = new HttpKeycloakTokenClient(httpClient, Jackson2ObjectMapperBuilder.json().build(), keycloakStubServer.url(), Duration.ofSeconds(5));
+        keycloakAdminCredentials = new KeycloakAdminCredentials(keycloakTokenClient, REALM, "admin-cli", "admin-secret", "admin", "admin",
+                Duration.ofSeconds(30), Duration.ofSeconds(5), true, new SimpleMeterRegistry());
+        keycloakAdminCredentials.start();
+        keycloakAdminClient = new AuthProviderConfig().keycloakAdminClient(keycloakStubServer.url(), REALM, keycloakAdminCredentials, keycloakAdminHttpClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        keycloakAdminHttpClient.close();
+        connectionManager.close();
+        keycloakAdminCredentials.stop();
+        keycloakStubServer.close();
+    }
+
+    @Test
+    void adminCallsShouldCarryTheManagedTokenInsteadOfTheBuilderPlaceholder() {
+        String accessToken = keycloakAdminCredentials.accessToken();
+
+        keycloakAdminClient.realm(REALM).users().search("verified@betterbank.test", true);
+        keycloakAdminClient.realm(REALM).users().get("user-id").sendVerifyEmail();
+
+        assertThat(keycloakStubServer.adminAuthorizations()).containsExactly("Bearer " + accessToken, "Bearer " + accessToken);
+    }
+
+    @Test
+    void aRejectedTokenShouldBeInvalidatedSoTheNextCallUsesAFreshOne() {
+        String revokedToken = keycloakAdminCredentials.accessToken();
+        keycloakStubServer.revokeAccessTokens();
+
+        assertThatThrownBy(() -> keycloakAdminClient.realm(REALM).users().search("verified@betterbank.test", true))
+                .isInstanceOf(NotAuthorizedException.class);
+        String freshToken = keycloakAdminCredentials.accessToken();
+        keycloakAdminClient.realm(REALM).users().search("verified@betterbank.test", true);
+
+        assertThat(freshToken).isNotEqualTo(revokedToken);
+        assertThat(keycloakStubServer.adminAuthorizations()).containsExactly("Bearer " + revokedToken, "Bearer " + freshToken);
+    }
+}
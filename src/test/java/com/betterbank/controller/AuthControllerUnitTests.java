@@ -1,8 +1,15 @@
 package com.betterbank.controller;
 
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.request.ResendVerificationRequest;
 import com.betterbank.dto.response.GenericResponse;
 import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.betterbank.dto.response.RegistrationStatusResponse;
+import com.betterbank.exception.RateLimitExceededException;
+import com.betterbank.security.LoginRateLimiter;
+import com.betterbank.security.ResendVerificationRateLimiter;
 import com.betterbank.service.AuthService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,8 +19,15 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -23,6 +37,12 @@ public class AuthControllerUnitTests {
     @Mock
     private AuthService mockAuthService;
 
+    @Mock
+    private LoginRateLimiter mockLoginRateLimiter;
+
+    @Mock
+    private ResendVerificationRateLimiter mockResendVerificationRateLimiter;
+
     // creates a real object/bean of the class and injects the @Mock beans inside
     // its constructor
     @InjectMocks
@@ -42,22 +62,23 @@ public class AuthControllerUnitTests {
     @Test
     void register_ShouldReturnCreated_WhenInitiatedAsyncProcess() {
         RegisterRequest request = createValidRegisterRequest();
-        when(mockAuthService.register(request)).thenReturn(RegistrationOutcome.INITIATED_ASYNC_PROCESS);
+        when(mockAuthService.register(request, Optional.empty())).thenReturn(new RegistrationResult(RegistrationOutcome.INITIATED_ASYNC_PROCESS, Optional.of("registration-id")));
 
-        ResponseEntity<GenericResponse> response = mockAuthController.register(request);
+        ResponseEntity<GenericResponse> response = mockAuthController.register(request, Optional.empty());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
         Assertions.assertNotNull(response.getBody());
         assertThat(response.getBody().successStatus()).isTrue();
         assertThat(response.getBody().message()).containsIgnoringCase("Account creation request received");
+        assertThat(response.getBody().registrationId()).contains("registration-id");
     }
 
     @Test
     void register_ShouldReturnOk_WhenUserExists() {
         RegisterRequest request = createValidRegisterRequest();
-        when(mockAuthService.register(request)).thenReturn(RegistrationOutcome.USER_EXISTS);
+        when(mockAuthService.register(request, Optional.empty())).thenReturn(RegistrationResult.of(RegistrationOutcome.USER_EXISTS));
 
-        ResponseEntity<GenericResponse> response = mockAuthController.register(request);
+        ResponseEntity<GenericResponse> response = mockAuthController.register(request, Optional.empty());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         Assertions.assertNotNull(response.getBody());
@@ -68,9 +89,9 @@ public class AuthControllerUnitTests {
     @Test
     void register_ShouldReturnInternalServerError_WhenAuthProviderError() {
         RegisterRequest request = createValidRegisterRequest();
-        when(mockAuthService.register(request)).thenReturn(RegistrationOutcome.AUTH_PROVIDER_ERROR);
+        when(mockAuthService.register(request, Optional.empty())).thenReturn(RegistrationResult.of(RegistrationOutcome.AUTH_PROVIDER_ERROR));
 
-        ResponseEntity<GenericResponse> response = mockAuthController.register(request);
+        ResponseEntity<GenericResponse> response = mockAuthController.register(request, Optional.empty());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
         Assertions.assertNotNull(response.getBody());
@@ -78,4 +99,64 @@ public class AuthControllerUnitTests {
         assertThat(response.getBody().message()).containsIgnoringCase("Server Error");
     }
 
+    @Test
+    void register_ShouldReturnServiceUnavailable_WhenRegistrationQueueFull() {
+        RegisterRequest request = createValidRegisterRequest();
+        when(mockAuthService.register(request, Optional.empty())).thenReturn(RegistrationResult.of(RegistrationOutcome.REGISTRATION_QUEUE_FULL));
+
+        ResponseEntity<GenericResponse> response = mockAuthController.register(request, Optional.empty());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("5");
+        Assertions.assertNotNull(response.getBody());
+        assertThat(response.getBody().successStatus()).isFalse();
+    }
+
+    @Test
+    void registrationStatusShouldReturnStatusWhenRegistrationIsKnown() {
+        when(mockAuthService.registrationStatus("registration-id"))
+                .thenReturn(Optional.of(new RegistrationStatusResponse("registration-id", RegistrationStatus.COMPLETED)));
+
+        ResponseEntity<RegistrationStatusResponse> response = mockAuthController.registrationStatus("registration-id");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertNotNull(response.getBody());
+        assertThat(response.getBody().status()).isEqualTo(RegistrationStatus.COMPLETED);
+    }
+
+    @Test
+    void registrationStatusShouldReturnNotFoundWhenRegistrationIsUnknown() {
+        when(mockAuthService.registrationStatus("unknown")).thenReturn(Optional.empty());
+
+        ResponseEntity<RegistrationStatusResponse> response = mockAuthController.registrationStatus("unknown");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void resendVerificationShouldReturnAccepted() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        ResponseEntity<GenericResponse> response = mockAuthController.resendVerification(new ResendVerificationRequest("johndoe@test.com"), request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        verify(mockResendVerificationRateLimiter).checkResend(request.getRemoteAddr());
+        verify(mockAuthService).resendVerificationEmail("johndoe@test.com");
+    }
+
+    @Test
+    void resendVerificationShouldReturnTooManyRequestsWhenTheClientIpIsLimited() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        doThrow(new RateLimitExceededException("Too many verification email requests", Duration.ofMillis(1500)))
+                .when(mockResendVerificationRateLimiter).checkResend(request.getRemoteAddr());
+
+        ResponseEntity<GenericResponse> response = mockAuthController.resendVerification(new ResendVerificationRequest("johndoe@test.com"), request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("2");
+        Assertions.assertNotNull(response.getBody());
+        assertThat(response.getBody().successStatus()).isFalse();
+        verify(mockAuthService, never()).resendVerificationEmail("johndoe@test.com");
+    }
+
 }
@@ -0,0 +1,91 @@
+package com.betterbank.controller;
+
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.BulkRegistrationStatus;
+import com.betterbank.service.AuthService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BulkRegistrationControllerUnitTests {
+    private static final String API_KEY = "bulk-import-key";
+
+    @Mock
+    private AuthService mockAuthService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private BulkRegistrationController bulkRegistrationController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bulkRegistrationController = new BulkRegistrationController(mockAuthService, objectMapper, API_KEY, 2);
+    }
+
+    @Test
+    void constructorShouldRequireAnApiKey() {
+        assertThatThrownBy(() -> new BulkRegistrationController(mockAuthService, objectMapper, "", 2)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void registerBulkShouldRejectCallersWithoutTheApiKey() throws Exception {
+        MockHttpServletResponse missingKey = new MockHttpServletResponse();
+        MockHttpServletResponse wrongKey = new MockHttpServletResponse();
+
+        bulkRegistrationController.registerBulk(request(null, 1), missingKey);
+        bulkRegistrationController.registerBulk(request("guess", 1), wrongKey);
+
+        assertThat(missingKey.getStatus()).isEqualTo(401);
+        assertThat(wrongKey.getStatus()).isEqualTo(401);
+        verifyNoInteractions(mockAuthService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void registerBulkShouldStopReadingAfterMaxLines() throws Exception {
+        List<String> registeredEmails = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<RegisterRequest> registerRequests = invocation.getArgument(0);
+            registerRequests.forEachRemaining(registerRequest -> registeredEmails.add(registerRequest.email()));
+            ((Consumer<List<BulkRegistrationResult>>) invocation.getArgument(1)).accept(registeredEmails.stream()
+                    .map(email -> new BulkRegistrationResult(email, BulkRegistrationStatus.CREATED)).toList());
+            return null;
+        }).when(mockAuthService).registerBulk(any(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        bulkRegistrationController.registerBulk(request(API_KEY, 3), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(registeredEmails).containsExactly("user0@test.com", "user1@test.com");
+        assertThat(response.getContentAsString()).contains("TOO_MANY_LINES").doesNotContain("user2@test.com");
+    }
+
+    private MockHttpServletRequest request(String apiKey, int lines) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/register/bulk");
+        if (apiKey != null) {
+            request.addHeader(BulkRegistrationController.API_KEY_HEADER, apiKey);
+        }
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            body.append(objectMapper.writeValueAsString(new RegisterRequest("John", "Doe", "user" + i + "@test.com", "Password123!"))).append('\n');
+        }
+        request.setContent(body.toString().getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
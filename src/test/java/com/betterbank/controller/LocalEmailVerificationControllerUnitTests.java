@@ -0,0 +1,61 @@
+package com.betterbank.controller;
+
+import com.betterbank.dto.request.VerifyEmailRequest;
+import com.betterbank.dto.response.GenericResponse;
+import com.betterbank.providers.LocalAuthProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class LocalEmailVerificationControllerUnitTests {
+    private static final String API_KEY = "email-verification-key";
+
+    @Mock
+    private LocalAuthProvider mockLocalAuthProvider;
+
+    private LocalEmailVerificationController localEmailVerificationController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        localEmailVerificationController = new LocalEmailVerificationController(mockLocalAuthProvider, API_KEY);
+    }
+
+    @Test
+    void constructorShouldRequireAnApiKey() {
+        assertThatThrownBy(() -> new LocalEmailVerificationController(mockLocalAuthProvider, "")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void verifyEmailShouldVerifyTheAccount() {
+        when(mockLocalAuthProvider.verifyEmail("johndoe@test.com")).thenReturn(true);
+
+        ResponseEntity<GenericResponse> response = localEmailVerificationController.verifyEmail(new VerifyEmailRequest("johndoe@test.com"), API_KEY);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().successStatus()).isTrue();
+    }
+
+    @Test
+    void verifyEmailShouldReturnNotFoundForAnUnknownAccount() {
+        when(mockLocalAuthProvider.verifyEmail("johndoe@test.com")).thenReturn(false);
+
+        ResponseEntity<GenericResponse> response = localEmailVerificationController.verifyEmail(new VerifyEmailRequest("johndoe@test.com"), API_KEY);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void verifyEmailShouldRejectCallersWithoutTheApiKey() {
+        assertThat(localEmailVerificationController.verifyEmail(new VerifyEmailRequest("johndoe@test.com"), null).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(localEmailVerificationController.verifyEmail(new VerifyEmailRequest("johndoe@test.com"), "guess").getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verifyNoInteractions(mockLocalAuthProvider);
+    }
+}
@@ -0,0 +1,68 @@
+package com.betterbank.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.KeyValuePair;
+import org.springframework.boot.logging.logback.StructuredLogEncoder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RedactingJsonMembersCustomizerUnitTests {
+
+    private LoggerContext loggerContext;
+    private StructuredLogEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test",
+                Map.of("logging.structured.json.customizer", RedactingJsonMembersCustomizer.class.getName())));
+        loggerContext = new LoggerContext();
+        loggerContext.putObject(Environment.class.getName(), environment);
+        encoder = new StructuredLogEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setFormat("logstash");
+        encoder.start();
+    }
+
+    @Test
+    void secretKeyValuesShouldBeRedacted() {
+        String json = encode(Map.of(), new KeyValuePair("event", "login.failed"), new KeyValuePair("password", "hunter2"),
+                new KeyValuePair("refresh_token", "eyJhbGciOi"), new KeyValuePair("email", "user@test.com"));
+
+        assertThat(json).contains("\"password\":\"[REDACTED]\"", "\"refresh_token\":\"[REDACTED]\"",
+                "\"event\":\"login.failed\"", "\"email\":\"user@test.com\"");
+        assertThat(json).doesNotContain("hunter2", "eyJhbGciOi");
+    }
+
+    @Test
+    void secretMdcEntriesShouldBeRedactedWhateverTheirCase() {
+        String json = encode(Map.of("Authorization", "Bearer eyJhbGciOi", "requestId", "42"));
+
+        assertThat(json).contains("\"Authorization\":\"[REDACTED]\"", "\"requestId\":\"42\"");
+        assertThat(json).doesNotContain("eyJhbGciOi");
+    }
+
+    @Test
+    void messageShouldBeLeftAlone() {
+        assertThat(encode(Map.of())).contains("\"message\":\"Login failed\"");
+    }
+
+    private String encode(Map<String, String> mdc, KeyValuePair... keyValuePairs) {
+        LoggingEvent event = new LoggingEvent(getClass().getName(), loggerContext.getLogger("test"), Level.INFO, "Login failed", null, null);
+        event.setMDCPropertyMap(mdc);
+        event.setKeyValuePairs(new ArrayList<>(List.of(keyValuePairs)));
+        return new String(encoder.encode(event), StandardCharsets.UTF_8);
+    }
+}
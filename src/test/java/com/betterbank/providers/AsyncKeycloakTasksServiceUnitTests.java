@@ -13,10 +13,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 
 import java.lang.reflect.Field;
 import java.net.URI;
+import java.time.Duration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -26,6 +28,15 @@ public class AsyncKeycloakTasksServiceUnitTests {
     @Mock
     private Keycloak mockKeycloakAdminClient;
 
+    @Spy
+    private KeycloakConcurrencyLimiter keycloakConcurrencyLimiter = new KeycloakConcurrencyLimiter(10, Duration.ofSeconds(1));
+
+    @Mock
+    private KeycloakUserStatusResolver mockKeycloakUserStatusResolver;
+
+    @Mock
+    private VerificationEmailDispatcher mockVerificationEmailDispatcher;
+
     private final String keycloakRealm = "test-realm";
 
     @InjectMocks
@@ -64,7 +75,8 @@ public class AsyncKeycloakTasksServiceUnitTests {
         when(mockUsersResource.get(anyString())).thenReturn(mockUserResource);
 
         // Simulate user creation
-        asyncKeycloakTasksService.createUserInKeycloak(request);
+        KeycloakTaskResult result = asyncKeycloakTasksService.createUserInKeycloak(request);
+        assertThat(result).isEqualTo(KeycloakTaskResult.SUCCEEDED);
         assertThat(mockResponse.getStatus()).isEqualTo(HttpStatus.CREATED.value()); // Assuming 201 Created is the expected response status
         assertThat(mockUri.getPath()).isEqualTo("/auth/admin/realms/{realm}/users/user-id");
         assertThat(mockUserResource).isNotNull();
@@ -83,8 +95,12 @@ public class AsyncKeycloakTasksServiceUnitTests {
         // Verify that the user creation method was called
         verify(mockUsersResource, times(1)).create(any(UserRepresentation.class));
 
-        // verify that send email method was called
-        verify(mockUserResource, times(1)).sendVerifyEmail();
+        // verify that the verification email was handed to the mail stage instead of being sent inline
+        verify(mockVerificationEmailDispatcher, times(1)).dispatch("user-id", request.email());
+        verify(mockUserResource, never()).sendVerifyEmail();
+
+        // the new user must not stay hidden behind a cached "not found"
+        verify(mockKeycloakUserStatusResolver).userCreated(request.email());
     }
 
     @Test
@@ -101,7 +117,8 @@ public class AsyncKeycloakTasksServiceUnitTests {
         when(mockResponse.getStatus()).thenReturn(HttpStatus.INTERNAL_SERVER_ERROR.value());
 
         // simulate calling the method
-        asyncKeycloakTasksService.createUserInKeycloak(request);
+        KeycloakTaskResult result = asyncKeycloakTasksService.createUserInKeycloak(request);
+        assertThat(result).isEqualTo(KeycloakTaskResult.RETRYABLE_FAILURE);
 
         // verify that request object was passed to the createUserInKeycloak method
         ArgumentCaptor<UserRepresentation> captor = ArgumentCaptor.forClass(UserRepresentation.class);
@@ -118,6 +135,7 @@ public class AsyncKeycloakTasksServiceUnitTests {
 
         // verify that the response is anything other than 201 Created
         assertThat(mockResponse.getStatus()).isNotEqualTo(HttpStatus.CREATED.value());
+        verify(mockKeycloakUserStatusResolver, never()).userCreated(anyString());
 
     }
 
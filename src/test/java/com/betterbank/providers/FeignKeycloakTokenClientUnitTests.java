@@ -0,0 +1,78 @@
+package com.betterbank.providers;
+
+import com.betterbank.exception.AuthProviderUnavailableException;
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class FeignKeycloakTokenClientUnitTests {
+    @Mock
+    private KeycloakTokenFeignClient mockKeycloakTokenFeignClient;
+
+    private FeignKeycloakTokenClient feignKeycloakTokenClient;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        feignKeycloakTokenClient = new FeignKeycloakTokenClient(mockKeycloakTokenFeignClient);
+    }
+
+    @Test
+    void requestTokenShouldPassFormParamsToFeignClient() {
+        KeycloakTokenResponse token = new KeycloakTokenResponse("access", "refresh", 300, 1800, "Bearer");
+        when(mockKeycloakTokenFeignClient.getToken(eq("test-realm"), any())).thenReturn(token);
+
+        assertThat(feignKeycloakTokenClient.requestToken("test-realm", Map.of("grant_type", "password"))).isEqualTo(token);
+        verify(mockKeycloakTokenFeignClient).getToken(eq("test-realm"), argThat(form -> "password".equals(form.getFirst("grant_type"))));
+    }
+
+    @Test
+    void requestTokenShouldTranslateRejectedGrant() {
+        when(mockKeycloakTokenFeignClient.getToken(eq("test-realm"), any()))
+                .thenThrow(errorStatus(401, "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid user credentials\"}"));
+
+        assertThatThrownBy(() -> feignKeycloakTokenClient.requestToken("test-realm", Map.of("grant_type", "password")))
+                .isInstanceOfSatisfying(KeycloakTokenRejectedException.class, e -> {
+                    assertThat(e.status()).isEqualTo(401);
+                    assertThat(e.isInvalidGrant()).isTrue();
+                });
+    }
+
+    @Test
+    void requestTokenShouldReportServerErrorsAsUnavailable() {
+        when(mockKeycloakTokenFeignClient.getToken(eq("test-realm"), any())).thenThrow(errorStatus(503, ""));
+
+        assertThatThrownBy(() -> feignKeycloakTokenClient.requestToken("test-realm", Map.of("grant_type", "password")))
+                .isInstanceOf(AuthProviderUnavailableException.class)
+                .hasMessageContaining("503");
+    }
+
+    @Test
+    void fetchConfigurationShouldReportServerErrorsAsUnavailable() {
+        when(mockKeycloakTokenFeignClient.getConfiguration("test-realm")).thenThrow(errorStatus(503, ""));
+
+        assertThatThrownBy(() -> feignKeycloakTokenClient.fetchConfiguration("test-realm"))
+                .isInstanceOf(AuthProviderUnavailableException.class)
+                .hasMessageContaining("503");
+    }
+
+    private FeignException errorStatus(int status, String body) {
+        Request request = Request.create(Request.HttpMethod.POST, "/realms/test-realm/protocol/openid-connect/token", Map.of(), null, StandardCharsets.UTF_8, null);
+        return FeignException.errorStatus("getToken", feign.Response.builder()
+                .status(status)
+                .request(request)
+                .headers(Map.of())
+                .body(body, StandardCharsets.UTF_8)
+                .build());
+    }
+}
@@ -0,0 +1,127 @@
+package com.betterbank.providers;
+
+import com.betterbank.exception.AuthProviderUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class KeycloakAdminCredentialsUnitTests {
+    @Mock
+    private KeycloakTokenClient mockKeycloakTokenClient;
+
+    private KeycloakAdminCredentials keycloakAdminCredentials;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        keycloakAdminCredentials = new KeycloakAdminCredentials(mockKeycloakTokenClient, "test-realm", "admin-cli", "admin-secret", "admin", "admin",
+                Duration.ofSeconds(30), Duration.ofMillis(50), true, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        keycloakAdminCredentials.stop();
+    }
+
+    @Test
+    void startShouldFetchTheTokenSoCallersDoNotHaveTo() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("password")))).thenReturn(token("admin-token-1", 60));
+
+        keycloakAdminCredentials.start();
+
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-1");
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-1");
+        verify(mockKeycloakTokenClient, times(1)).requestToken(any(), any());
+    }
+
+    @Test
+    void startShouldNotCallKeycloakWhenFetchOnStartupIsOff() {
+        keycloakAdminCredentials.stop();
+        keycloakAdminCredentials = new KeycloakAdminCredentials(mockKeycloakTokenClient, "test-realm", "admin-cli", "admin-secret", "admin", "admin",
+                Duration.ofSeconds(30), Duration.ofMillis(50), false, new SimpleMeterRegistry());
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("password")))).thenReturn(token("admin-token-1", 60));
+
+        keycloakAdminCredentials.start();
+
+        verify(mockKeycloakTokenClient, never()).requestToken(any(), any());
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-1");
+    }
+
+    @Test
+    void shouldRefreshInTheBackgroundBeforeTheTokenExpires() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("password")))).thenReturn(token("admin-token-1", 1));
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("refresh_token")))).thenReturn(token("admin-token-2", 60));
+
+        keycloakAdminCredentials.start();
+
+        // a one second token is refreshed halfway
+        verify(mockKeycloakTokenClient, timeout(2000)).requestToken(eq("test-realm"), argThat(grant("refresh_token")));
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-2");
+    }
+
+    @Test
+    void shouldLogInAgainWhenTheRefreshTokenIsRejected() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("password"))))
+                .thenReturn(token("admin-token-1", 1))
+                .thenReturn(token("admin-token-2", 60));
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("refresh_token"))))
+                .thenThrow(new KeycloakTokenRejectedException(400, "{\"error\":\"invalid_grant\"}"));
+
+        keycloakAdminCredentials.start();
+
+        verify(mockKeycloakTokenClient, timeout(2000).times(2)).requestToken(eq("test-realm"), argThat(grant("password")));
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-2");
+    }
+
+    @Test
+    void shouldKeepRetryingWhenKeycloakIsDownAtStartup() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("password"))))
+                .thenThrow(new AuthProviderUnavailableException("Keycloak token endpoint unavailable"))
+                .thenReturn(token("admin-token-1", 60));
+
+        keycloakAdminCredentials.start();
+
+        verify(mockKeycloakTokenClient, timeout(2000).times(2)).requestToken(eq("test-realm"), argThat(grant("password")));
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-1");
+    }
+
+    @Test
+    void accessTokenShouldFetchOnTheCallingThreadAfterTheTokenWasRejected() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), argThat(grant("password"))))
+                .thenReturn(token("admin-token-1", 60))
+                .thenReturn(token("admin-token-2", 60));
+        keycloakAdminCredentials.start();
+
+        keycloakAdminCredentials.invalidate("some-older-token");
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-1");
+
+        keycloakAdminCredentials.invalidate("admin-token-1");
+        assertThat(keycloakAdminCredentials.accessToken()).isEqualTo("admin-token-2");
+    }
+
+    @Test
+    void accessTokenShouldFailWhenKeycloakIsUnreachable() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any())).thenThrow(new AuthProviderUnavailableException("Keycloak token endpoint unavailable"));
+
+        assertThatThrownBy(() -> keycloakAdminCredentials.accessToken()).isInstanceOf(AuthProviderUnavailableException.class);
+    }
+
+    private static ArgumentMatcher<Map<String, String>> grant(String grantType) {
+        return formParams -> formParams != null && grantType.equals(formParams.get("grant_type"));
+    }
+
+    private static KeycloakTokenResponse token(String accessToken, long expiresIn) {
+        return new KeycloakTokenResponse(accessToken, "refresh-" + accessToken, expiresIn, 1800, "Bearer");
+    }
+}
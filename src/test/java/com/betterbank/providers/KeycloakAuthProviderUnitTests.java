@@ -1,11 +1,21 @@
 package com.betterbank.providers;
 
+import com.betterbank.cache.NoRemoteCache;
+import com.betterbank.cache.TieredCacheFactory;
+import com.betterbank.dto.request.LoginRequest;
 import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginState;
+import com.betterbank.dto.response.LoginStatus;
 import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.LoginResponse;
+import com.betterbank.exception.AuthProviderUnavailableException;
+import com.betterbank.service.AuthServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.keycloak.representations.idm.UserRepresentation;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.keycloak.admin.client.Keycloak;
@@ -13,8 +23,10 @@ import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.admin.client.resource.UsersResource;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -24,14 +36,26 @@ public class KeycloakAuthProviderUnitTests {
     private Keycloak mockKeycloakAdminClient;
 
     @Mock
-    private AsyncKeycloakTasksService mockAsyncKeycloakTasksService;
+    private RegistrationWorkQueue mockRegistrationWorkQueue;
+
+    @Mock
+    private KeycloakTokenClient mockKeycloakTokenClient;
+
+    @Mock
+    private KeycloakBulkImporter mockKeycloakBulkImporter;
+
+    @Mock
+    private VerificationEmailDispatcher mockVerificationEmailDispatcher;
 
-    @InjectMocks
     private KeycloakAuthProvider keycloakAuthProvider;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        KeycloakConcurrencyLimiter keycloakConcurrencyLimiter = new KeycloakConcurrencyLimiter(10, Duration.ofSeconds(1));
+        KeycloakUserStatusResolver keycloakUserStatusResolver = new KeycloakUserStatusResolver(mockKeycloakAdminClient, keycloakConcurrencyLimiter, "test-realm", 100, Duration.ofMinutes(5), 100, Duration.ofSeconds(30), mock(KeycloakKnownUsersFilter.class),
+                new TieredCacheFactory(new NoRemoteCache(), new ObjectMapper(), Duration.ofMinutes(5)));
+        keycloakAuthProvider = new KeycloakAuthProvider(mockKeycloakAdminClient, mockRegistrationWorkQueue, mockKeycloakTokenClient, keycloakUserStatusResolver, keycloakConcurrencyLimiter, mockKeycloakBulkImporter, mockVerificationEmailDispatcher);
         // Set keycloakRealm via reflection
         try {
             Field realmField = KeycloakAuthProvider.class.getDeclaredField("keycloakRealm");
@@ -49,14 +73,14 @@ public class KeycloakAuthProviderUnitTests {
         RealmResource mockRealmResource = mock(RealmResource.class);
         when(mockKeycloakAdminClient.realm(anyString())).thenReturn(mockRealmResource);
         when(mockRealmResource.users()).thenReturn(mockUsersResource);
-        // Simulate user exists by username
-        when(mockUsersResource.searchByUsername(eq(request.email()), anyBoolean())).thenReturn(List.of(new UserRepresentation()));
-        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(Collections.emptyList());
+        // Simulate user exists by email
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(new UserRepresentation()));
 
-        RegistrationOutcome outcome = keycloakAuthProvider.register(request);
+        RegistrationOutcome outcome = keycloakAuthProvider.register(request).outcome();
         assertThat(outcome).isEqualTo(RegistrationOutcome.USER_EXISTS);
-        verify(mockUsersResource, times(1)).searchByUsername(eq(request.email()), anyBoolean());
-        verify(mockUsersResource, never()).searchByEmail(eq(request.email()), anyBoolean());
+        verify(mockUsersResource, times(1)).searchByEmail(eq(request.email()), eq(true));
+        verify(mockUsersResource, never()).searchByUsername(anyString(), anyBoolean());
+        verify(mockRegistrationWorkQueue, never()).offer(any());
     }
 
     @Test
@@ -67,15 +91,27 @@ public class KeycloakAuthProviderUnitTests {
         when(mockKeycloakAdminClient.realm(anyString())).thenReturn(mockRealmResource);
         when(mockRealmResource.users()).thenReturn(mockUsersResource);
 
-        // Simulate user does not exist by username and email
-        when(mockUsersResource.searchByUsername(eq(request.email()), anyBoolean())).thenReturn(Collections.emptyList());
+        // Simulate user does not exist
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(Collections.emptyList());
+        when(mockRegistrationWorkQueue.offer(request)).thenReturn(Optional.of("registration-id"));
+
+        RegistrationResult result = keycloakAuthProvider.register(request);
+        assertThat(result.outcome()).isEqualTo(RegistrationOutcome.INITIATED_ASYNC_PROCESS);
+        assertThat(result.registrationId()).contains("registration-id");
+        verify(mockUsersResource, never()).searchByUsername(anyString(), anyBoolean());
+        verify(mockUsersResource, times(1)).searchByEmail(eq(request.email()), eq(true));
+        verify(mockRegistrationWorkQueue, times(1)).offer(request);
+    }
+
+    @Test
+    void registerShouldReturnQueueFullWhenRegistrationQueueIsSaturated() {
+        RegisterRequest request = new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!");
+        UsersResource mockUsersResource = mockUsersResource();
         when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(Collections.emptyList());
+        when(mockRegistrationWorkQueue.offer(request)).thenReturn(Optional.empty());
 
-        RegistrationOutcome outcome = keycloakAuthProvider.register(request);
-        assertThat(outcome).isEqualTo(RegistrationOutcome.INITIATED_ASYNC_PROCESS);
-        verify(mockUsersResource, times(1)).searchByUsername(eq(request.email()), anyBoolean());
-        verify(mockUsersResource, times(1)).searchByEmail(eq(request.email()), anyBoolean());
-        verify(mockAsyncKeycloakTasksService, times(1)).createUserInKeycloak(request);
+        RegistrationOutcome outcome = keycloakAuthProvider.register(request).outcome();
+        assertThat(outcome).isEqualTo(RegistrationOutcome.REGISTRATION_QUEUE_FULL);
     }
 
     @Test
@@ -86,7 +122,172 @@ public class KeycloakAuthProviderUnitTests {
         // Simulate ProcessingException when calling users()
         when(mockRealmResource.users()).thenThrow(new jakarta.ws.rs.ProcessingException("Connection error"));
 
-        RegistrationOutcome outcome = keycloakAuthProvider.register(request);
+        RegistrationOutcome outcome = keycloakAuthProvider.register(request).outcome();
         assertThat(outcome).isEqualTo(RegistrationOutcome.AUTH_PROVIDER_ERROR);
     }
+
+    @Test
+    void loginShouldReturnInvalidCredentialsWithoutCallingTokenEndpointWhenUserDoesNotExist() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        UsersResource mockUsersResource = mockUsersResource();
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(Collections.emptyList());
+
+        LoginStatus loginStatus = keycloakAuthProvider.login(request);
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+        verify(mockKeycloakTokenClient, never()).requestToken(anyString(), any());
+    }
+
+    @Test
+    void loginShouldReturnEmailNotVerifiedWhenVerificationIsPending() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        UsersResource mockUsersResource = mockUsersResource();
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true, false)));
+
+        LoginStatus loginStatus = keycloakAuthProvider.login(request);
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.EMAIL_NOT_VERIFIED);
+        verify(mockKeycloakTokenClient, never()).requestToken(anyString(), any());
+    }
+
+    @Test
+    void loginShouldLookUpVerifiedUserOnlyOnceAcrossLogins() {
+        LoginRequest request = new LoginRequest("JohnDoe@test.com", "Password123!");
+        UsersResource mockUsersResource = mockUsersResource();
+        when(mockUsersResource.searchByEmail(eq("johndoe@test.com"), anyBoolean())).thenReturn(List.of(user(true, true)));
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any())).thenReturn(token("access", "refresh"));
+
+        LoginStatus first = keycloakAuthProvider.login(request);
+        LoginStatus second = keycloakAuthProvider.login(request);
+
+        assertThat(first.loginState()).isEqualTo(LoginState.LOGGED_IN);
+        assertThat(second.loginState()).isEqualTo(LoginState.LOGGED_IN);
+        assertThat(second.accessToken()).contains("access");
+        verify(mockUsersResource, times(1)).searchByEmail(anyString(), anyBoolean());
+        verify(mockUsersResource, never()).searchByUsername(anyString(), anyBoolean());
+        verify(mockKeycloakTokenClient, times(2)).requestToken(eq("test-realm"), any());
+    }
+
+    @Test
+    void optimisticLoginShouldSkipAdminApiWhenTokenGrantSucceeds() throws Exception {
+        setLoginMode(KeycloakLoginMode.OPTIMISTIC);
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any())).thenReturn(token("access", "refresh"));
+
+        LoginStatus loginStatus = keycloakAuthProvider.login(request);
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.LOGGED_IN);
+        assertThat(loginStatus.refreshToken()).contains("refresh");
+        verify(mockKeycloakAdminClient, never()).realm(anyString());
+    }
+
+    @Test
+    void optimisticLoginShouldReturnEmailNotVerifiedWhenGrantRejectedForPendingVerification() throws Exception {
+        setLoginMode(KeycloakLoginMode.OPTIMISTIC);
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        UsersResource mockUsersResource = mockUsersResource();
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true, false)));
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any()))
+                .thenThrow(invalidGrant(400, "{\"error\":\"invalid_grant\",\"error_description\":\"Account is not fully set up\"}"));
+
+        LoginStatus loginStatus = keycloakAuthProvider.login(request);
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.EMAIL_NOT_VERIFIED);
+    }
+
+    @Test
+    void optimisticLoginShouldReturnInvalidCredentialsWhenGrantRejectedForVerifiedUser() throws Exception {
+        setLoginMode(KeycloakLoginMode.OPTIMISTIC);
+        LoginRequest request = new LoginRequest("johndoe@test.com", "WrongPassword!");
+        UsersResource mockUsersResource = mockUsersResource();
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true, true)));
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any()))
+                .thenThrow(invalidGrant(401, "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid user credentials\"}"));
+
+        LoginStatus loginStatus = keycloakAuthProvider.login(request);
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+    }
+
+    @Test
+    void standardLoginShouldCountWrongPasswordAsInvalidCredentials() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "WrongPassword!");
+        UsersResource mockUsersResource = mockUsersResource();
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true, true)));
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any()))
+                .thenThrow(invalidGrant(401, "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid user credentials\"}"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthServiceImpl authService = new AuthServiceImpl(keycloakAuthProvider, null, null, 500, meterRegistry, null);
+
+        LoginResponse loginResponse = authService.login(request);
+
+        assertThat(loginResponse.loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+        assertThat(meterRegistry.get("auth.logins").tag("state", "INVALID_CREDENTIALS").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void loginShouldReturnServerErrorWhenKeycloakIsUnavailable() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        UsersResource mockUsersResource = mockUsersResource();
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true, true)));
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any()))
+                .thenThrow(new AuthProviderUnavailableException("Keycloak token-endpoint circuit is open"));
+
+        LoginStatus loginStatus = keycloakAuthProvider.login(request);
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.SERVER_ERROR);
+    }
+
+    @Test
+    void refreshShouldReturnNewTokensFromRefreshTokenGrant() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any())).thenReturn(token("new-access", "new-refresh"));
+
+        LoginStatus loginStatus = keycloakAuthProvider.refresh("old-refresh");
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.LOGGED_IN);
+        assertThat(loginStatus.accessToken()).contains("new-access");
+        assertThat(loginStatus.refreshToken()).contains("new-refresh");
+        verify(mockKeycloakTokenClient).requestToken(eq("test-realm"), argThat(form ->
+                "refresh_token".equals(form.get("grant_type")) && "old-refresh".equals(form.get("refresh_token"))));
+        verify(mockKeycloakAdminClient, never()).realm(anyString());
+    }
+
+    @Test
+    void refreshShouldReturnInvalidCredentialsWhenRefreshTokenRejected() {
+        when(mockKeycloakTokenClient.requestToken(eq("test-realm"), any()))
+                .thenThrow(invalidGrant(400, "{\"error\":\"invalid_grant\",\"error_description\":\"Token is not active\"}"));
+
+        LoginStatus loginStatus = keycloakAuthProvider.refresh("expired-refresh");
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+    }
+
+    private void setLoginMode(KeycloakLoginMode loginMode) throws Exception {
+        Field loginModeField = KeycloakAuthProvider.class.getDeclaredField("loginMode");
+        loginModeField.setAccessible(true);
+        loginModeField.set(keycloakAuthProvider, loginMode);
+    }
+
+    private KeycloakTokenRejectedException invalidGrant(int status, String body) {
+        return new KeycloakTokenRejectedException(status, body);
+    }
+
+    private KeycloakTokenResponse token(String accessToken, String refreshToken) {
+        return new KeycloakTokenResponse(accessToken, refreshToken, 300, 1800, "Bearer");
+    }
+
+    private UsersResource mockUsersResource() {
+        UsersResource mockUsersResource = mock(UsersResource.class);
+        RealmResource mockRealmResource = mock(RealmResource.class);
+        when(mockKeycloakAdminClient.realm(anyString())).thenReturn(mockRealmResource);
+        when(mockRealmResource.users()).thenReturn(mockUsersResource);
+        return mockUsersResource;
+    }
+
+    private UserRepresentation user(boolean enabled, boolean emailVerified) {
+        UserRepresentation user = new UserRepresentation();
+        user.setEnabled(enabled);
+        user.setEmailVerified(emailVerified);
+        return user;
+    }
 }
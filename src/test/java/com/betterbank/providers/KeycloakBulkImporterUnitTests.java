@@ -0,0 +1,81 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.BulkRegistrationStatus;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class KeycloakBulkImporterUnitTests {
+    @Mock
+    private Keycloak mockKeycloakAdminClient;
+
+    @Mock
+    private RealmResource mockRealmResource;
+
+    @Mock
+    private VerificationEmailDispatcher mockVerificationEmailDispatcher;
+
+    @Mock
+    private KeycloakUserStatusResolver mockKeycloakUserStatusResolver;
+
+    private KeycloakBulkImporter keycloakBulkImporter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mockKeycloakAdminClient.realm("test-realm")).thenReturn(mockRealmResource);
+        keycloakBulkImporter = new KeycloakBulkImporter(mockKeycloakAdminClient, new KeycloakConcurrencyLimiter(10, Duration.ofSeconds(1)), mockVerificationEmailDispatcher, "test-realm", mockKeycloakUserStatusResolver);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importUsersShouldMapPartialImportResultsBackToRequests() {
+        RegisterRequest newUser = new RegisterRequest("John", "Doe", "JohnDoe@test.com", "Password123!");
+        RegisterRequest existingUser = new RegisterRequest("Jane", "Doe", "janedoe@test.com", "Password456!");
+        Response mockResponse = mock(Response.class);
+        when(mockRealmResource.partialImport(any())).thenReturn(mockResponse);
+        when(mockResponse.getStatus()).thenReturn(200);
+        when(mockResponse.readEntity(any(GenericType.class))).thenReturn(Map.of("results", List.of(
+                Map.of("action", "ADDED", "resourceType", "USER", "resourceName", "johndoe@test.com", "id", "user-1"),
+                Map.of("action", "SKIPPED", "resourceType", "USER", "resourceName", "janedoe@test.com", "id", "user-2"))));
+
+        List<BulkRegistrationResult> results = keycloakBulkImporter.importUsers(List.of(newUser, existingUser));
+
+        assertThat(results).containsExactly(
+                new BulkRegistrationResult("JohnDoe@test.com", BulkRegistrationStatus.CREATED),
+                new BulkRegistrationResult("janedoe@test.com", BulkRegistrationStatus.USER_EXISTS));
+        ArgumentCaptor<PartialImportRepresentation> captor = ArgumentCaptor.forClass(PartialImportRepresentation.class);
+        verify(mockRealmResource, times(1)).partialImport(captor.capture());
+        assertThat(captor.getValue().getIfResourceExists()).isEqualTo("SKIP");
+        assertThat(captor.getValue().getUsers()).hasSize(2);
+        verify(mockVerificationEmailDispatcher, times(1)).dispatch("user-1", "JohnDoe@test.com");
+        verify(mockVerificationEmailDispatcher, never()).dispatch(eq("user-2"), anyString());
+    }
+
+    @Test
+    void importUsersShouldReportProviderErrorForWholeChunkWhenImportFails() {
+        RegisterRequest request = new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!");
+        when(mockRealmResource.partialImport(any())).thenThrow(new jakarta.ws.rs.ProcessingException("Connection refused"));
+
+        List<BulkRegistrationResult> results = keycloakBulkImporter.importUsers(List.of(request));
+
+        assertThat(results).containsExactly(new BulkRegistrationResult("johndoe@test.com", BulkRegistrationStatus.AUTH_PROVIDER_ERROR));
+        verifyNoInteractions(mockVerificationEmailDispatcher);
+    }
+}
@@ -0,0 +1,147 @@
+package com.betterbank.providers;
+
+import com.betterbank.concurrent.CircuitBreaker;
+import com.betterbank.exception.AuthProviderUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class KeycloakConcurrencyLimiterUnitTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void executeShouldReturnResultAndReleasePermit() {
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter(1, Duration.ofMillis(50));
+
+        assertThat(limiter.execute("searchByEmail", () -> "ok")).isEqualTo("ok");
+        assertThat(limiter.execute("searchByEmail", () -> "again")).isEqualTo("again");
+        assertThat(limiter.inFlightCalls()).isZero();
+    }
+
+    @Test
+    void executeShouldReleasePermitWhenCallFails() {
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter(1, Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> limiter.execute("searchByEmail", () -> {
+            throw new jakarta.ws.rs.ProcessingException("Connection refused");
+        })).isInstanceOf(jakarta.ws.rs.ProcessingException.class);
+
+        assertThat(limiter.inFlightCalls()).isZero();
+    }
+
+    @Test
+    void executeShouldRejectWhenLimitIsReachedForLongerThanAcquireTimeout() throws Exception {
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter(1, Duration.ofMillis(50));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> limiter.execute("searchByEmail", () -> {
+            holding.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+
+        try {
+            assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(limiter.inFlightCalls()).isEqualTo(1);
+            assertThatThrownBy(() -> limiter.execute("searchByEmail", () -> "blocked")).isInstanceOf(AuthProviderUnavailableException.class);
+        } finally {
+            release.countDown();
+            holder.join(5000);
+        }
+    }
+
+    @Test
+    void executeShouldFailFastWithoutCallingKeycloakOnceCircuitIsOpen() {
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter("token-endpoint", 1, Duration.ofMillis(50),
+                new CircuitBreaker("token-endpoint", 50, 2, 2, Duration.ofMinutes(1), 1), meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> failingCall = () -> {
+            calls.incrementAndGet();
+            throw new jakarta.ws.rs.ProcessingException("Read timed out");
+        };
+
+        assertThatThrownBy(() -> limiter.execute("searchByEmail", failingCall)).isInstanceOf(jakarta.ws.rs.ProcessingException.class);
+        assertThatThrownBy(() -> limiter.execute("searchByEmail", failingCall)).isInstanceOf(jakarta.ws.rs.ProcessingException.class);
+        assertThatThrownBy(() -> limiter.execute("searchByEmail", failingCall)).isInstanceOf(AuthProviderUnavailableException.class);
+
+        assertThat(calls).hasValue(2);
+        assertThat(limiter.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(limiter.inFlightCalls()).isZero();
+    }
+
+    @Test
+    void executeShouldNotCountRejectedGrantsAsKeycloakFailures() {
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter("token-endpoint", 1, Duration.ofMillis(50),
+                new CircuitBreaker("token-endpoint", 50, 2, 2, Duration.ofMinutes(1), 1), meterRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> limiter.execute("searchByEmail", () -> {
+                throw new KeycloakTokenRejectedException(401, "{\"error\":\"invalid_grant\"}");
+            })).isInstanceOf(KeycloakTokenRejectedException.class);
+        }
+
+        assertThat(limiter.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void executeShouldRecordErrorsSoAHalfOpenProbeHandsBackItsPermit() {
+        // zero open duration: the call after the circuit opens is a half-open probe
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter("admin-api", 1, Duration.ofMillis(50),
+                new CircuitBreaker("admin-api", 50, 2, 2, Duration.ZERO, 1), meterRegistry);
+        Supplier<String> failingCall = () -> {
+            throw new jakarta.ws.rs.ProcessingException("Read timed out");
+        };
+        assertThatThrownBy(() -> limiter.execute("searchByEmail", failingCall)).isInstanceOf(jakarta.ws.rs.ProcessingException.class);
+        assertThatThrownBy(() -> limiter.execute("searchByEmail", failingCall)).isInstanceOf(jakarta.ws.rs.ProcessingException.class);
+
+        assertThatThrownBy(() -> limiter.execute("searchByEmail", () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(limiter.execute("searchByEmail", () -> "probe")).isEqualTo("probe");
+        assertThat(limiter.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(limiter.inFlightCalls()).isZero();
+    }
+
+    @Test
+    void executeShouldCountServerErrorResponsesAsFailures() {
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter("admin-api", 1, Duration.ofMillis(50),
+                new CircuitBreaker("admin-api", 50, 2, 2, Duration.ofMinutes(1), 1), meterRegistry);
+
+        try (Response first = limiter.execute("createUser", () -> Response.status(503).build());
+             Response second = limiter.execute("createUser", () -> Response.status(500).build())) {
+            assertThat(first.getStatus()).isEqualTo(503);
+            assertThat(second.getStatus()).isEqualTo(500);
+        }
+
+        assertThat(limiter.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("keycloak.calls").tags("operation", "createUser", "outcome", "failure").timer().count()).isEqualTo(2);
+        assertThatThrownBy(() -> limiter.execute("createUser", () -> Response.status(201).build())).isInstanceOf(AuthProviderUnavailableException.class);
+    }
+
+    @Test
+    void executeShouldTimeCallsPerOperationAndOutcome() {
+        KeycloakConcurrencyLimiter limiter = new KeycloakConcurrencyLimiter("admin-api", 1, Duration.ofMillis(50), null, meterRegistry);
+
+        limiter.execute("searchByEmail", () -> "ok");
+        assertThatThrownBy(() -> limiter.execute("createUser", () -> {
+            throw new jakarta.ws.rs.ProcessingException("Connection refused");
+        })).isInstanceOf(jakarta.ws.rs.ProcessingException.class);
+
+        assertThat(meterRegistry.get("keycloak.calls").tags("endpoint", "admin-api", "operation", "searchByEmail", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("keycloak.calls").tags("operation", "createUser", "outcome", "failure").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.betterbank.providers;
+
+import com.betterbank.cache.NoRemoteCache;
+import com.betterbank.cache.TieredCacheFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class KeycloakUserStatusResolverUnitTests {
+    @Mock
+    private Keycloak mockKeycloakAdminClient;
+
+    @Mock
+    private RealmResource mockRealmResource;
+
+    @Mock
+    private UsersResource mockUsersResource;
+
+    @Mock
+    private KeycloakKnownUsersFilter mockKnownUsersFilter;
+
+    private KeycloakUserStatusResolver keycloakUserStatusResolver;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mockKeycloakAdminClient.realm("test-realm")).thenReturn(mockRealmResource);
+        when(mockRealmResource.users()).thenReturn(mockUsersResource);
+        keycloakUserStatusResolver = new KeycloakUserStatusResolver(mockKeycloakAdminClient, new KeycloakConcurrencyLimiter(10, Duration.ofSeconds(1)),
+                "test-realm", 100, Duration.ofMinutes(5), 100, Duration.ofSeconds(30), mockKnownUsersFilter,
+                new TieredCacheFactory(new NoRemoteCache(), new ObjectMapper(), Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void resolveShouldRememberUnknownUsers() {
+        when(mockUsersResource.searchByEmail("johndoe@test.com", true)).thenReturn(Collections.emptyList());
+
+        assertThat(keycloakUserStatusResolver.resolve("JohnDoe@test.com")).isEqualTo(UserStatus.NOT_FOUND);
+        assertThat(keycloakUserStatusResolver.resolve("johndoe@test.com")).isEqualTo(UserStatus.NOT_FOUND);
+
+        verify(mockUsersResource, times(1)).searchByEmail(anyString(), anyBoolean());
+    }
+
+    @Test
+    void resolveShouldSeeUserCreatedAfterACachedMiss() {
+        when(mockUsersResource.searchByEmail("johndoe@test.com", true))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(List.of(user(true, false)));
+
+        assertThat(keycloakUserStatusResolver.resolve("johndoe@test.com").exists()).isFalse();
+        keycloakUserStatusResolver.userCreated("JohnDoe@test.com");
+
+        assertThat(keycloakUserStatusResolver.resolve("johndoe@test.com").isPendingVerification()).isTrue();
+        verify(mockKnownUsersFilter).add("JohnDoe@test.com");
+    }
+
+    @Test
+    void resolveShouldSkipAdminApiWhenFilterRulesTheUserOut() {
+        when(mockKnownUsersFilter.definitelyUnknown("johndoe@test.com")).thenReturn(true);
+
+        assertThat(keycloakUserStatusResolver.resolve("JohnDoe@test.com")).isEqualTo(UserStatus.NOT_FOUND);
+
+        verify(mockUsersResource, never()).searchByEmail(anyString(), anyBoolean());
+    }
+
+    private UserRepresentation user(boolean enabled, boolean emailVerified) {
+        UserRepresentation user = new UserRepresentation();
+        user.setEnabled(enabled);
+        user.setEmailVerified(emailVerified);
+        return user;
+    }
+}
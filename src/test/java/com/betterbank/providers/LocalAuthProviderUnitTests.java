@@ -0,0 +1,159 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.BulkRegistrationResult;
+import com.betterbank.dto.response.BulkRegistrationStatus;
+import com.betterbank.dto.response.LoginState;
+import com.betterbank.dto.response.LoginStatus;
+import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.betterbank.security.JwtTokenValidator;
+import com.betterbank.security.VerifiedToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalAuthProviderUnitTests {
+    private static final String ISSUER = "urn:betterbank:test";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LocalUserStore localUserStore;
+    private LocalTokenIssuer localTokenIssuer;
+
+    @BeforeEach
+    void setUp() {
+        localUserStore = new LocalUserStore("", Duration.ofMinutes(1), 16, new SimpleMeterRegistry());
+        localTokenIssuer = new LocalTokenIssuer(objectMapper, ISSUER, Duration.ofMinutes(5), Duration.ofMinutes(30), "");
+    }
+
+    @Test
+    void registerShouldCreateTheUserRightAway() {
+        RegistrationResult result = provider("pbkdf2", false).register(registerRequest("User@Test.com"));
+
+        assertThat(result.outcome()).isEqualTo(RegistrationOutcome.INITIATED_ASYNC_PROCESS);
+        LocalUser user = localUserStore.findByEmail("user@test.com").orElseThrow();
+        assertThat(result.registrationId()).contains(user.id().toString());
+        assertThat(user.passwordHash()).startsWith("{pbkdf2}").doesNotContain("password1");
+        assertThat(provider("pbkdf2", false).registrationStatus(user.id().toString())).contains(RegistrationStatus.COMPLETED);
+    }
+
+    @Test
+    void registerShouldReportAnExistingEmail() {
+        LocalAuthProvider provider = provider("pbkdf2", false);
+        provider.register(registerRequest("user@test.com"));
+
+        assertThat(provider.register(registerRequest("USER@test.com")).outcome()).isEqualTo(RegistrationOutcome.USER_EXISTS);
+    }
+
+    @Test
+    void loginShouldIssueTokensTheValidatorAccepts() {
+        LocalAuthProvider provider = provider("pbkdf2", false);
+        provider.register(registerRequest("user@test.com"));
+
+        LoginStatus loginStatus = provider.login(new LoginRequest("user@test.com", "password1"));
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.LOGGED_IN);
+        JwtTokenValidator validator = new JwtTokenValidator(localTokenIssuer, objectMapper, ISSUER, "", "", Duration.ofSeconds(30), 100, Duration.ofMinutes(5));
+        Optional<VerifiedToken> verifiedToken = validator.validate(loginStatus.accessToken().orElseThrow());
+        assertThat(verifiedToken).isPresent();
+        assertThat(verifiedToken.get().email()).contains("user@test.com");
+        // refresh tokens are not access tokens
+        assertThat(validator.validate(loginStatus.refreshToken().orElseThrow())).isEmpty();
+    }
+
+    @Test
+    void loginShouldRejectAWrongPasswordAndAnUnknownEmailAlike() {
+        LocalAuthProvider provider = provider("pbkdf2", false);
+        provider.register(registerRequest("user@test.com"));
+
+        assertThat(provider.login(new LoginRequest("user@test.com", "wrong-password")).loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+        assertThat(provider.login(new LoginRequest("unknown@test.com", "password1")).loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+    }
+
+    @Test
+    void pendingUsersShouldOnlyLogInOnceVerified() {
+        LocalAuthProvider provider = provider("pbkdf2", true);
+        provider.register(registerRequest("user@test.com"));
+
+        assertThat(provider.login(new LoginRequest("user@test.com", "password1")).loginState()).isEqualTo(LoginState.EMAIL_NOT_VERIFIED);
+        // a wrong password doesn't reveal that the account is pending
+        assertThat(provider.login(new LoginRequest("user@test.com", "wrong-password")).loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+
+        assertThat(provider.verifyEmail("user@test.com")).isTrue();
+
+        assertThat(provider.login(new LoginRequest("user@test.com", "password1")).loginState()).isEqualTo(LoginState.LOGGED_IN);
+        assertThat(provider.verifyEmail("unknown@test.com")).isFalse();
+    }
+
+    @Test
+    void refreshShouldOnlyAcceptRefreshTokensOfThisIssuer() {
+        LocalAuthProvider provider = provider("pbkdf2", false);
+        provider.register(registerRequest("user@test.com"));
+        LoginStatus loginStatus = provider.login(new LoginRequest("user@test.com", "password1"));
+
+        assertThat(provider.refresh(loginStatus.refreshToken().orElseThrow()).loginState()).isEqualTo(LoginState.LOGGED_IN);
+        assertThat(provider.refresh(loginStatus.accessToken().orElseThrow()).loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+
+        LocalTokenIssuer otherIssuer = new LocalTokenIssuer(objectMapper, ISSUER, Duration.ofMinutes(5), Duration.ofMinutes(30), "");
+        String foreignToken = otherIssuer.refreshToken(localUserStore.findByEmail("user@test.com").orElseThrow());
+        assertThat(provider.refresh(foreignToken).loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+    }
+
+    @Test
+    void loginShouldRehashPasswordsOfAKdfThatIsNoLongerConfigured() {
+        provider("pbkdf2", false).register(registerRequest("user@test.com"));
+        LocalAuthProvider bcryptProvider = provider("bcrypt", false);
+
+        assertThat(bcryptProvider.login(new LoginRequest("user@test.com", "password1")).loginState()).isEqualTo(LoginState.LOGGED_IN);
+
+        assertThat(localUserStore.findByEmail("user@test.com").orElseThrow().passwordHash()).startsWith("{bcrypt}");
+        assertThat(bcryptProvider.login(new LoginRequest("user@test.com", "password1")).loginState()).isEqualTo(LoginState.LOGGED_IN);
+    }
+
+    @Test
+    void registerBatchShouldCreateNewUsersAndReportExistingOnes() {
+        LocalAuthProvider provider = provider("pbkdf2", false);
+        provider.register(registerRequest("existing@test.com"));
+
+        List<BulkRegistrationResult> results = provider.registerBatch(List.of(registerRequest("new@test.com"), registerRequest("existing@test.com")));
+
+        assertThat(results).containsExactly(
+                new BulkRegistrationResult("new@test.com", BulkRegistrationStatus.CREATED),
+                new BulkRegistrationResult("existing@test.com", BulkRegistrationStatus.USER_EXISTS));
+    }
+
+    @Test
+    void registrationStatusShouldBeEmptyForUnknownIds() {
+        LocalAuthProvider provider = provider("pbkdf2", false);
+
+        assertThat(provider.registrationStatus(UUID.randomUUID().toString())).isEmpty();
+        assertThat(provider.registrationStatus("not-a-registration-id")).isEmpty();
+    }
+
+    private LocalAuthProvider provider(String kdf, boolean emailVerificationRequired) {
+        // cheap settings, the tests are about the flow and not the KDF
+        PasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(kdf, Map.of(
+                "pbkdf2", new Pbkdf2PasswordEncoder("", 16, 1000, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256),
+                "bcrypt", new BCryptPasswordEncoder(4)));
+        return new LocalAuthProvider(localUserStore, localTokenIssuer, passwordEncoder, emailVerificationRequired, 1);
+    }
+
+    private static RegisterRequest registerRequest(String email) {
+        return new RegisterRequest("First", "Last", email, "password1");
+    }
+}
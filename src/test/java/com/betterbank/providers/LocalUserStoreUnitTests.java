@@ -0,0 +1,106 @@
+package com.betterbank.providers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LocalUserStoreUnitTests {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findByEmailShouldIgnoreCaseAndSurroundingWhitespace() {
+        LocalUserStore store = store("");
+        LocalUser user = user("user@test.com");
+        store.insert(user);
+
+        assertThat(store.findByEmail(" User@Test.COM ")).contains(user);
+        assertThat(store.findById(user.id())).contains(user);
+        assertThat(store.findByEmail("other@test.com")).isEmpty();
+    }
+
+    @Test
+    void insertShouldRefuseASecondUserWithTheSameEmail() {
+        LocalUserStore store = store("");
+
+        assertThat(store.insert(user("user@test.com"))).isTrue();
+        assertThat(store.insert(user("user@test.com"))).isFalse();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepFindingUsersWhileGrowingPastItsInitialCapacity() {
+        LocalUserStore store = store("");
+        for (int i = 0; i < 10_000; i++) {
+            store.insert(user("user-" + i + "@test.com"));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(store.findByEmail("user-" + i + "@test.com")).isPresent();
+        }
+        assertThat(store.size()).isEqualTo(10_000);
+    }
+
+    @Test
+    void updateShouldReplaceTheUserWithTheSameId() {
+        LocalUserStore store = store("");
+        LocalUser user = user("user@test.com");
+        store.insert(user);
+
+        assertThat(store.update(user.withEmailVerified())).isTrue();
+
+        assertThat(store.findByEmail("user@test.com").orElseThrow().emailVerified()).isTrue();
+        assertThat(store.update(user("unknown@test.com"))).isFalse();
+    }
+
+    @Test
+    void snapshotShouldBringBackEveryUserAfterARestart() {
+        String snapshotPath = tempDir.resolve("users.snapshot").toString();
+        LocalUserStore store = store(snapshotPath);
+        store.start();
+        LocalUser user = user("user@test.com");
+        store.insert(user);
+        store.insert(user("other@test.com"));
+        store.stop();
+
+        LocalUserStore restarted = store(snapshotPath);
+        restarted.start();
+
+        assertThat(restarted.size()).isEqualTo(2);
+        assertThat(restarted.findByEmail("user@test.com")).contains(user);
+        assertThat(restarted.findById(user.id())).contains(user);
+        restarted.stop();
+    }
+
+    @Test
+    void startShouldRefuseADamagedSnapshot() throws Exception {
+        Path snapshotPath = tempDir.resolve("users.snapshot");
+        LocalUserStore store = store(snapshotPath.toString());
+        store.start();
+        store.insert(user("user@test.com"));
+        store.stop();
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        bytes[20] ^= 1;
+        Files.write(snapshotPath, bytes);
+
+        assertThatThrownBy(() -> store(snapshotPath.toString()).start())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    private static LocalUserStore store(String snapshotPath) {
+        return new LocalUserStore(snapshotPath, Duration.ofMinutes(1), 16, new SimpleMeterRegistry());
+    }
+
+    private static LocalUser user(String email) {
+        return new LocalUser(UUID.randomUUID(), email, "First", "Last", "{pbkdf2}hash", false, 1_700_000_000_000L);
+    }
+}
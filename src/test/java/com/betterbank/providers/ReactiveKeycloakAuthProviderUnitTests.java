@@ -0,0 +1,157 @@
+package com.betterbank.providers;
+
+import com.betterbank.cache.NoRemoteCache;
+import com.betterbank.cache.TieredCacheFactory;
+import com.betterbank.dto.request.LoginRequest;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.LoginState;
+import com.betterbank.dto.response.LoginStatus;
+import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReactiveKeycloakAuthProviderUnitTests {
+    @Mock
+    private Keycloak mockKeycloakAdminClient;
+
+    @Mock
+    private KeycloakTokenClient mockKeycloakTokenClient;
+
+    @Mock
+    private RegistrationWorkQueue mockRegistrationWorkQueue;
+
+    @Mock
+    private UsersResource mockUsersResource;
+
+    private KeycloakConcurrencyLimiter keycloakConcurrencyLimiter;
+    private KeycloakUserStatusResolver keycloakUserStatusResolver;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        RealmResource mockRealmResource = mock(RealmResource.class);
+        when(mockKeycloakAdminClient.realm(anyString())).thenReturn(mockRealmResource);
+        when(mockRealmResource.users()).thenReturn(mockUsersResource);
+        keycloakConcurrencyLimiter = new KeycloakConcurrencyLimiter(1, Duration.ofMillis(10));
+        keycloakUserStatusResolver = new KeycloakUserStatusResolver(mockKeycloakAdminClient, keycloakConcurrencyLimiter, "test-realm", 100, Duration.ofMinutes(5), 100, Duration.ofSeconds(30), mock(KeycloakKnownUsersFilter.class),
+                new TieredCacheFactory(new NoRemoteCache(), new ObjectMapper(), Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void loginShouldReturnTokensForVerifiedUser() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true)));
+        when(mockKeycloakTokenClient.requestTokenAsync(eq("test-realm"), any()))
+                .thenReturn(CompletableFuture.completedFuture(new KeycloakTokenResponse("access", "refresh", 300, 1800, "Bearer")));
+
+        LoginStatus loginStatus = provider(KeycloakLoginMode.STANDARD).login(request).block();
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.LOGGED_IN);
+        assertThat(loginStatus.accessToken()).contains("access");
+        verify(mockKeycloakTokenClient).requestTokenAsync(eq("test-realm"), argThat(form ->
+                "password".equals(form.get("grant_type")) && request.email().equals(form.get("username"))));
+        assertThat(keycloakConcurrencyLimiter.inFlightCalls()).isZero();
+    }
+
+    @Test
+    void loginShouldNotCallTokenEndpointWhenVerificationIsPending() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(false)));
+
+        LoginStatus loginStatus = provider(KeycloakLoginMode.STANDARD).login(request).block();
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.EMAIL_NOT_VERIFIED);
+        verify(mockKeycloakTokenClient, never()).requestTokenAsync(anyString(), any());
+    }
+
+    @Test
+    void loginShouldReturnInvalidCredentialsWhenPasswordIsWrong() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "WrongPassword!");
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true)));
+        when(mockKeycloakTokenClient.requestTokenAsync(eq("test-realm"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new KeycloakTokenRejectedException(401, "{\"error\":\"invalid_grant\"}")));
+
+        LoginStatus loginStatus = provider(KeycloakLoginMode.STANDARD).login(request).block();
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+    }
+
+    @Test
+    void optimisticLoginShouldResolveUserOnlyWhenGrantIsRejected() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "WrongPassword!");
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(List.of(user(true)));
+        when(mockKeycloakTokenClient.requestTokenAsync(eq("test-realm"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new KeycloakTokenRejectedException(401, "{\"error\":\"invalid_grant\"}")));
+
+        LoginStatus loginStatus = provider(KeycloakLoginMode.OPTIMISTIC).login(request).block();
+
+        assertThat(loginStatus.loginState()).isEqualTo(LoginState.INVALID_CREDENTIALS);
+        verify(mockUsersResource, times(1)).searchByEmail(eq(request.email()), anyBoolean());
+    }
+
+    @Test
+    void loginShouldFailFastWhenNoKeycloakSlotIsFree() {
+        LoginRequest request = new LoginRequest("johndoe@test.com", "Password123!");
+        CompletableFuture<KeycloakTokenResponse> pending = new CompletableFuture<>();
+        when(mockKeycloakTokenClient.requestTokenAsync(eq("test-realm"), any())).thenReturn(pending);
+        ReactiveKeycloakAuthProvider provider = provider(KeycloakLoginMode.OPTIMISTIC);
+        provider.login(request).subscribe();
+
+        assertThat(provider.login(request).block().loginState()).isEqualTo(LoginState.SERVER_ERROR);
+
+        pending.complete(new KeycloakTokenResponse("access", "refresh", 300, 1800, "Bearer"));
+        assertThat(keycloakConcurrencyLimiter.inFlightCalls()).isZero();
+    }
+
+    @Test
+    void registerShouldQueueNewUser() {
+        RegisterRequest request = new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!");
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenReturn(Collections.emptyList());
+        when(mockRegistrationWorkQueue.offer(request)).thenReturn(Optional.of("registration-id"));
+
+        RegistrationResult result = provider(KeycloakLoginMode.STANDARD).register(request).block();
+
+        assertThat(result.outcome()).isEqualTo(RegistrationOutcome.INITIATED_ASYNC_PROCESS);
+        assertThat(result.registrationId()).contains("registration-id");
+    }
+
+    @Test
+    void registerShouldReturnAuthProviderErrorWhenKeycloakIsUnreachable() {
+        RegisterRequest request = new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!");
+        when(mockUsersResource.searchByEmail(eq(request.email()), anyBoolean())).thenThrow(new jakarta.ws.rs.ProcessingException("Connection error"));
+
+        RegistrationResult result = provider(KeycloakLoginMode.STANDARD).register(request).block();
+
+        assertThat(result.outcome()).isEqualTo(RegistrationOutcome.AUTH_PROVIDER_ERROR);
+        verify(mockRegistrationWorkQueue, never()).offer(any());
+    }
+
+    private ReactiveKeycloakAuthProvider provider(KeycloakLoginMode loginMode) {
+        return new ReactiveKeycloakAuthProvider(mockKeycloakTokenClient, keycloakUserStatusResolver, keycloakConcurrencyLimiter,
+                mockRegistrationWorkQueue, "test-realm", "client-id", "client-secret", loginMode, 1, 1);
+    }
+
+    private UserRepresentation user(boolean emailVerified) {
+        UserRepresentation user = new UserRepresentation();
+        user.setEnabled(true);
+        user.setEmailVerified(emailVerified);
+        return user;
+    }
+}
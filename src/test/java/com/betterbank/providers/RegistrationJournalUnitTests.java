@@ -0,0 +1,69 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.RegisterRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RegistrationJournalUnitTests {
+    private final SecretKey key = new SecretKeySpec(new byte[16], "AES");
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recoverShouldReturnOnlyRegistrationsWithoutDoneRecord() throws Exception {
+        Path path = tempDir.resolve("journal.log");
+        RegisterRequest first = new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!");
+        RegisterRequest second = new RegisterRequest("Jane", "Doe", "janedoe@test.com", "Password456!");
+
+        try (RegistrationJournal journal = new RegistrationJournal(path, key, false, Long.MAX_VALUE, objectMapper)) {
+            assertThat(journal.recover()).isEmpty();
+            journal.appendEnqueued(new PendingRegistration("id-1", first));
+            journal.appendEnqueued(new PendingRegistration("id-2", second));
+            journal.appendDone("id-1");
+        }
+
+        try (RegistrationJournal journal = new RegistrationJournal(path, key, false, Long.MAX_VALUE, objectMapper)) {
+            List<PendingRegistration> recovered = journal.recover();
+            assertThat(recovered).containsExactly(new PendingRegistration("id-2", second));
+        }
+    }
+
+    @Test
+    void journalShouldNotContainPlaintextPasswords() throws Exception {
+        Path path = tempDir.resolve("journal.log");
+        try (RegistrationJournal journal = new RegistrationJournal(path, key, false, Long.MAX_VALUE, objectMapper)) {
+            journal.recover();
+            journal.appendEnqueued(new PendingRegistration("id-1", new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!")));
+        }
+
+        String content = Files.readString(path, StandardCharsets.US_ASCII);
+        assertThat(content).startsWith("E id-1 ");
+        assertThat(content).doesNotContain("Password123!").doesNotContain("johndoe@test.com");
+    }
+
+    @Test
+    void recoverShouldSkipTornAndForeignRecords() throws Exception {
+        Path path = tempDir.resolve("journal.log");
+        try (RegistrationJournal journal = new RegistrationJournal(path, key, false, Long.MAX_VALUE, objectMapper)) {
+            journal.recover();
+            journal.appendEnqueued(new PendingRegistration("id-1", new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!")));
+        }
+        Files.writeString(path, "E id-2 bm90LWVuY3J5cHRlZA==\nE id-3", StandardCharsets.US_ASCII, java.nio.file.StandardOpenOption.APPEND);
+
+        try (RegistrationJournal journal = new RegistrationJournal(path, key, false, Long.MAX_VALUE, objectMapper)) {
+            assertThat(journal.recover()).extracting(PendingRegistration::id).containsExactly("id-1");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.betterbank.providers;
+
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class RegistrationWorkQueueUnitTests {
+    @Mock
+    private AsyncKeycloakTasksService mockAsyncKeycloakTasksService;
+
+    private RegistrationWorkQueue registrationWorkQueue;
+
+    private final RegisterRequest request = new RegisterRequest("John", "Doe", "johndoe@test.com", "Password123!");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // not started, so nothing drains the queue and process() can be driven directly
+        registrationWorkQueue = new RegistrationWorkQueue(mockAsyncKeycloakTasksService, new ObjectMapper(), 2, 1, Duration.ofSeconds(1), 3,
+                Duration.ofMillis(1), Duration.ofMillis(4), Path.of("unused"), "", false, 0, 100, Duration.ofMinutes(5));
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void startShouldDrainRecoveredOverflowThroughTheWorkers() throws Exception {
+        Path journalPath = tempDir.resolve("journal.log");
+        String journalKey = Base64.getEncoder().encodeToString(new byte[16]);
+        try (RegistrationJournal journal = new RegistrationJournal(journalPath, new SecretKeySpec(new byte[16], "AES"), false, Long.MAX_VALUE, new ObjectMapper())) {
+            journal.recover();
+            for (int i = 0; i < 5; i++) {
+                journal.appendEnqueued(new PendingRegistration("id-" + i, request));
+            }
+        }
+        when(mockAsyncKeycloakTasksService.createUserInKeycloak(request)).thenReturn(KeycloakTaskResult.SUCCEEDED);
+        RegistrationWorkQueue recoveringQueue = new RegistrationWorkQueue(mockAsyncKeycloakTasksService, new ObjectMapper(), 1, 1, Duration.ofSeconds(5), 3,
+                Duration.ofMillis(1), Duration.ofMillis(4), journalPath, journalKey, false, Long.MAX_VALUE, 100, Duration.ofMinutes(5));
+
+        recoveringQueue.start();
+        verify(mockAsyncKeycloakTasksService, timeout(5_000).times(5)).createUserInKeycloak(request);
+        recoveringQueue.stop();
+
+        // five registrations over a one-slot queue, all handled by the single worker
+        assertThat(Thread.getAllStackTraces().keySet()).noneMatch(thread -> thread.getName().contains("Recovery"));
+        try (RegistrationJournal journal = new RegistrationJournal(journalPath, new SecretKeySpec(new byte[16], "AES"), false, Long.MAX_VALUE, new ObjectMapper())) {
+            assertThat(journal.recover()).isEmpty();
+        }
+    }
+
+    @Test
+    void stopShouldLetARunningRegistrationFinishBeforeClosingTheJournal() throws Exception {
+        Path journalPath = tempDir.resolve("journal.log");
+        String journalKey = Base64.getEncoder().encodeToString(new byte[16]);
+        CountDownLatch inKeycloak = new CountDownLatch(1);
+        when(mockAsyncKeycloakTasksService.createUserInKeycloak(request)).thenAnswer(invocation -> {
+            inKeycloak.countDown();
+            // a slow Keycloak call still running when shutdown begins
+            long end = System.nanoTime() + Duration.ofMillis(200).toNanos();
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return KeycloakTaskResult.SUCCEEDED;
+        });
+        RegistrationWorkQueue runningQueue = new RegistrationWorkQueue(mockAsyncKeycloakTasksService, new ObjectMapper(), 2, 1, Duration.ofSeconds(5), 3,
+                Duration.ofMillis(1), Duration.ofMillis(4), journalPath, journalKey, false, Long.MAX_VALUE, 100, Duration.ofMinutes(5));
+        runningQueue.start();
+        String registrationId = runningQueue.offer(request).orElseThrow();
+        assertThat(inKeycloak.await(5, TimeUnit.SECONDS)).isTrue();
+
+        runningQueue.stop();
+
+        assertThat(runningQueue.status(registrationId)).contains(RegistrationStatus.COMPLETED);
+        try (RegistrationJournal journal = new RegistrationJournal(journalPath, new SecretKeySpec(new byte[16], "AES"), false, Long.MAX_VALUE, new ObjectMapper())) {
+            assertThat(journal.recover()).isEmpty();
+        }
+    }
+
+    @Test
+    void offerShouldRejectOnceCapacityIsReached() {
+        assertThat(registrationWorkQueue.offer(request)).isPresent();
+        assertThat(registrationWorkQueue.offer(request)).isPresent();
+        assertThat(registrationWorkQueue.offer(request)).isEmpty();
+        assertThat(registrationWorkQueue.size()).isEqualTo(2);
+    }
+
+    @Test
+    void processShouldRetryRetryableFailuresUntilSuccess() {
+        when(mockAsyncKeycloakTasksService.createUserInKeycloak(request))
+                .thenReturn(KeycloakTaskResult.RETRYABLE_FAILURE, KeycloakTaskResult.SUCCEEDED);
+
+        registrationWorkQueue.process(new PendingRegistration("id-1", request));
+
+        verify(mockAsyncKeycloakTasksService, times(2)).createUserInKeycloak(request);
+    }
+
+    @Test
+    void processShouldGiveUpAfterMaxAttempts() {
+        when(mockAsyncKeycloakTasksService.createUserInKeycloak(request)).thenReturn(KeycloakTaskResult.RETRYABLE_FAILURE);
+
+        registrationWorkQueue.process(new PendingRegistration("id-1", request));
+
+        verify(mockAsyncKeycloakTasksService, times(3)).createUserInKeycloak(request);
+        assertThat(registrationWorkQueue.status("id-1")).contains(RegistrationStatus.FAILED);
+    }
+
+    @Test
+    void processShouldNotRetryConflicts() {
+        when(mockAsyncKeycloakTasksService.createUserInKeycloak(request)).thenReturn(KeycloakTaskResult.CONFLICT);
+
+        registrationWorkQueue.process(new PendingRegistration("id-1", request));
+
+        verify(mockAsyncKeycloakTasksService, times(1)).createUserInKeycloak(request);
+        assertThat(registrationWorkQueue.status("id-1")).contains(RegistrationStatus.USER_EXISTS);
+    }
+
+    @Test
+    void statusShouldFollowRegistrationFromQueuedToCompleted() {
+        when(mockAsyncKeycloakTasksService.createUserInKeycloak(request)).thenReturn(KeycloakTaskResult.SUCCEEDED);
+        String registrationId = registrationWorkQueue.offer(request).orElseThrow();
+        assertThat(registrationWorkQueue.status(registrationId)).contains(RegistrationStatus.QUEUED);
+
+        registrationWorkQueue.process(new PendingRegistration(registrationId, request));
+
+        assertThat(registrationWorkQueue.status(registrationId)).contains(RegistrationStatus.COMPLETED);
+        assertThat(registrationWorkQueue.status("unknown")).isEmpty();
+    }
+}
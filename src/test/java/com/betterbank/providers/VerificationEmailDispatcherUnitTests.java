@@ -0,0 +1,148 @@
+package com.betterbank.providers;
+
+import com.betterbank.concurrent.CircuitBreaker;
+import com.betterbank.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.InternalServerErrorException;
+import jakarta.ws.rs.NotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class VerificationEmailDispatcherUnitTests {
+    @Mock
+    private Keycloak mockKeycloakAdminClient;
+
+    @Mock
+    private RealmResource mockRealmResource;
+
+    @Mock
+    private UsersResource mockUsersResource;
+
+    @Mock
+    private UserResource mockUserResource;
+
+    private final KeycloakConcurrencyLimiter adminApiLimiter = limiter("admin-api");
+    private final KeycloakConcurrencyLimiter verificationEmailLimiter = limiter("verification-email");
+    private VerificationEmailDispatcher verificationEmailDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mockKeycloakAdminClient.realm("test-realm")).thenReturn(mockRealmResource);
+        when(mockRealmResource.users()).thenReturn(mockUsersResource);
+        when(mockUsersResource.get("user-1")).thenReturn(mockUserResource);
+        // workers are not started, so queued mails stay in the queue where the tests can count them
+        verificationEmailDispatcher = new VerificationEmailDispatcher(mockKeycloakAdminClient, adminApiLimiter, verificationEmailLimiter, "test-realm",
+                10, 1, 100, Duration.ofSeconds(1), 2, Duration.ofMillis(1), Duration.ofMillis(1), 2, Duration.ofMinutes(15), 100, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        verificationEmailDispatcher.stop();
+    }
+
+    @Test
+    void dispatchShouldRefuseMailsWhenTheQueueIsFull() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(verificationEmailDispatcher.dispatch("user-" + i, "user-" + i + "@test.com")).isTrue();
+        }
+
+        assertThat(verificationEmailDispatcher.dispatch("user-10", "user-10@test.com")).isFalse();
+    }
+
+    @Test
+    void sendShouldRequeueMailsWhenKeycloakCannotReachTheMailServer() throws Exception {
+        doThrow(new InternalServerErrorException("Failed to send execute actions email")).when(mockUserResource).sendVerifyEmail();
+
+        verificationEmailDispatcher.send(new VerificationEmailDispatcher.VerificationEmail("user-1", "johndoe@test.com", 1));
+
+        for (int i = 0; i < 100 && verificationEmailDispatcher.size() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(verificationEmailDispatcher.size()).isEqualTo(1);
+    }
+
+    @Test
+    void sendShouldGiveUpAfterMaxAttempts() throws Exception {
+        doThrow(new InternalServerErrorException("Failed to send execute actions email")).when(mockUserResource).sendVerifyEmail();
+
+        verificationEmailDispatcher.send(new VerificationEmailDispatcher.VerificationEmail("user-1", "johndoe@test.com", 2));
+
+        Thread.sleep(50);
+        assertThat(verificationEmailDispatcher.size()).isZero();
+    }
+
+    @Test
+    void sendShouldNotOpenTheAdminApiCircuitWhenTheMailServerIsDown() {
+        doThrow(new InternalServerErrorException("Failed to send execute actions email")).when(mockUserResource).sendVerifyEmail();
+
+        for (int i = 0; i < 20; i++) {
+            verificationEmailDispatcher.send(new VerificationEmailDispatcher.VerificationEmail("user-1", "johndoe@test.com", 1));
+        }
+
+        assertThat(verificationEmailLimiter.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(adminApiLimiter.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void sendShouldNotRetryWhenKeycloakRefusesTheUser() throws Exception {
+        doThrow(new NotFoundException("User not found")).when(mockUserResource).sendVerifyEmail();
+
+        verificationEmailDispatcher.send(new VerificationEmailDispatcher.VerificationEmail("user-1", "johndoe@test.com", 1));
+
+        Thread.sleep(50);
+        assertThat(verificationEmailDispatcher.size()).isZero();
+    }
+
+    @Test
+    void resendShouldOnlyQueueMailsForAccountsAwaitingVerification() {
+        when(mockUsersResource.searchByEmail("pending@test.com", true)).thenReturn(List.of(user("user-1", false)));
+        when(mockUsersResource.searchByEmail("verified@test.com", true)).thenReturn(List.of(user("user-2", true)));
+        when(mockUsersResource.searchByEmail("unknown@test.com", true)).thenReturn(List.of());
+
+        verificationEmailDispatcher.resend("verified@test.com");
+        verificationEmailDispatcher.resend("unknown@test.com");
+        assertThat(verificationEmailDispatcher.size()).isZero();
+
+        verificationEmailDispatcher.resend("Pending@test.com");
+        assertThat(verificationEmailDispatcher.size()).isEqualTo(1);
+    }
+
+    @Test
+    void resendShouldBeRateLimitedPerEmail() {
+        when(mockUsersResource.searchByEmail("pending@test.com", true)).thenReturn(List.of(user("user-1", false)));
+
+        verificationEmailDispatcher.resend("pending@test.com");
+        verificationEmailDispatcher.resend("pending@test.com");
+
+        assertThatThrownBy(() -> verificationEmailDispatcher.resend("PENDING@test.com")).isInstanceOf(RateLimitExceededException.class);
+        verify(mockUsersResource, times(2)).searchByEmail("pending@test.com", true);
+    }
+
+    private static KeycloakConcurrencyLimiter limiter(String name) {
+        return new KeycloakConcurrencyLimiter(name, 10, Duration.ofSeconds(1), new CircuitBreaker(name, 50, 10, 5, Duration.ofMinutes(1), 1), new SimpleMeterRegistry());
+    }
+
+    private UserRepresentation user(String id, boolean emailVerified) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId(id);
+        user.setEnabled(true);
+        user.setEmailVerified(emailVerified);
+        return user;
+    }
+}
@@ -0,0 +1,151 @@
+package com.betterbank.security;
+
+import com.betterbank.cache.ExpiringCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class JwtTokenValidatorUnitTests {
+    private static final String ISSUER = "http://localhost:8080/realms/test-realm";
+
+    @Mock
+    private SigningKeyResolver mockSigningKeyResolver;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Instant now = Instant.parse("2025-06-01T10:00:00Z");
+    private KeyPair keyPair;
+    private JwtTokenValidator jwtTokenValidator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        when(mockSigningKeyResolver.resolve("key-1")).thenReturn(Optional.of(keyPair.getPublic()));
+
+        jwtTokenValidator = validator("", "");
+    }
+
+    private JwtTokenValidator validator(String expectedAuthorizedParty, String expectedAudience) {
+        return new JwtTokenValidator(mockSigningKeyResolver, objectMapper, ISSUER, expectedAuthorizedParty, expectedAudience, Duration.ofSeconds(30),
+                new ExpiringCache<>(100, Duration.ofMinutes(5)), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void validateShouldAcceptTokenSignedWithKnownKey() throws Exception {
+        String token = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "sub", "user-id", "email", "johndoe@test.com", "exp", now.plusSeconds(300).getEpochSecond()));
+
+        Optional<VerifiedToken> verifiedToken = jwtTokenValidator.validate(token);
+
+        assertThat(verifiedToken).isPresent();
+        assertThat(verifiedToken.get().subject()).isEqualTo("user-id");
+        assertThat(verifiedToken.get().email()).contains("johndoe@test.com");
+        assertThat(verifiedToken.get().expiresAt()).isEqualTo(now.plusSeconds(300));
+    }
+
+    @Test
+    void validateShouldServeRepeatedTokenFromCache() throws Exception {
+        String token = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+
+        assertThat(jwtTokenValidator.validate(token)).isPresent();
+        assertThat(jwtTokenValidator.validate(token)).isPresent();
+
+        verify(mockSigningKeyResolver, times(1)).resolve("key-1");
+    }
+
+    @Test
+    void validateShouldRejectExpiredToken() throws Exception {
+        String token = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "sub", "user-id", "exp", now.minusSeconds(60).getEpochSecond()));
+
+        assertThat(jwtTokenValidator.validate(token)).isEmpty();
+    }
+
+    @Test
+    void validateShouldRejectTokenFromAnotherIssuer() throws Exception {
+        String token = sign("key-1", Map.of("iss", "http://evil/realms/test-realm", "typ", "Bearer", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+
+        assertThat(jwtTokenValidator.validate(token)).isEmpty();
+    }
+
+    @Test
+    void validateShouldRejectTamperedPayload() throws Exception {
+        String token = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+        String[] parts = token.split("\\.");
+        String forgedPayload = encode(objectMapper.writeValueAsBytes(Map.of("iss", ISSUER, "typ", "Bearer", "sub", "admin", "exp", now.plusSeconds(300).getEpochSecond())));
+
+        assertThat(jwtTokenValidator.validate(parts[0] + "." + forgedPayload + "." + parts[2])).isEmpty();
+    }
+
+    @Test
+    void validateShouldRejectUnknownKeyAndGarbage() throws Exception {
+        when(mockSigningKeyResolver.resolve("key-2")).thenReturn(Optional.empty());
+        String token = sign("key-2", Map.of("iss", ISSUER, "typ", "Bearer", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+
+        assertThat(jwtTokenValidator.validate(token)).isEmpty();
+        assertThat(jwtTokenValidator.validate("not-a-token")).isEmpty();
+        assertThat(jwtTokenValidator.validate("a.b.c")).isEmpty();
+    }
+
+    @Test
+    void validateShouldRejectIdTokenOfTheSameRealm() throws Exception {
+        String idToken = sign("key-1", Map.of("iss", ISSUER, "typ", "ID", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+        String untyped = sign("key-1", Map.of("iss", ISSUER, "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+
+        assertThat(jwtTokenValidator.validate(idToken)).isEmpty();
+        assertThat(jwtTokenValidator.validate(untyped)).isEmpty();
+    }
+
+    @Test
+    void validateShouldCheckAuthorizedPartyWhenConfigured() throws Exception {
+        JwtTokenValidator clientBoundValidator = validator("auth-service", "");
+        String ownToken = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "azp", "auth-service", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+        String otherClientToken = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "azp", "other-client", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+
+        assertThat(clientBoundValidator.validate(ownToken)).isPresent();
+        assertThat(clientBoundValidator.validate(otherClientToken)).isEmpty();
+    }
+
+    @Test
+    void validateShouldCheckAudienceWhenConfigured() throws Exception {
+        JwtTokenValidator audienceValidator = validator("", "betterbank-api");
+        String listed = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "aud", List.of("account", "betterbank-api"), "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+        String single = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "aud", "betterbank-api", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+        String other = sign("key-1", Map.of("iss", ISSUER, "typ", "Bearer", "aud", "account", "sub", "user-id", "exp", now.plusSeconds(300).getEpochSecond()));
+
+        assertThat(audienceValidator.validate(listed)).isPresent();
+        assertThat(audienceValidator.validate(single)).isPresent();
+        assertThat(audienceValidator.validate(other)).isEmpty();
+    }
+
+    private String sign(String keyId, Map<String, Object> claims) throws Exception {
+        String signingInput = encode(objectMapper.writeValueAsBytes(Map.of("alg", "RS256", "typ", "JWT", "kid", keyId)))
+                + "." + encode(objectMapper.writeValueAsBytes(claims));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + encode(signature.sign());
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,67 @@
+package com.betterbank.security;
+
+import com.betterbank.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LoginRateLimiterUnitTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void checkLoginShouldLimitAttemptsPerAccountRegardlessOfCase() {
+        LoginRateLimiter loginRateLimiter = new LoginRateLimiter(true, 100, Duration.ofMinutes(1), 2, Duration.ofMinutes(1), 1000, meterRegistry);
+
+        loginRateLimiter.checkLogin("johndoe@test.com", "10.0.0.1");
+        loginRateLimiter.checkLogin("JohnDoe@test.com", "10.0.0.2");
+
+        assertThatThrownBy(() -> loginRateLimiter.checkLogin(" johndoe@test.com", "10.0.0.3"))
+                .isInstanceOfSatisfying(RateLimitExceededException.class, e -> assertThat(e.retryAfter()).isBetween(Duration.ofSeconds(29), Duration.ofSeconds(30)));
+        assertThat(meterRegistry.counter("auth.rate-limit.rejected", "limit", "account").count()).isEqualTo(1);
+    }
+
+    @Test
+    void checkLoginShouldLimitAttemptsPerClientIpAcrossAccounts() {
+        LoginRateLimiter loginRateLimiter = new LoginRateLimiter(true, 2, Duration.ofMinutes(1), 10, Duration.ofMinutes(1), 1000, meterRegistry);
+
+        loginRateLimiter.checkLogin("a@test.com", "10.0.0.1");
+        loginRateLimiter.checkLogin("b@test.com", "10.0.0.1");
+
+        assertThatThrownBy(() -> loginRateLimiter.checkLogin("c@test.com", "10.0.0.1")).isInstanceOf(RateLimitExceededException.class);
+        assertThat(meterRegistry.counter("auth.rate-limit.rejected", "limit", "client-ip").count()).isEqualTo(1);
+        // the refused attempt didn't cost the targeted account a token
+        assertThatCode(() -> loginRateLimiter.checkLogin("c@test.com", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void checkLoginShouldKeepLimitingAccountsWhenEveryBucketIsInUse() {
+        LoginRateLimiter loginRateLimiter = new LoginRateLimiter(true, 100, Duration.ofMinutes(1), 2, Duration.ofMinutes(1), 2, meterRegistry);
+        // fresh emails fill the account table
+        for (String email : List.of("a@test.com", "a@test.com", "b@test.com", "b@test.com")) {
+            loginRateLimiter.checkLogin(email, "10.0.0.1");
+        }
+
+        loginRateLimiter.checkLogin("victim@test.com", "10.0.0.2");
+        loginRateLimiter.checkLogin("victim@test.com", "10.0.0.2");
+
+        assertThatThrownBy(() -> loginRateLimiter.checkLogin("victim@test.com", "10.0.0.2")).isInstanceOf(RateLimitExceededException.class);
+        assertThat(meterRegistry.counter("auth.rate-limit.rejected", "limit", "account").count()).isEqualTo(1);
+    }
+
+    @Test
+    void checkLoginShouldDoNothingWhenDisabled() {
+        LoginRateLimiter loginRateLimiter = new LoginRateLimiter(false, 1, Duration.ofMinutes(1), 1, Duration.ofMinutes(1), 1000, meterRegistry);
+
+        assertThatCode(() -> {
+            for (int i = 0; i < 5; i++) {
+                loginRateLimiter.checkLogin("johndoe@test.com", "10.0.0.1");
+            }
+        }).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,39 @@
+package com.betterbank.security;
+
+import com.betterbank.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResendVerificationRateLimiterUnitTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void checkResendShouldLimitRequestsPerClientIp() {
+        ResendVerificationRateLimiter rateLimiter = new ResendVerificationRateLimiter(true, 2, Duration.ofMinutes(1), 1000, meterRegistry);
+
+        rateLimiter.checkResend("10.0.0.1");
+        rateLimiter.checkResend("10.0.0.1");
+
+        assertThatThrownBy(() -> rateLimiter.checkResend("10.0.0.1"))
+                .isInstanceOfSatisfying(RateLimitExceededException.class, e -> assertThat(e.retryAfter()).isBetween(Duration.ofSeconds(29), Duration.ofSeconds(30)));
+        assertThat(meterRegistry.counter("auth.rate-limit.rejected", "limit", "resend-client-ip").count()).isEqualTo(1);
+        assertThatCode(() -> rateLimiter.checkResend("10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void checkResendShouldDoNothingWhenDisabled() {
+        ResendVerificationRateLimiter rateLimiter = new ResendVerificationRateLimiter(false, 1, Duration.ofMinutes(1), 1000, meterRegistry);
+
+        assertThatCode(() -> {
+            for (int i = 0; i < 5; i++) {
+                rateLimiter.checkResend("10.0.0.1");
+            }
+        }).doesNotThrowAnyException();
+    }
+}
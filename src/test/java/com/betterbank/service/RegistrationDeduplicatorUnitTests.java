@@ -0,0 +1,138 @@
+package com.betterbank.service;
+
+import com.betterbank.cache.NoRemoteCache;
+import com.betterbank.cache.TieredCacheFactory;
+import com.betterbank.dto.request.RegisterRequest;
+import com.betterbank.dto.response.RegistrationOutcome;
+import com.betterbank.dto.response.RegistrationResult;
+import com.betterbank.dto.response.RegistrationStatus;
+import com.betterbank.exception.IdempotencyKeyReusedException;
+import com.betterbank.providers.AuthProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+public class RegistrationDeduplicatorUnitTests {
+    @Mock
+    private AuthProvider mockAuthProvider;
+
+    private final AtomicInteger registrations = new AtomicInteger();
+    private RegistrationDeduplicator registrationDeduplicator;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registrationDeduplicator = new RegistrationDeduplicator(mockAuthProvider, new TieredCacheFactory(new NoRemoteCache(), new ObjectMapper(), Duration.ofMinutes(5)),
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofHours(24));
+    }
+
+    @Test
+    void concurrentRegistrationsOfTheSameEmailShouldShareOneCall() {
+        CompletableFuture<RegistrationResult> providerCall = new CompletableFuture<>();
+
+        CompletableFuture<RegistrationResult> first = registrationDeduplicator.register(request("JohnDoe@test.com"), Optional.empty(), r -> {
+            registrations.incrementAndGet();
+            return providerCall;
+        });
+        CompletableFuture<RegistrationResult> second = registrationDeduplicator.register(request("johndoe@test.com"), Optional.empty(), r -> {
+            registrations.incrementAndGet();
+            return CompletableFuture.completedFuture(initiated("other-id"));
+        });
+        providerCall.complete(initiated("registration-id"));
+
+        assertThat(first.join()).isEqualTo(initiated("registration-id"));
+        assertThat(second.join()).isEqualTo(initiated("registration-id"));
+        assertThat(registrations).hasValue(1);
+        assertThat(registrationDeduplicator.inFlightCount()).isZero();
+    }
+
+    @Test
+    void registrationShouldReturnTheQueuedRegistrationWhileItIsPending() {
+        when(mockAuthProvider.registrationStatus("registration-id")).thenReturn(Optional.of(RegistrationStatus.QUEUED));
+        register("johndoe@test.com", Optional.empty(), initiated("registration-id"));
+
+        RegistrationResult retry = register("johndoe@test.com", Optional.empty(), initiated("other-id"));
+
+        assertThat(retry).isEqualTo(initiated("registration-id"));
+        assertThat(registrations).hasValue(1);
+    }
+
+    @Test
+    void registrationShouldCallTheProviderAgainOnceThePendingOneFinished() {
+        when(mockAuthProvider.registrationStatus("registration-id")).thenReturn(Optional.of(RegistrationStatus.FAILED));
+        register("johndoe@test.com", Optional.empty(), initiated("registration-id"));
+
+        RegistrationResult retry = register("johndoe@test.com", Optional.empty(), initiated("other-id"));
+
+        assertThat(retry).isEqualTo(initiated("other-id"));
+        assertThat(registrations).hasValue(2);
+    }
+
+    @Test
+    void idempotencyKeyShouldReplayTheFirstOutcome() {
+        register("johndoe@test.com", Optional.of("key-1"), RegistrationResult.of(RegistrationOutcome.USER_EXISTS));
+
+        RegistrationResult retry = register("johndoe@test.com", Optional.of("key-1"), initiated("other-id"));
+
+        assertThat(retry.outcome()).isEqualTo(RegistrationOutcome.USER_EXISTS);
+        assertThat(registrations).hasValue(1);
+    }
+
+    @Test
+    void idempotencyKeyShouldReplayTheFirstOutcomeAfterTheNearTtl() throws InterruptedException {
+        registrationDeduplicator = new RegistrationDeduplicator(mockAuthProvider, new TieredCacheFactory(new NoRemoteCache(), new ObjectMapper(), Duration.ofMillis(1)),
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10), Duration.ofHours(24));
+        register("johndoe@test.com", Optional.of("key-1"), RegistrationResult.of(RegistrationOutcome.USER_EXISTS));
+        Thread.sleep(20);
+
+        RegistrationResult retry = register("johndoe@test.com", Optional.of("key-1"), initiated("other-id"));
+
+        assertThat(retry.outcome()).isEqualTo(RegistrationOutcome.USER_EXISTS);
+        assertThat(registrations).hasValue(1);
+    }
+
+    @Test
+    void idempotencyKeyShouldNotReplayOutcomesARetryCanChange() {
+        register("johndoe@test.com", Optional.of("key-1"), RegistrationResult.of(RegistrationOutcome.REGISTRATION_QUEUE_FULL));
+
+        RegistrationResult retry = register("johndoe@test.com", Optional.of("key-1"), initiated("registration-id"));
+
+        assertThat(retry).isEqualTo(initiated("registration-id"));
+        assertThat(registrations).hasValue(2);
+    }
+
+    @Test
+    void idempotencyKeyShouldBeRejectedForADifferentEmail() {
+        register("johndoe@test.com", Optional.of("key-1"), RegistrationResult.of(RegistrationOutcome.USER_EXISTS));
+
+        assertThatThrownBy(() -> register("janedoe@test.com", Optional.of("key-1"), initiated("other-id")))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    private RegistrationResult register(String email, Optional<String> idempotencyKey, RegistrationResult providerResult) {
+        return registrationDeduplicator.register(request(email), idempotencyKey, r -> {
+            registrations.incrementAndGet();
+            return CompletableFuture.completedFuture(providerResult);
+        }).join();
+    }
+
+    private static RegisterRequest request(String email) {
+        return new RegisterRequest("John", "Doe", email, "Password123!");
+    }
+
+    private static RegistrationResult initiated(String registrationId) {
+        return new RegistrationResult(RegistrationOutcome.INITIATED_ASYNC_PROCESS, Optional.of(registrationId));
+    }
+}
@@ -0,0 +1,73 @@
+package com.betterbank.service;
+
+import com.betterbank.exception.AuthProviderUnavailableException;
+import com.betterbank.providers.KeycloakAdminCredentials;
+import com.betterbank.providers.KeycloakConcurrencyLimiter;
+import com.betterbank.providers.KeycloakTokenClient;
+import com.betterbank.security.SigningKeyResolver;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+public class StartupWarmUpUnitTests {
+    @Mock
+    private KeycloakTokenClient mockKeycloakTokenClient;
+
+    @Mock
+    private Keycloak mockKeycloakAdminClient;
+
+    @Mock
+    private KeycloakAdminCredentials mockKeycloakAdminCredentials;
+
+    @Mock
+    private SigningKeyResolver mockSigningKeyResolver;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mockSigningKeyResolver.resolve(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void runShouldWarmEveryKeycloakConnection() {
+        startupWarmUp(true).run(new DefaultApplicationArguments());
+
+        verify(mockKeycloakAdminCredentials).accessToken();
+        verify(mockKeycloakTokenClient, times(4)).fetchConfiguration("test-realm");
+        verify(mockKeycloakTokenClient, never()).requestToken(anyString(), any());
+        verify(mockSigningKeyResolver).resolve("warm-up");
+    }
+
+    @Test
+    void runShouldCarryOnWhenAStepFails() {
+        when(mockKeycloakAdminCredentials.accessToken()).thenThrow(new AuthProviderUnavailableException("Keycloak token endpoint unavailable"));
+
+        startupWarmUp(true).run(new DefaultApplicationArguments());
+
+        verify(mockKeycloakTokenClient, times(4)).fetchConfiguration("test-realm");
+        verify(mockSigningKeyResolver).resolve("warm-up");
+    }
+
+    @Test
+    void runShouldDoNothingWhenDisabled() {
+        startupWarmUp(false).run(new DefaultApplicationArguments());
+
+        verifyNoInteractions(mockKeycloakTokenClient, mockKeycloakAdminClient, mockKeycloakAdminCredentials, mockSigningKeyResolver);
+    }
+
+    private StartupWarmUp startupWarmUp(boolean enabled) {
+        return new StartupWarmUp(mockKeycloakTokenClient, mockKeycloakAdminClient, mockKeycloakAdminCredentials, new KeycloakConcurrencyLimiter(10, Duration.ofSeconds(1)),
+                mockSigningKeyResolver, Validation.buildDefaultValidatorFactory().getValidator(), Jackson2ObjectMapperBuilder.json().build(),
+                "test-realm", enabled, Duration.ofSeconds(30), 4, 40);
+    }
+}
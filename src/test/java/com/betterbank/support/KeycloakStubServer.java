@@ -0,0 +1,275 @@
+package com.betterbank.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Keycloak endpoints the service talks to: the openid-connect token and certs
+ * endpoints and the admin users search/create/send-verify-email calls. Every request is delayed by the
+ * configured latency, and the configured fraction of requests fails with a 503. Users are derived from the
+ * email instead of being stored: addresses starting with {@code new-} don't exist, {@code pending-} ones
+ * exist with an unverified email, everything else is a verified user. The password {@value #WRONG_PASSWORD}
+ * and password grants for pending users are rejected with invalid_grant.
+ * <p>
+ * Admin calls must carry a bearer token issued by the token endpoint, otherwise they get a 401. The
+ * Authorization headers they arrived with are kept for tests to inspect, and {@link #revokeAccessTokens()}
+ * makes every token issued so far invalid, like a restarted Keycloak.
+ * <p>
+ * Access tokens are RS256 JWTs verifiable against the certs endpoint. Each user gets one token that stays
+ * valid for a day, so RSA signing doesn't compete with the service under test for CPU.
+ */
+public class KeycloakStubServer implements AutoCloseable {
+    public static final String WRONG_PASSWORD = "wrong-password";
+
+    private static final String TOKEN_PATH = "/protocol/openid-connect/token";
+    private static final String CERTS_PATH = "/protocol/openid-connect/certs";
+    private static final String KEY_ID = "stub-signing-key";
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong tokenSequence = new AtomicLong();
+    private final Map<String, String> accessTokens = new ConcurrentHashMap<>();
+    private final Set<String> validAccessTokens = ConcurrentHashMap.newKeySet();
+    private final Queue<String> adminAuthorizations = new ConcurrentLinkedQueue<>();
+    private final KeyPair signingKey;
+    private volatile Duration latency;
+    private volatile double errorRate;
+
+    private KeycloakStubServer(HttpServer server, ExecutorService executor, Duration latency) {
+        this.server = server;
+        this.executor = executor;
+        this.latency = latency;
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keyPairGenerator.initialize(2048);
+            this.signingKey = keyPairGenerator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static KeycloakStubServer start(Duration latency) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // latency is simulated by sleeping, so every request needs its own thread
+        ExecutorService executor = Executors.newCachedThreadPool();
+        KeycloakStubServer stub = new KeycloakStubServer(server, executor, latency);
+        server.createContext("/", stub::handle);
+        server.setExecutor(executor);
+        server.start();
+        return stub;
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @param errorRate fraction of requests, between 0 and 1, answered with 503 instead of being served
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @return the Authorization headers of the admin calls received so far, oldest first
+     */
+    public List<String> adminAuthorizations() {
+        return List.copyOf(adminAuthorizations);
+    }
+
+    public void revokeAccessTokens() {
+        accessTokens.clear();
+        validAccessTokens.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            // always consume the body, leftovers would corrupt the next request on a kept-alive connection
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            sleep(latency);
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                json(exchange, 503, Map.of("error", "unavailable"));
+            } else if (path.startsWith("/admin/") && !authorized(exchange)) {
+                json(exchange, 401, Map.of("error", "HTTP 401 Unauthorized"));
+            } else if (path.startsWith("/realms/") && path.endsWith(TOKEN_PATH) && method.equals("POST")) {
+                token(exchange, path.split("/")[2], parse(body));
+            } else if (path.startsWith("/realms/") && path.endsWith(CERTS_PATH) && method.equals("GET")) {
+                certs(exchange);
+            } else if (path.startsWith("/admin/realms/") && path.endsWith("/users") && method.equals("GET")) {
+                searchUsers(exchange);
+            } else if (path.startsWith("/admin/realms/") && path.endsWith("/users") && method.equals("POST")) {
+                exchange.getResponseHeaders().add("Location", url() + path + "/" + UUID.randomUUID());
+                exchange.sendResponseHeaders(201, -1);
+            } else if (path.startsWith("/admin/realms/") && path.endsWith("/send-verify-email") && method.equals("PUT")) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void token(HttpExchange exchange, String realm, Map<String, String> form) throws IOException {
+        if ("password".equals(form.get("grant_type")) && WRONG_PASSWORD.equals(form.get("password"))) {
+            json(exchange, 401, Map.of("error", "invalid_grant", "error_description", "Invalid user credentials"));
+            return;
+        }
+        if ("password".equals(form.get("grant_type")) && form.getOrDefault("username", "").startsWith("pending-")) {
+            json(exchange, 400, Map.of("error", "invalid_grant", "error_description", "Account is not fully set up"));
+            return;
+        }
+        String subject = form.getOrDefault("username", form.getOrDefault("client_id", "service-account"));
+        String accessToken = accessTokens.computeIfAbsent(realm + "/" + subject, key -> accessToken(realm, subject));
+        validAccessTokens.add(accessToken);
+        json(exchange, 200, Map.of(
+                "access_token", accessToken,
+                "refresh_token", "stub-refresh-token-" + tokenSequence.incrementAndGet(),
+                "expires_in", 300,
+                "refresh_expires_in", 1800,
+                "token_type", "Bearer"));
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null) {
+            return false;
+        }
+        adminAuthorizations.add(authorization);
+        return authorization.startsWith("Bearer ") && validAccessTokens.contains(authorization.substring("Bearer ".length()));
+    }
+
+    private void certs(HttpExchange exchange) throws IOException {
+        RSAPublicKey publicKey = (RSAPublicKey) signingKey.getPublic();
+        Map<String, Object> jwk = Map.of(
+                "kid", KEY_ID,
+                "kty", "RSA",
+                "alg", "RS256",
+                "use", "sig",
+                "n", BASE64_URL.encodeToString(unsigned(publicKey.getModulus())),
+                "e", BASE64_URL.encodeToString(unsigned(publicKey.getPublicExponent())));
+        json(exchange, 200, Map.of("keys", List.of(jwk)));
+    }
+
+    private String accessToken(String realm, String subject) {
+        long now = Instant.now().getEpochSecond();
+        Map<String, Object> header = Map.of("alg", "RS256", "typ", "JWT", "kid", KEY_ID);
+        Map<String, Object> claims = Map.of(
+                "iss", url() + "/realms/" + realm,
+                "typ", "Bearer",
+                "azp", "auth-service",
+                // tokens issued again after a revocation must differ from the revoked ones
+                "jti", String.valueOf(tokenSequence.incrementAndGet()),
+                "sub", UUID.nameUUIDFromBytes(subject.getBytes(StandardCharsets.UTF_8)).toString(),
+                "email", subject,
+                "scope", "openid email profile",
+                "iat", now,
+                "exp", now + Duration.ofDays(1).toSeconds());
+        try {
+            String signingInput = BASE64_URL.encodeToString(objectMapper.writeValueAsBytes(header)) + "." + BASE64_URL.encodeToString(objectMapper.writeValueAsBytes(claims));
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(signingKey.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64_URL.encodeToString(signature.sign());
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void searchUsers(HttpExchange exchange) throws IOException {
+        String email = parse(exchange.getRequestURI().getRawQuery()).getOrDefault("email", "");
+        if (email.startsWith("new-")) {
+            json(exchange, 200, List.of());
+            return;
+        }
+        Map<String, Object> user = Map.of(
+                "id", UUID.nameUUIDFromBytes(email.getBytes(StandardCharsets.UTF_8)).toString(),
+                "username", email,
+                "email", email,
+                "enabled", true,
+                "emailVerified", !email.startsWith("pending-"));
+        json(exchange, 200, List.of(user));
+    }
+
+    private void json(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parse(String encoded) {
+        Map<String, String> values = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return values;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                values.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
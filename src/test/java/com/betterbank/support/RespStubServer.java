@@ -0,0 +1,295 @@
+package com.betterbank.support;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for Redis speaking RESP: AUTH, SELECT, GET, SET with PX, DEL, PUBLISH and SUBSCRIBE,
+ * enough for {@code RedisRemoteCache}. Every command received is kept for tests to inspect. Tests can
+ * queue raw replies that take precedence over the computed ones, optionally closing the connection right
+ * after, delay replies, write them one byte per packet and drop every open connection.
+ */
+public class RespStubServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, Entry> values = new ConcurrentHashMap<>();
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final Queue<List<String>> commands = new ConcurrentLinkedQueue<>();
+    private final Queue<ScriptedReply> scriptedReplies = new ConcurrentLinkedQueue<>();
+    private volatile String password = "";
+    private volatile Duration replyDelay = Duration.ZERO;
+    private volatile boolean fragmentReplies;
+
+    private RespStubServer(ServerSocket serverSocket) {
+        this.serverSocket = serverSocket;
+    }
+
+    public static RespStubServer start() throws IOException {
+        RespStubServer stub = new RespStubServer(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()));
+        stub.executor.execute(stub::accept);
+        return stub;
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setReplyDelay(Duration replyDelay) {
+        this.replyDelay = replyDelay;
+    }
+
+    /**
+     * @param fragmentReplies whether to flush every reply byte on its own, so the client sees them in separate reads
+     */
+    public void setFragmentReplies(boolean fragmentReplies) {
+        this.fragmentReplies = fragmentReplies;
+    }
+
+    /**
+     * Answers the next command with {@code reply}, written to the wire as is, instead of executing it.
+     */
+    public void scriptReply(String reply) {
+        scriptedReplies.add(new ScriptedReply(reply, false));
+    }
+
+    /**
+     * Answers the next command with {@code reply}, e.g. a truncated one, and closes the connection after it.
+     */
+    public void scriptReplyThenDisconnect(String reply) {
+        scriptedReplies.add(new ScriptedReply(reply, true));
+    }
+
+    public List<List<String>> commands() {
+        return List.copyOf(commands);
+    }
+
+    public long count(String command) {
+        return commands.stream().filter(args -> args.get(0).equalsIgnoreCase(command)).count();
+    }
+
+    public int connections() {
+        return clients.size();
+    }
+
+    public long subscribers(String channel) {
+        return clients.stream().filter(client -> client.channels.contains(channel)).count();
+    }
+
+    public void dropConnections() {
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // the accept loop exits either way
+        }
+        dropConnections();
+        executor.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Client client = new Client(serverSocket.accept());
+                clients.add(client);
+                executor.execute(() -> serve(client));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Client client) {
+        try {
+            InputStream in = new BufferedInputStream(client.socket.getInputStream());
+            while (true) {
+                List<String> args = readCommand(in);
+                commands.add(args);
+                sleep(replyDelay);
+                ScriptedReply scripted = scriptedReplies.poll();
+                if (scripted == null) {
+                    client.write(execute(client, args), fragmentReplies);
+                    continue;
+                }
+                client.write(scripted.reply(), fragmentReplies);
+                if (scripted.disconnect()) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // client went away or the connection was dropped
+        } finally {
+            clients.remove(client);
+            client.close();
+        }
+    }
+
+    private String execute(Client client, List<String> args) {
+        String command = args.get(0).toUpperCase();
+        if (!command.equals("AUTH") && !password.isEmpty() && !client.authenticated) {
+            return "-NOAUTH Authentication required.\r\n";
+        }
+        switch (command) {
+            case "AUTH":
+                if (!args.get(1).equals(password)) {
+                    return "-WRONGPASS invalid username-password pair or user is disabled.\r\n";
+                }
+                client.authenticated = true;
+                return "+OK\r\n";
+            case "SELECT":
+                return "+OK\r\n";
+            case "GET": {
+                Entry entry = values.get(args.get(1));
+                if (entry == null || System.nanoTime() - entry.expiresAtNanos() >= 0) {
+                    return "$-1\r\n";
+                }
+                return bulk(entry.value());
+            }
+            case "SET": {
+                long ttlMillis = args.size() >= 5 && args.get(3).equalsIgnoreCase("PX") ? Long.parseLong(args.get(4)) : Duration.ofDays(1).toMillis();
+                values.put(args.get(1), new Entry(args.get(2), System.nanoTime() + Duration.ofMillis(ttlMillis).toNanos()));
+                return "+OK\r\n";
+            }
+            case "DEL":
+                return ":" + (values.remove(args.get(1)) != null ? 1 : 0) + "\r\n";
+            case "PUBLISH": {
+                String message = "*3\r\n" + bulk("message") + bulk(args.get(1)) + bulk(args.get(2));
+                int receivers = 0;
+                for (Client subscriber : clients) {
+                    if (subscriber.channels.contains(args.get(1)) && subscriber.tryWrite(message)) {
+                        receivers++;
+                    }
+                }
+                return ":" + receivers + "\r\n";
+            }
+            case "SUBSCRIBE":
+                client.channels.add(args.get(1));
+                return "*3\r\n" + bulk("subscribe") + bulk(args.get(1)) + ":" + client.channels.size() + "\r\n";
+            default:
+                return "-ERR unknown command '" + args.get(0) + "'\r\n";
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (!header.startsWith("*")) {
+            throw new IOException("Expected a RESP array, got " + header);
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(in).substring(1));
+            byte[] bytes = in.readNBytes(length + 2);
+            if (bytes.length < length + 2) {
+                throw new EOFException();
+            }
+            args.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            line.write(b);
+        }
+        in.read();
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String bulk(String value) {
+        return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Entry(String value, long expiresAtNanos) {
+    }
+
+    private record ScriptedReply(String reply, boolean disconnect) {
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final Set<String> channels = ConcurrentHashMap.newKeySet();
+        private volatile boolean authenticated;
+
+        private Client(Socket socket) {
+            this.socket = socket;
+        }
+
+        // replies and pushed messages come from different connections' threads
+        private synchronized void write(String reply, boolean fragmented) throws IOException {
+            OutputStream out = socket.getOutputStream();
+            byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+            if (!fragmented) {
+                out.write(bytes);
+                out.flush();
+                return;
+            }
+            for (byte b : bytes) {
+                out.write(b);
+                out.flush();
+                sleep(Duration.ofMillis(1));
+            }
+        }
+
+        private boolean tryWrite(String message) {
+            try {
+                write(message, false);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}